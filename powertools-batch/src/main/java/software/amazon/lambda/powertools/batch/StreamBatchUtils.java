@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.batch;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.KinesisEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import software.amazon.lambda.powertools.batch.internal.StreamBatchProcessor;
+
+import static com.amazonaws.services.lambda.runtime.events.DynamodbEvent.DynamodbStreamRecord;
+import static com.amazonaws.services.lambda.runtime.events.KinesisEvent.KinesisEventRecord;
+
+/**
+ * A class of helper functions to process records of {@link KinesisEvent} and {@link DynamodbEvent} with partial
+ * batch failure reporting.
+ *
+ * <p>
+ * Records are processed in order per shard. Processing of a shard stops at the first record which fails, and the
+ * sequence number of that record is reported back in {@link StreamsEventResponse#getBatchItemFailures()}. Lambda
+ * then checkpoints right before that record, so records which succeeded before it are not delivered again.
+ * </p>
+ *
+ * <p>
+ * Returned {@link StreamsEventResponse} must be returned from the lambda handler, and event source mapping must have
+ * {@code ReportBatchItemFailures} enabled in its {@code FunctionResponseTypes}.
+ * </p>
+ */
+public final class StreamBatchUtils {
+
+    private StreamBatchUtils() {
+    }
+
+    /**
+     * This utility method is used to processes each {@link KinesisEventRecord} inside received {@link KinesisEvent}
+     * one shard at a time.
+     *
+     * @param event   {@link KinesisEvent} received by lambda function.
+     * @param handler Implementation of {@link StreamRecordHandler} which will be called for each record in event.
+     * @return {@link StreamsEventResponse} with sequence number of first failed record per shard.
+     */
+    public static StreamsEventResponse batchProcessor(final KinesisEvent event,
+                                                      final StreamRecordHandler<KinesisEventRecord> handler) {
+        return batchProcessor(event, 1, handler);
+    }
+
+    /**
+     * This utility method is used to processes each {@link KinesisEventRecord} inside received {@link KinesisEvent}.
+     *
+     * <p>
+     * Records are grouped by shard id, read from the {@code eventID} of each record. Up to {@code maxConcurrentShards}
+     * shards are processed in parallel, while records within a shard are always processed in order.
+     * </p>
+     *
+     * <p>
+     * Lambda delivers records of a single shard per invocation, so events received from an event source mapping are
+     * processed sequentially whatever the value. Parallelism only applies to events merging records of several shards,
+     * built by the caller.
+     * </p>
+     *
+     * @param event               {@link KinesisEvent} received by lambda function.
+     * @param maxConcurrentShards Maximum number of shards processed in parallel.
+     * @param handler             Implementation of {@link StreamRecordHandler} which will be called for each record in event.
+     * @return {@link StreamsEventResponse} with sequence number of first failed record per shard.
+     */
+    public static StreamsEventResponse batchProcessor(final KinesisEvent event,
+                                                      final int maxConcurrentShards,
+                                                      final StreamRecordHandler<KinesisEventRecord> handler) {
+        return StreamBatchProcessor.process(event.getRecords(),
+                StreamBatchUtils::shardId,
+                record -> record.getKinesis().getSequenceNumber(),
+                maxConcurrentShards,
+                handler);
+    }
+
+    /**
+     * This utility method is used to processes each {@link DynamodbStreamRecord} inside received {@link DynamodbEvent}
+     * one stream at a time.
+     *
+     * @param event   {@link DynamodbEvent} received by lambda function.
+     * @param handler Implementation of {@link StreamRecordHandler} which will be called for each record in event.
+     * @return {@link StreamsEventResponse} with sequence number of first failed record per stream.
+     */
+    public static StreamsEventResponse batchProcessor(final DynamodbEvent event,
+                                                      final StreamRecordHandler<DynamodbStreamRecord> handler) {
+        return batchProcessor(event, 1, handler);
+    }
+
+    /**
+     * This utility method is used to processes each {@link DynamodbStreamRecord} inside received {@link DynamodbEvent}.
+     *
+     * <p>
+     * DynamoDB stream records do not carry their shard id, so records are grouped by {@code eventSourceARN}. Up to
+     * {@code maxConcurrentShards} groups are processed in parallel, while records within a group are always processed
+     * in order.
+     * </p>
+     *
+     * <p>
+     * Lambda delivers records of a single shard per invocation, so events received from an event source mapping are
+     * processed sequentially whatever the value. Parallelism only applies to events merging records of several
+     * streams, built by the caller.
+     * </p>
+     *
+     * @param event               {@link DynamodbEvent} received by lambda function.
+     * @param maxConcurrentShards Maximum number of record groups processed in parallel.
+     * @param handler             Implementation of {@link StreamRecordHandler} which will be called for each record in event.
+     * @return {@link StreamsEventResponse} with sequence number of first failed record per stream.
+     */
+    public static StreamsEventResponse batchProcessor(final DynamodbEvent event,
+                                                      final int maxConcurrentShards,
+                                                      final StreamRecordHandler<DynamodbStreamRecord> handler) {
+        return StreamBatchProcessor.process(event.getRecords(),
+                DynamodbStreamRecord::getEventSourceARN,
+                record -> record.getDynamodb().getSequenceNumber(),
+                maxConcurrentShards,
+                handler);
+    }
+
+    private static String shardId(final KinesisEventRecord record) {
+        String eventId = record.getEventID();
+
+        if (null == eventId || !eventId.contains(":")) {
+            return record.getEventSourceARN();
+        }
+
+        return eventId.substring(0, eventId.indexOf(':'));
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.batch;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.KinesisEvent;
+
+/**
+ * <p>
+ * This interface should be implemented for processing individual records of a {@link KinesisEvent} or a
+ * {@link DynamodbEvent} received by lambda function.
+ * </p>
+ *
+ * <p>
+ * It is required by utilities:
+ * <ul>
+ *   <li>{@link StreamBatchUtils#batchProcessor(KinesisEvent, StreamRecordHandler)}</li>
+ *   <li>{@link StreamBatchUtils#batchProcessor(KinesisEvent, int, StreamRecordHandler)}</li>
+ *   <li>{@link StreamBatchUtils#batchProcessor(DynamodbEvent, StreamRecordHandler)}</li>
+ *   <li>{@link StreamBatchUtils#batchProcessor(DynamodbEvent, int, StreamRecordHandler)}</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Any exception thrown from {@link StreamRecordHandler#process(Object)} marks the record as failed.
+ * </p>
+ *
+ * @param <T> Type of the stream record
+ */
+@FunctionalInterface
+public interface StreamRecordHandler<T> {
+
+    void process(T record);
+}
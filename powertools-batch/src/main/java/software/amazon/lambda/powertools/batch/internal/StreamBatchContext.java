@@ -0,0 +1,55 @@
+package software.amazon.lambda.powertools.batch.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.amazonaws.services.lambda.runtime.events.StreamsEventResponse.BatchItemFailure;
+
+/**
+ * Keeps track of the failed record of a single shard and of the exception it failed with. Processing of a shard stops
+ * at its first failure, so only one failure is ever recorded.
+ */
+final class StreamBatchContext<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamBatchContext.class);
+
+    private T failure;
+    private Exception exception;
+
+    void addFailure(T record, Exception e) {
+        failure = record;
+        exception = e;
+    }
+
+    boolean hasFailure() {
+        return null != failure;
+    }
+
+    T failure() {
+        return failure;
+    }
+
+    Exception exception() {
+        return exception;
+    }
+
+    static <T> StreamsEventResponse response(final List<StreamBatchContext<T>> contexts,
+                                             final Function<T, String> sequenceNumber) {
+        List<BatchItemFailure> failures = new ArrayList<>();
+
+        for (StreamBatchContext<T> context : contexts) {
+            if (context.hasFailure()) {
+                String failedSequenceNumber = sequenceNumber.apply(context.failure());
+                LOG.warn("Failed processing record with sequence number {}, remaining records of its shard were " +
+                        "not processed", failedSequenceNumber, context.exception());
+                failures.add(new BatchItemFailure(failedSequenceNumber));
+            }
+        }
+
+        return new StreamsEventResponse(failures);
+    }
+}
@@ -0,0 +1,114 @@
+package software.amazon.lambda.powertools.batch.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import software.amazon.lambda.powertools.batch.StreamRecordHandler;
+
+import static java.util.Collections.emptyList;
+
+public final class StreamBatchProcessor {
+
+    private StreamBatchProcessor() {
+    }
+
+    public static <T> StreamsEventResponse process(final List<T> records,
+                                                   final Function<T, String> shardId,
+                                                   final Function<T, String> sequenceNumber,
+                                                   final int maxConcurrentShards,
+                                                   final StreamRecordHandler<T> handler) {
+        if (null == records || records.isEmpty()) {
+            return new StreamsEventResponse(emptyList());
+        }
+
+        Map<String, List<T>> shards = new LinkedHashMap<>();
+
+        for (T record : records) {
+            shards.computeIfAbsent(shardId.apply(record), key -> new ArrayList<>()).add(record);
+        }
+
+        List<StreamBatchContext<T>> contexts = maxConcurrentShards > 1 && shards.size() > 1 ?
+                processConcurrently(shards.values(), maxConcurrentShards, handler) :
+                processSequentially(shards.values(), handler);
+
+        return StreamBatchContext.response(contexts, sequenceNumber);
+    }
+
+    private static <T> List<StreamBatchContext<T>> processSequentially(final Iterable<List<T>> shards,
+                                                                       final StreamRecordHandler<T> handler) {
+        List<StreamBatchContext<T>> contexts = new ArrayList<>();
+
+        for (List<T> shard : shards) {
+            contexts.add(processShard(shard, handler));
+        }
+
+        return contexts;
+    }
+
+    private static <T> List<StreamBatchContext<T>> processConcurrently(final Collection<List<T>> shards,
+                                                                       final int maxConcurrentShards,
+                                                                       final StreamRecordHandler<T> handler) {
+        List<Future<StreamBatchContext<T>>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentShards, shards.size()),
+                new DaemonThreadFactory());
+
+        try {
+            for (List<T> shard : shards) {
+                futures.add(executor.submit(() -> processShard(shard, handler)));
+            }
+
+            List<StreamBatchContext<T>> contexts = new ArrayList<>();
+
+            for (Future<StreamBatchContext<T>> future : futures) {
+                contexts.add(future.get());
+            }
+
+            return contexts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing stream records", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected error while processing stream records", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> StreamBatchContext<T> processShard(final List<T> records,
+                                                          final StreamRecordHandler<T> handler) {
+        StreamBatchContext<T> context = new StreamBatchContext<>();
+
+        for (T record : records) {
+            try {
+                handler.process(record);
+            } catch (Exception e) {
+                context.addFailure(record, e);
+                break;
+            }
+        }
+
+        return context;
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, "powertools-batch-shard-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
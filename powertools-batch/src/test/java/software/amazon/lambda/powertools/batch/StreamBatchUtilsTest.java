@@ -0,0 +1,192 @@
+package software.amazon.lambda.powertools.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.KinesisEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.junit.jupiter.api.Test;
+
+import static com.amazonaws.services.lambda.runtime.events.DynamodbEvent.DynamodbStreamRecord;
+import static com.amazonaws.services.lambda.runtime.events.KinesisEvent.KinesisEventRecord;
+import static com.amazonaws.services.lambda.runtime.events.StreamsEventResponse.BatchItemFailure;
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.lambda.powertools.batch.StreamBatchUtils.batchProcessor;
+
+class StreamBatchUtilsTest {
+
+    @Test
+    void shouldReturnNoFailuresWhenAllRecordsSucceed() {
+        List<String> processed = new ArrayList<>();
+
+        StreamsEventResponse response = batchProcessor(kinesisEvent(
+                kinesisRecord("shardId-000000000000", "1"),
+                kinesisRecord("shardId-000000000000", "2")),
+                record -> processed.add(record.getKinesis().getSequenceNumber()));
+
+        assertThat(response.getBatchItemFailures())
+                .isEmpty();
+
+        assertThat(processed)
+                .containsExactly("1", "2");
+    }
+
+    @Test
+    void shouldStopShardAtFirstFailedSequenceNumber() {
+        List<String> processed = new ArrayList<>();
+
+        StreamsEventResponse response = batchProcessor(kinesisEvent(
+                kinesisRecord("shardId-000000000000", "1"),
+                kinesisRecord("shardId-000000000000", "2"),
+                kinesisRecord("shardId-000000000000", "3")),
+                record -> {
+                    String sequenceNumber = record.getKinesis().getSequenceNumber();
+
+                    if ("2".equals(sequenceNumber)) {
+                        throw new RuntimeException("Failed processing");
+                    }
+
+                    processed.add(sequenceNumber);
+                });
+
+        assertThat(response.getBatchItemFailures())
+                .extracting(BatchItemFailure::getItemIdentifier)
+                .containsExactly("2");
+
+        assertThat(processed)
+                .containsExactly("1");
+    }
+
+    @Test
+    void shouldReportFirstFailurePerShard() {
+        List<String> processed = new CopyOnWriteArrayList<>();
+
+        StreamsEventResponse response = batchProcessor(kinesisEvent(
+                kinesisRecord("shardId-000000000000", "1"),
+                kinesisRecord("shardId-000000000001", "10"),
+                kinesisRecord("shardId-000000000000", "2"),
+                kinesisRecord("shardId-000000000001", "11"),
+                kinesisRecord("shardId-000000000001", "12")),
+                2,
+                record -> {
+                    String sequenceNumber = record.getKinesis().getSequenceNumber();
+
+                    if ("1".equals(sequenceNumber) || "11".equals(sequenceNumber)) {
+                        throw new RuntimeException("Failed processing");
+                    }
+
+                    processed.add(sequenceNumber);
+                });
+
+        assertThat(response.getBatchItemFailures())
+                .extracting(BatchItemFailure::getItemIdentifier)
+                .containsExactly("1", "11");
+
+        assertThat(processed)
+                .containsExactly("10");
+    }
+
+    @Test
+    void shouldProcessShardsInParallelAndRecordsInOrder() throws InterruptedException {
+        CountDownLatch bothShardsStarted = new CountDownLatch(2);
+        ConcurrentHashMap<String, List<String>> processed = new ConcurrentHashMap<>();
+
+        StreamsEventResponse response = batchProcessor(kinesisEvent(
+                kinesisRecord("shardId-000000000000", "1"),
+                kinesisRecord("shardId-000000000001", "10"),
+                kinesisRecord("shardId-000000000000", "2"),
+                kinesisRecord("shardId-000000000001", "11")),
+                2,
+                record -> {
+                    String shardId = record.getEventID().split(":")[0];
+                    String sequenceNumber = record.getKinesis().getSequenceNumber();
+
+                    if ("1".equals(sequenceNumber) || "10".equals(sequenceNumber)) {
+                        bothShardsStarted.countDown();
+                        await(bothShardsStarted);
+                    }
+
+                    processed.computeIfAbsent(shardId, key -> new CopyOnWriteArrayList<>()).add(sequenceNumber);
+                });
+
+        assertThat(response.getBatchItemFailures())
+                .isEmpty();
+
+        assertThat(processed)
+                .containsEntry("shardId-000000000000", Arrays.asList("1", "2"))
+                .containsEntry("shardId-000000000001", Arrays.asList("10", "11"));
+    }
+
+    @Test
+    void shouldStopDynamodbStreamAtFirstFailedSequenceNumber() {
+        DynamodbEvent event = new DynamodbEvent();
+        event.setRecords(Arrays.asList(dynamodbRecord("100"), dynamodbRecord("200"), dynamodbRecord("300")));
+
+        StreamsEventResponse response = batchProcessor(event, record -> {
+            if ("200".equals(record.getDynamodb().getSequenceNumber())) {
+                throw new IllegalStateException("Failed processing");
+            }
+        });
+
+        assertThat(response.getBatchItemFailures())
+                .extracting(BatchItemFailure::getItemIdentifier)
+                .containsExactly("200");
+    }
+
+    @Test
+    void shouldReturnNoFailuresForEmptyEvent() {
+        KinesisEvent event = new KinesisEvent();
+        event.setRecords(Collections.emptyList());
+
+        assertThat(batchProcessor(event, record -> {
+            throw new IllegalStateException("Should not be called");
+        }).getBatchItemFailures())
+                .isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Shards were not processed in parallel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static KinesisEvent kinesisEvent(KinesisEventRecord... records) {
+        KinesisEvent event = new KinesisEvent();
+        event.setRecords(Arrays.asList(records));
+        return event;
+    }
+
+    private static KinesisEventRecord kinesisRecord(String shardId, String sequenceNumber) {
+        KinesisEvent.Record kinesis = new KinesisEvent.Record();
+        kinesis.setSequenceNumber(sequenceNumber);
+
+        KinesisEventRecord record = new KinesisEventRecord();
+        record.setEventID(shardId + ":" + sequenceNumber);
+        record.setEventSourceARN("arn:aws:kinesis:eu-west-1:123456789012:stream/my-stream");
+        record.setKinesis(kinesis);
+        return record;
+    }
+
+    private static DynamodbStreamRecord dynamodbRecord(String sequenceNumber) {
+        StreamRecord streamRecord = new StreamRecord();
+        streamRecord.setSequenceNumber(sequenceNumber);
+
+        DynamodbStreamRecord record = new DynamodbStreamRecord();
+        record.setEventSourceARN("arn:aws:dynamodb:eu-west-1:123456789012:table/my-table/stream/2021-01-01T00:00:00.000");
+        record.setDynamodb(streamRecord);
+        return record;
+    }
+}
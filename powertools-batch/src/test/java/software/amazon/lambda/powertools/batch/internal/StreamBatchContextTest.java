@@ -0,0 +1,33 @@
+package software.amazon.lambda.powertools.batch.internal;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import org.junit.jupiter.api.Test;
+
+import static com.amazonaws.services.lambda.runtime.events.StreamsEventResponse.BatchItemFailure;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamBatchContextTest {
+
+    @Test
+    void shouldKeepFailedRecordWithItsException() {
+        IllegalStateException exception = new IllegalStateException("Failed processing");
+        StreamBatchContext<String> failed = new StreamBatchContext<>();
+        failed.addFailure("2", exception);
+
+        assertThat(failed.failure())
+                .isEqualTo("2");
+
+        assertThat(failed.exception())
+                .isSameAs(exception);
+
+        StreamsEventResponse response = StreamBatchContext.response(Arrays.asList(new StreamBatchContext<>(), failed),
+                Function.identity());
+
+        assertThat(response.getBatchItemFailures())
+                .extracting(BatchItemFailure::getItemIdentifier)
+                .containsExactly("2");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.benchmark.logging;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.core.layout.ByteBufferDestinationHelper;
+import org.apache.logging.log4j.core.layout.JsonLayout;
+import org.apache.logging.log4j.core.layout.LambdaJsonLayout;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding a log event with {@link LambdaJsonLayout} against the Jackson based {@link JsonLayout} of Log4j,
+ * which builds and serializes an object tree per event the way {@code LambdaJsonLayout} used to do.
+ *
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonLayoutBenchmark {
+    private final LambdaJsonLayout lambdaJsonLayout = LambdaJsonLayout.newBuilder()
+            .setEventEol(true)
+            .build();
+
+    private final JsonLayout jacksonJsonLayout = JsonLayout.newBuilder()
+            .setCompact(true)
+            .setEventEol(true)
+            .build();
+
+    private final Destination destination = new Destination();
+    private LogEvent event;
+
+    @Setup
+    public void setUp() {
+        SortedArrayStringMap contextData = new SortedArrayStringMap();
+        contextData.putValue("coldStart", "false");
+        contextData.putValue("functionArn", "arn:aws:lambda:eu-west-1:123456789012:function:orders");
+        contextData.putValue("functionMemorySize", "512");
+        contextData.putValue("functionName", "orders");
+        contextData.putValue("functionRequestId", "c6af9ac6-7b61-11e6-9a41-93e812345678");
+        contextData.putValue("functionVersion", "$LATEST");
+        contextData.putValue("service", "orders");
+        contextData.putValue("xray_trace_id", "1-5759e988-bd862e3fe1be46a994272793");
+
+        event = Log4jLogEvent.newBuilder()
+                .setLoggerName(JsonLayoutBenchmark.class.getName())
+                .setLoggerFqcn("org.apache.logging.log4j.spi.AbstractLogger")
+                .setLevel(Level.INFO)
+                .setMessage(new ParameterizedMessage("Processed order {} in {} ms", "4f8b1cd2", 42))
+                .setContextData(contextData)
+                .setTimeMillis(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    public Destination lambdaJsonLayout() {
+        lambdaJsonLayout.encode(event, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public Destination jacksonJsonLayout() {
+        jacksonJsonLayout.encode(event, destination);
+        return destination;
+    }
+
+    /**
+     * Discards encoded bytes, like an appender would after writing them out.
+     */
+    public static class Destination implements ByteBufferDestination {
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public ByteBuffer drain(final ByteBuffer buf) {
+            buf.clear();
+            return buf;
+        }
+
+        @Override
+        public void writeBytes(final ByteBuffer data) {
+            ByteBufferDestinationHelper.writeToUnsynchronized(data, this);
+        }
+
+        @Override
+        public void writeBytes(final byte[] data, final int offset, final int length) {
+            ByteBufferDestinationHelper.writeToUnsynchronized(data, offset, length, this);
+        }
+    }
+}
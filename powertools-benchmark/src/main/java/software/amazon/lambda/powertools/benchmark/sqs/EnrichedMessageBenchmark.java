@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.benchmark.sqs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.lambda.powertools.sqs.SqsUtils;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * Compares copying messages of an {@link SQSEvent} in {@link SqsUtils#enrichedMessageFromS3(SQSEvent, boolean, java.util.function.Function)}
+ * against the JSON round trip it used to do. None of the messages are offloaded to S3, so only the copy is measured.
+ *
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrichedMessageBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"10", "10000"})
+    private int records;
+
+    private SQSEvent event;
+
+    @Setup
+    public void setUp() {
+        List<SQSMessage> messages = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            messages.add(message(i));
+        }
+
+        event = new SQSEvent();
+        event.setRecords(messages);
+    }
+
+    @Benchmark
+    public List<SQSMessage> enrichedMessageFromS3() {
+        return SqsUtils.enrichedMessageFromS3(event, false, sqsMessages -> sqsMessages);
+    }
+
+    @Benchmark
+    public List<SQSMessage> jsonRoundTripCopy() throws JsonProcessingException {
+        List<SQSMessage> sqsMessages = new ArrayList<>(event.getRecords().size());
+        for (SQSMessage sqsMessage : event.getRecords()) {
+            sqsMessages.add(objectMapper.readValue(objectMapper.writeValueAsString(sqsMessage), SQSMessage.class));
+        }
+        return sqsMessages;
+    }
+
+    private static SQSMessage message(int i) {
+        SQSMessage message = new SQSMessage();
+        message.setMessageId("059f36b4-87a3-44ab-83d2-" + i);
+        message.setReceiptHandle("AQEBwJnKyrHigUMZj6rYigCgxlaS3SLy0a...");
+        message.setBody("{\"orderId\":" + i + ",\"status\":\"CREATED\"}");
+        message.setMd5OfBody("e4e68fb7bd0e697a0ae8f1bb342846b3");
+        message.setEventSource("aws:sqs");
+        message.setEventSourceArn("arn:aws:sqs:us-east-2:123456789012:my-queue");
+        message.setAwsRegion("us-east-2");
+
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("ApproximateReceiveCount", "1");
+        attributes.put("SentTimestamp", "1545082649183");
+        attributes.put("SenderId", "AIDAIENQZJOLO23YVJ4VO");
+        attributes.put("ApproximateFirstReceiveTimestamp", "1545082649185");
+        message.setAttributes(attributes);
+
+        MessageAttribute attribute = new MessageAttribute();
+        attribute.setDataType("String");
+        attribute.setStringValue("eu-west-1");
+        Map<String, MessageAttribute> messageAttributes = new HashMap<>();
+        messageAttributes.put("region", attribute);
+        message.setMessageAttributes(messageAttributes);
+
+        return message;
+    }
+}
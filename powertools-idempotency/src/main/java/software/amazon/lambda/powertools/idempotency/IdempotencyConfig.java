@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency;
+
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Configuration of the idempotency utility. Use {@link IdempotencyConfig#builder()} to create one.
+ */
+public final class IdempotencyConfig {
+    private final String eventKeyJMESPath;
+    private final Duration expiration;
+    private final int localCacheMaxItems;
+    private final boolean throwOnNoIdempotencyKey;
+    private final ObjectMapper objectMapper;
+
+    private IdempotencyConfig(final Builder builder) {
+        this.eventKeyJMESPath = builder.eventKeyJMESPath;
+        this.expiration = builder.expiration;
+        this.localCacheMaxItems = builder.localCacheMaxItems;
+        this.throwOnNoIdempotencyKey = builder.throwOnNoIdempotencyKey;
+        this.objectMapper = builder.objectMapper;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getEventKeyJMESPath() {
+        return eventKeyJMESPath;
+    }
+
+    public Duration getExpiration() {
+        return expiration;
+    }
+
+    public int getLocalCacheMaxItems() {
+        return localCacheMaxItems;
+    }
+
+    public boolean throwOnNoIdempotencyKey() {
+        return throwOnNoIdempotencyKey;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public static final class Builder {
+        private String eventKeyJMESPath;
+        private Duration expiration = Duration.ofHours(1);
+        private int localCacheMaxItems = 256;
+        private boolean throwOnNoIdempotencyKey = false;
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        private Builder() {
+        }
+
+        /**
+         * JMESPath expression selecting the part of the payload used as idempotency key, e.g. {@code "messageId"} or
+         * {@code "[userId, orderId]"}. Whole payload is used when not set.
+         *
+         * @param eventKeyJMESPath the JMESPath expression
+         * @return the builder instance
+         */
+        public Builder withEventKeyJMESPath(final String eventKeyJMESPath) {
+            this.eventKeyJMESPath = eventKeyJMESPath;
+            return this;
+        }
+
+        /**
+         * How long a completed record is considered valid. After that, the same payload is processed again.
+         * Default is one hour.
+         *
+         * @param expiration validity of a record
+         * @return the builder instance
+         */
+        public Builder withExpiration(final Duration expiration) {
+            this.expiration = expiration;
+            return this;
+        }
+
+        /**
+         * Maximum number of completed records kept in memory, so repeated keys are answered without a call to the
+         * persistence store. Default is 256, 0 disables the local cache.
+         *
+         * @param localCacheMaxItems maximum number of records in local cache
+         * @return the builder instance
+         */
+        public Builder withLocalCacheMaxItems(final int localCacheMaxItems) {
+            this.localCacheMaxItems = localCacheMaxItems;
+            return this;
+        }
+
+        /**
+         * Whether to throw {@link software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyKeyException}
+         * when the idempotency key resolves to null. By default the method is then run without idempotency.
+         *
+         * @param throwOnNoIdempotencyKey true to fail on missing key
+         * @return the builder instance
+         */
+        public Builder withThrowOnNoIdempotencyKey(final boolean throwOnNoIdempotencyKey) {
+            this.throwOnNoIdempotencyKey = throwOnNoIdempotencyKey;
+            return this;
+        }
+
+        /**
+         * Object mapper used to read payloads and to (de)serialize stored results.
+         *
+         * @param objectMapper the object mapper
+         * @return the builder instance
+         */
+        public Builder withObjectMapper(final ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        public IdempotencyConfig build() {
+            return new IdempotencyConfig(this);
+        }
+    }
+}
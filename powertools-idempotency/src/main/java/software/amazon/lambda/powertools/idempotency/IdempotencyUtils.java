@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency;
+
+import java.util.function.Supplier;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import software.amazon.lambda.powertools.idempotency.internal.IdempotencyHandler;
+import software.amazon.lambda.powertools.idempotency.persistence.BasePersistenceStore;
+
+/**
+ * A class of helper functions to configure the idempotency utility and to use it without {@link Idempotent}
+ * annotation.
+ */
+public final class IdempotencyUtils {
+
+    private IdempotencyUtils() {
+    }
+
+    /**
+     * Configures the idempotency utility. Must be called before the first idempotent call, typically in the
+     * constructor or a static block of the handler.
+     *
+     * @param config           Idempotency configuration
+     * @param persistenceStore Store used to keep records of idempotent calls
+     */
+    public static void configure(final IdempotencyConfig config,
+                                 final BasePersistenceStore persistenceStore) {
+        IdempotencyHandler.configure(config, persistenceStore);
+    }
+
+    /**
+     * Registers the context of the current invocation. Records of calls in progress expire when the invocation times
+     * out, so that the payload can be processed again if the invocation could not remove the record, for instance
+     * because it ran out of time or memory. Handler methods annotated with {@link Idempotent} register it
+     * automatically, other handlers should call this method at the start of each invocation. Without a context,
+     * records in progress expire after 15 minutes, the maximum duration of an invocation.
+     *
+     * @param context Context of the current invocation
+     */
+    public static void registerLambdaContext(final Context context) {
+        IdempotencyHandler.registerLambdaContext(context);
+    }
+
+    /**
+     * Runs {@code function} at most once per idempotency key derived from {@code payload}, as long as the record of
+     * the previous run has not expired. Subsequent calls return the result of the first run, deserialized into
+     * {@code returnType}.
+     *
+     * <pre>
+     * Receipt receipt = IdempotencyUtils.idempotent(message, Receipt.class, () -&gt; charge(message));
+     * </pre>
+     *
+     * @param payload    Payload the idempotency key is derived from
+     * @param returnType Type of the result of {@code function}
+     * @param function   Function to run
+     * @return Result of {@code function}, or of its previous run for the same idempotency key
+     * @throws software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyAlreadyInProgressException
+     * if a call with the same idempotency key is in progress
+     */
+    public static <T> T idempotent(final Object payload,
+                                   final Class<T> returnType,
+                                   final Supplier<T> function) {
+        try {
+            return IdempotencyHandler.handle(payload, returnType, function::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
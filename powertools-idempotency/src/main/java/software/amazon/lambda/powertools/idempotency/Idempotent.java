@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link Idempotent} is used to make a method idempotent, meaning that calling it several times with the same
+ * payload only runs it once. Subsequent calls return the result of the first one.
+ *
+ * <p>
+ * The payload is the single argument of the annotated method, or the argument annotated with {@link IdempotencyKey}
+ * when the method takes several arguments. Idempotency key is derived from the part of the payload selected by
+ * {@link IdempotencyConfig.Builder#withEventKeyJMESPath(String)}.
+ * </p>
+ *
+ * <p>
+ * Persistence store must be configured via {@link IdempotencyUtils#configure(IdempotencyConfig,
+ * software.amazon.lambda.powertools.idempotency.persistence.BasePersistenceStore)} before the first call, typically
+ * in the constructor or a static block of the handler.
+ * </p>
+ *
+ * <pre>
+ * public class OrderHandler implements RequestHandler&lt;SQSEvent, String&gt; {
+ *
+ *     static {
+ *         IdempotencyUtils.configure(IdempotencyConfig.builder()
+ *                         .withEventKeyJMESPath("messageId")
+ *                         .build(),
+ *                 DynamoDBPersistenceStore.builder()
+ *                         .withTableName("idempotency")
+ *                         .build());
+ *     }
+ *
+ *     {@literal @}Idempotent
+ *     public String process(SQSMessage message) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * If the method throws, the in progress record is removed so the payload can be processed again. If a call with the
+ * same payload is already in progress, {@link software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyAlreadyInProgressException}
+ * is thrown.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Idempotent {
+}
@@ -0,0 +1,147 @@
+package software.amazon.lambda.powertools.idempotency.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Instant;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyAlreadyInProgressException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyConfigurationException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyPersistenceLayerException;
+import software.amazon.lambda.powertools.idempotency.persistence.BasePersistenceStore;
+import software.amazon.lambda.powertools.idempotency.persistence.DataRecord;
+
+import static java.lang.String.format;
+
+public final class IdempotencyHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyHandler.class);
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static IdempotencyConfig config;
+    private static BasePersistenceStore persistenceStore;
+    private static volatile Context lambdaContext;
+
+    private IdempotencyHandler() {
+    }
+
+    public static void configure(final IdempotencyConfig config,
+                                 final BasePersistenceStore persistenceStore) {
+        persistenceStore.configure(config, System.getenv("AWS_LAMBDA_FUNCTION_NAME"));
+        IdempotencyHandler.config = config;
+        IdempotencyHandler.persistenceStore = persistenceStore;
+    }
+
+    public static <T> T handle(final Object payload,
+                               final Type returnType,
+                               final Invocation<T> invocation) throws Throwable {
+        if (null == persistenceStore) {
+            throw new IdempotencyConfigurationException("Idempotency is not configured, " +
+                    "call IdempotencyUtils.configure() before using it");
+        }
+
+        ObjectMapper mapper = config.getObjectMapper();
+        JavaType resultType = mapper.constructType(returnType);
+        String idempotencyKey = persistenceStore.idempotencyKey(mapper.<JsonNode>valueToTree(payload));
+
+        if (null == idempotencyKey) {
+            LOG.warn("No idempotency key found with JMESPath {}, running without idempotency",
+                    config.getEventKeyJMESPath());
+            return invocation.proceed();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                persistenceStore.saveInProgress(idempotencyKey, Instant.now(), remainingTimeInMillis());
+                break;
+            } catch (IdempotencyItemAlreadyExistsException e) {
+                try {
+                    return previousResult(persistenceStore.fetchRecord(idempotencyKey, Instant.now()), mapper, resultType);
+                } catch (IdempotencyItemNotFoundException notFound) {
+                    // Record was removed or expired in between, try to take it over
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw new IdempotencyPersistenceLayerException(
+                                "Unable to save in progress record for " + idempotencyKey, notFound);
+                    }
+                }
+            }
+        }
+
+        T result;
+
+        try {
+            result = invocation.proceed();
+        } catch (Throwable t) {
+            removeRecordQuietly(idempotencyKey);
+            throw t;
+        }
+
+        persistenceStore.saveSuccess(idempotencyKey, serialize(mapper, result), Instant.now());
+        return result;
+    }
+
+    private static <T> T previousResult(final DataRecord record,
+                                        final ObjectMapper mapper,
+                                        final JavaType returnType) {
+        if (record.getStatus() == DataRecord.Status.INPROGRESS) {
+            throw new IdempotencyAlreadyInProgressException(
+                    format("Execution already in progress with idempotency key %s", record.getIdempotencyKey()));
+        }
+
+        if (null == record.getResponseData()) {
+            return null;
+        }
+
+        try {
+            return mapper.readValue(record.getResponseData(), returnType);
+        } catch (IOException e) {
+            throw new IdempotencyPersistenceLayerException(
+                    "Unable to deserialize stored result for " + record.getIdempotencyKey(), e);
+        }
+    }
+
+    private static String serialize(final ObjectMapper mapper, final Object result) {
+        try {
+            return null == result ? null : mapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IdempotencyPersistenceLayerException("Unable to serialize result", e);
+        }
+    }
+
+    private static void removeRecordQuietly(final String idempotencyKey) {
+        try {
+            persistenceStore.removeRecord(idempotencyKey);
+        } catch (RuntimeException e) {
+            LOG.error("Failed removing in progress record " + idempotencyKey + ", it is kept until it expires", e);
+        }
+    }
+
+    /**
+     * Registers the context of the current invocation, so that records in progress expire when it times out.
+     */
+    public static void registerLambdaContext(final Context context) {
+        lambdaContext = context;
+    }
+
+    private static long remainingTimeInMillis() {
+        Context context = lambdaContext;
+        return null != context ? context.getRemainingTimeInMillis() : 0;
+    }
+
+    public static IdempotencyConfig config() {
+        return config;
+    }
+
+    @FunctionalInterface
+    public interface Invocation<T> {
+        T proceed() throws Throwable;
+    }
+}
@@ -0,0 +1,57 @@
+package software.amazon.lambda.powertools.idempotency.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import software.amazon.lambda.powertools.idempotency.IdempotencyKey;
+import software.amazon.lambda.powertools.idempotency.Idempotent;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyConfigurationException;
+
+import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.extractContext;
+import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.isHandlerMethod;
+import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.placedOnRequestHandler;
+
+@Aspect
+public class IdempotentAspect {
+
+    @SuppressWarnings({"EmptyMethod"})
+    @Pointcut("@annotation(idempotent)")
+    public void callAt(Idempotent idempotent) {
+    }
+
+    @Around(value = "callAt(idempotent) && execution(@Idempotent * *.*(..))", argNames = "pjp,idempotent")
+    public Object around(ProceedingJoinPoint pjp,
+                         Idempotent idempotent) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+
+        extractContext(pjp).ifPresent(IdempotencyHandler::registerLambdaContext);
+
+        return IdempotencyHandler.handle(payload(pjp, method), method.getGenericReturnType(), pjp::proceed);
+    }
+
+    private static Object payload(final ProceedingJoinPoint pjp, final Method method) {
+        Object[] args = pjp.getArgs();
+
+        if (args.length == 1 || (isHandlerMethod(pjp) && placedOnRequestHandler(pjp))) {
+            return args[0];
+        }
+
+        Annotation[][] annotations = method.getParameterAnnotations();
+
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof IdempotencyKey) {
+                    return args[i];
+                }
+            }
+        }
+
+        throw new IdempotencyConfigurationException("Method " + method + " annotated with @Idempotent must take a " +
+                "single argument or annotate one of them with @IdempotencyKey");
+    }
+}
@@ -0,0 +1,23 @@
+package software.amazon.lambda.powertools.idempotency.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded map evicting least recently accessed entries. Not thread safe.
+ */
+public final class LRUCache<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    public LRUCache(int maxSize) {
+        super(16, 0.75f, true);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+    }
+}
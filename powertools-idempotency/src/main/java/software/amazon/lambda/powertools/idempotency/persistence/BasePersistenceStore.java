@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.burt.jmespath.Expression;
+import io.burt.jmespath.jackson.JacksonRuntime;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyKeyException;
+import software.amazon.lambda.powertools.idempotency.internal.LRUCache;
+
+import static java.util.Collections.synchronizedMap;
+
+/**
+ * <p>
+ * Base class for persistence stores of the idempotency utility. It takes care of computing idempotency keys and of
+ * the local cache of completed records. Implementations only have to read and write {@link DataRecord}s.
+ * </p>
+ *
+ * <p>
+ * {@link BasePersistenceStore#putRecord(DataRecord, Instant)} must be atomic: it must fail with
+ * {@link IdempotencyItemAlreadyExistsException} when a record with the same key exists and has not expired, as per
+ * {@link DataRecord#isExpired(Instant)}.
+ * </p>
+ */
+public abstract class BasePersistenceStore {
+    private static final JacksonRuntime JMESPATH = new JacksonRuntime();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Duration MAX_INVOCATION_DURATION = Duration.ofMinutes(15);
+
+    private String functionName = "";
+    private IdempotencyConfig config = IdempotencyConfig.builder().build();
+    private Expression<JsonNode> eventKeyExpression;
+    private Map<String, DataRecord> cache;
+
+    /**
+     * Called by the idempotency utility when it is configured with this store.
+     *
+     * @param config       idempotency configuration
+     * @param functionName name of the lambda function, used as prefix of idempotency keys
+     */
+    public void configure(final IdempotencyConfig config, final String functionName) {
+        this.config = config;
+        this.functionName = null != functionName ? functionName : "";
+        this.eventKeyExpression = null != config.getEventKeyJMESPath() ?
+                JMESPATH.compile(config.getEventKeyJMESPath()) : null;
+        this.cache = config.getLocalCacheMaxItems() > 0 ?
+                synchronizedMap(new LRUCache<>(config.getLocalCacheMaxItems())) : null;
+    }
+
+    /**
+     * @param payload payload of the idempotent call
+     * @return hashed idempotency key, or null if the key resolves to null and it is allowed by configuration
+     * @throws IdempotencyKeyException if the key resolves to null and {@link IdempotencyConfig#throwOnNoIdempotencyKey()}
+     */
+    public String idempotencyKey(final JsonNode payload) {
+        JsonNode node = null != eventKeyExpression && null != payload ? eventKeyExpression.search(payload) : payload;
+
+        if (isMissing(node)) {
+            if (config.throwOnNoIdempotencyKey()) {
+                throw new IdempotencyKeyException("No data found to create a hashed idempotency key with JMESPath "
+                        + config.getEventKeyJMESPath());
+            }
+            return null;
+        }
+
+        return functionName + "#" + hash(node);
+    }
+
+    /**
+     * Saves a record with status {@link DataRecord.Status#INPROGRESS}, valid for at most the maximum duration of a
+     * lambda invocation.
+     *
+     * @throws IdempotencyItemAlreadyExistsException if a valid record already exists for the key
+     */
+    public void saveInProgress(final String idempotencyKey, final Instant now) {
+        saveInProgress(idempotencyKey, now, 0);
+    }
+
+    /**
+     * Saves a record with status {@link DataRecord.Status#INPROGRESS}, valid until the invocation times out. Once it
+     * has, the record can be taken over by another invocation, in case the one that wrote it could not remove it.
+     *
+     * @param remainingTimeInMillis remaining time of the invocation, 0 or less if unknown
+     * @throws IdempotencyItemAlreadyExistsException if a valid record already exists for the key
+     */
+    public void saveInProgress(final String idempotencyKey, final Instant now, final long remainingTimeInMillis) {
+        DataRecord cached = cached(idempotencyKey, now);
+
+        if (null != cached) {
+            throw new IdempotencyItemAlreadyExistsException("Record found in local cache for " + idempotencyKey);
+        }
+
+        long inProgressMillis = remainingTimeInMillis > 0 ? remainingTimeInMillis :
+                Math.min(MAX_INVOCATION_DURATION.toMillis(), config.getExpiration().toMillis());
+
+        putRecord(new DataRecord(idempotencyKey, DataRecord.Status.INPROGRESS, expiry(now), null,
+                now.toEpochMilli() + inProgressMillis), now);
+    }
+
+    /**
+     * Updates a record to status {@link DataRecord.Status#COMPLETED} with the result of the call.
+     */
+    public void saveSuccess(final String idempotencyKey, final String responseData, final Instant now) {
+        DataRecord record = new DataRecord(idempotencyKey, DataRecord.Status.COMPLETED, expiry(now), responseData);
+
+        updateRecord(record);
+        cache(record);
+    }
+
+    /**
+     * @return valid record for the key, from local cache if present
+     * @throws IdempotencyItemNotFoundException if no valid record exists
+     */
+    public DataRecord fetchRecord(final String idempotencyKey, final Instant now) {
+        DataRecord cached = cached(idempotencyKey, now);
+
+        if (null != cached) {
+            return cached;
+        }
+
+        DataRecord record = getRecord(idempotencyKey);
+
+        if (record.isExpired(now)) {
+            throw new IdempotencyItemNotFoundException("Record expired for " + idempotencyKey);
+        }
+
+        cache(record);
+        return record;
+    }
+
+    /**
+     * Removes the record, so that the same payload can be processed again.
+     */
+    public void removeRecord(final String idempotencyKey) {
+        if (null != cache) {
+            cache.remove(idempotencyKey);
+        }
+
+        deleteRecord(idempotencyKey);
+    }
+
+    /**
+     * @throws IdempotencyItemNotFoundException if no record exists for the key
+     */
+    protected abstract DataRecord getRecord(String idempotencyKey);
+
+    /**
+     * Stores the record unless a record with the same key exists and has not expired at {@code now}, including
+     * {@link DataRecord.Status#INPROGRESS} records past their {@link DataRecord#getInProgressExpiryTimestamp()}.
+     *
+     * @throws IdempotencyItemAlreadyExistsException if a valid record exists for the key
+     */
+    protected abstract void putRecord(DataRecord record, Instant now);
+
+    protected abstract void updateRecord(DataRecord record);
+
+    protected abstract void deleteRecord(String idempotencyKey);
+
+    private DataRecord cached(final String idempotencyKey, final Instant now) {
+        if (null == cache) {
+            return null;
+        }
+
+        DataRecord record = cache.get(idempotencyKey);
+
+        if (null != record && record.isExpired(now)) {
+            cache.remove(idempotencyKey);
+            return null;
+        }
+
+        return record;
+    }
+
+    private void cache(final DataRecord record) {
+        if (null != cache && record.getStatus() == DataRecord.Status.COMPLETED) {
+            cache.put(record.getIdempotencyKey(), record);
+        }
+    }
+
+    private long expiry(final Instant now) {
+        return now.plus(config.getExpiration()).getEpochSecond();
+    }
+
+    private static boolean isMissing(final JsonNode node) {
+        return null == node || node.isNull() || node.isMissingNode()
+                || (node.isContainerNode() && node.size() > 0 && allNull(node));
+    }
+
+    private static boolean allNull(final JsonNode node) {
+        for (JsonNode child : node) {
+            if (!child.isNull()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String hash(final JsonNode node) {
+        try {
+            ObjectMapper mapper = config.getObjectMapper();
+            String value = node.isTextual() ? node.textValue() : mapper.writeValueAsString(node);
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IdempotencyKeyException("Unable to compute hashed idempotency key", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Record of an idempotent call, as kept in a {@link BasePersistenceStore}.
+ */
+public final class DataRecord {
+    private final String idempotencyKey;
+    private final Status status;
+    private final long expiryTimestamp;
+    private final String responseData;
+    private final long inProgressExpiryTimestamp;
+
+    /**
+     * @param idempotencyKey  hashed idempotency key
+     * @param status          status of the call
+     * @param expiryTimestamp epoch second after which the record is no longer valid
+     * @param responseData    result of the call serialized as JSON, null while in progress
+     */
+    public DataRecord(String idempotencyKey, Status status, long expiryTimestamp, String responseData) {
+        this(idempotencyKey, status, expiryTimestamp, responseData, 0);
+    }
+
+    /**
+     * @param idempotencyKey            hashed idempotency key
+     * @param status                    status of the call
+     * @param expiryTimestamp           epoch second after which the record is no longer valid
+     * @param responseData              result of the call serialized as JSON, null while in progress
+     * @param inProgressExpiryTimestamp epoch millisecond after which an {@link Status#INPROGRESS} record is no longer
+     *                                  valid, because the invocation that wrote it can no longer be running. 0 if unknown
+     */
+    public DataRecord(String idempotencyKey, Status status, long expiryTimestamp, String responseData,
+                      long inProgressExpiryTimestamp) {
+        this.idempotencyKey = idempotencyKey;
+        this.status = status;
+        this.expiryTimestamp = expiryTimestamp;
+        this.responseData = responseData;
+        this.inProgressExpiryTimestamp = inProgressExpiryTimestamp;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getExpiryTimestamp() {
+        return expiryTimestamp;
+    }
+
+    public String getResponseData() {
+        return responseData;
+    }
+
+    public long getInProgressExpiryTimestamp() {
+        return inProgressExpiryTimestamp;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiryTimestamp < now.getEpochSecond()
+                || (status == Status.INPROGRESS && inProgressExpiryTimestamp > 0
+                && inProgressExpiryTimestamp < now.toEpochMilli());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DataRecord that = (DataRecord) o;
+        return expiryTimestamp == that.expiryTimestamp
+                && inProgressExpiryTimestamp == that.inProgressExpiryTimestamp
+                && idempotencyKey.equals(that.idempotencyKey)
+                && status == that.status
+                && Objects.equals(responseData, that.responseData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idempotencyKey, status, expiryTimestamp, responseData, inProgressExpiryTimestamp);
+    }
+
+    public enum Status {
+        INPROGRESS,
+        COMPLETED
+    }
+}
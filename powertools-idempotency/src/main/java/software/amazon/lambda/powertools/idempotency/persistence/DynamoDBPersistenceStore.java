@@ -0,0 +1,241 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyPersistenceLayerException;
+
+import static java.util.Collections.singletonMap;
+
+/**
+ * <p>
+ * Persistence store backed by a DynamoDB table. The table needs a string partition key, named {@code id} by default.
+ * Enable time to live on the expiry attribute, named {@code expiration} by default, to have expired records removed.
+ * </p>
+ *
+ * <pre>
+ * DynamoDBPersistenceStore store = DynamoDBPersistenceStore.builder()
+ *         .withTableName("idempotency")
+ *         .build();
+ * </pre>
+ *
+ * <p>
+ * Lambda function requires {@code dynamodb:GetItem}, {@code dynamodb:PutItem}, {@code dynamodb:UpdateItem} and
+ * {@code dynamodb:DeleteItem} permissions on the table.
+ * </p>
+ */
+public class DynamoDBPersistenceStore extends BasePersistenceStore {
+    private final String tableName;
+    private final String keyAttr;
+    private final String expiryAttr;
+    private final String statusAttr;
+    private final String dataAttr;
+    private final String inProgressExpiryAttr;
+    private final DynamoDbClient client;
+
+    private DynamoDBPersistenceStore(final Builder builder) {
+        if (null == builder.tableName || builder.tableName.isEmpty()) {
+            throw new IllegalArgumentException("Table name is required");
+        }
+
+        this.tableName = builder.tableName;
+        this.keyAttr = builder.keyAttr;
+        this.expiryAttr = builder.expiryAttr;
+        this.statusAttr = builder.statusAttr;
+        this.dataAttr = builder.dataAttr;
+        this.inProgressExpiryAttr = builder.inProgressExpiryAttr;
+        this.client = null != builder.client ? builder.client : DynamoDbClient.create();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    protected DataRecord getRecord(final String idempotencyKey) {
+        GetItemResponse response = call(() -> client.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(key(idempotencyKey))
+                .consistentRead(true)
+                .build()));
+
+        if (!response.hasItem() || response.item().isEmpty()) {
+            throw new IdempotencyItemNotFoundException("No record found for " + idempotencyKey);
+        }
+
+        Map<String, AttributeValue> item = response.item();
+        AttributeValue data = item.get(dataAttr);
+        AttributeValue inProgressExpiry = item.get(inProgressExpiryAttr);
+
+        return new DataRecord(item.get(keyAttr).s(),
+                DataRecord.Status.valueOf(item.get(statusAttr).s()),
+                Long.parseLong(item.get(expiryAttr).n()),
+                null != data ? data.s() : null,
+                null != inProgressExpiry && null != inProgressExpiry.n() ? Long.parseLong(inProgressExpiry.n()) : 0);
+    }
+
+    @Override
+    protected void putRecord(final DataRecord record, final Instant now) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#id", keyAttr);
+        names.put("#expiry", expiryAttr);
+        names.put("#status", statusAttr);
+        names.put("#in_progress_expiry", inProgressExpiryAttr);
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":now", number(now.getEpochSecond()));
+        values.put(":now_in_millis", number(now.toEpochMilli()));
+        values.put(":inprogress", AttributeValue.builder().s(DataRecord.Status.INPROGRESS.name()).build());
+
+        try {
+            client.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(item(record))
+                    .conditionExpression("attribute_not_exists(#id) OR #expiry < :now OR " +
+                            "(#status = :inprogress AND #in_progress_expiry < :now_in_millis)")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            throw new IdempotencyItemAlreadyExistsException("Record already exists for " + record.getIdempotencyKey(), e);
+        } catch (SdkException e) {
+            throw new IdempotencyPersistenceLayerException("Failed saving record for " + record.getIdempotencyKey(), e);
+        }
+    }
+
+    @Override
+    protected void updateRecord(final DataRecord record) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#expiry", expiryAttr);
+        names.put("#status", statusAttr);
+        names.put("#data", dataAttr);
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":expiry", number(record.getExpiryTimestamp()));
+        values.put(":status", AttributeValue.builder().s(record.getStatus().name()).build());
+        values.put(":data", null != record.getResponseData() ?
+                AttributeValue.builder().s(record.getResponseData()).build() :
+                AttributeValue.builder().nul(true).build());
+
+        call(() -> client.updateItem(UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key(record.getIdempotencyKey()))
+                .updateExpression("SET #expiry = :expiry, #status = :status, #data = :data")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build()));
+    }
+
+    @Override
+    protected void deleteRecord(final String idempotencyKey) {
+        call(() -> client.deleteItem(DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(key(idempotencyKey))
+                .build()));
+    }
+
+    private Map<String, AttributeValue> key(final String idempotencyKey) {
+        return singletonMap(keyAttr, AttributeValue.builder().s(idempotencyKey).build());
+    }
+
+    private Map<String, AttributeValue> item(final DataRecord record) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(keyAttr, AttributeValue.builder().s(record.getIdempotencyKey()).build());
+        item.put(expiryAttr, number(record.getExpiryTimestamp()));
+        item.put(statusAttr, AttributeValue.builder().s(record.getStatus().name()).build());
+        if (record.getInProgressExpiryTimestamp() > 0) {
+            item.put(inProgressExpiryAttr, number(record.getInProgressExpiryTimestamp()));
+        }
+        return item;
+    }
+
+    private static AttributeValue number(final long value) {
+        return AttributeValue.builder().n(String.valueOf(value)).build();
+    }
+
+    private static <T> T call(final Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (SdkException e) {
+            throw new IdempotencyPersistenceLayerException("Failed accessing DynamoDB persistence store", e);
+        }
+    }
+
+    public static final class Builder {
+        private String tableName;
+        private String keyAttr = "id";
+        private String expiryAttr = "expiration";
+        private String statusAttr = "status";
+        private String dataAttr = "data";
+        private String inProgressExpiryAttr = "in_progress_expiration";
+        private DynamoDbClient client;
+
+        private Builder() {
+        }
+
+        public Builder withTableName(final String tableName) {
+            this.tableName = tableName;
+            return this;
+        }
+
+        public Builder withKeyAttr(final String keyAttr) {
+            this.keyAttr = keyAttr;
+            return this;
+        }
+
+        public Builder withExpiryAttr(final String expiryAttr) {
+            this.expiryAttr = expiryAttr;
+            return this;
+        }
+
+        public Builder withStatusAttr(final String statusAttr) {
+            this.statusAttr = statusAttr;
+            return this;
+        }
+
+        public Builder withDataAttr(final String dataAttr) {
+            this.dataAttr = dataAttr;
+            return this;
+        }
+
+        public Builder withInProgressExpiryAttr(final String inProgressExpiryAttr) {
+            this.inProgressExpiryAttr = inProgressExpiryAttr;
+            return this;
+        }
+
+        public Builder withDynamoDbClient(final DynamoDbClient client) {
+            this.client = client;
+            return this;
+        }
+
+        public DynamoDBPersistenceStore build() {
+            return new DynamoDBPersistenceStore(this);
+        }
+    }
+}
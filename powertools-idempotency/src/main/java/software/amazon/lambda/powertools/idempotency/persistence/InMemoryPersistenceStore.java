@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+
+/**
+ * Persistence store keeping records in memory of the current execution environment. Records are neither shared
+ * between concurrent executions of a function nor kept across cold starts, so this store is meant for tests and
+ * local development.
+ */
+public class InMemoryPersistenceStore extends BasePersistenceStore {
+    private final Map<String, DataRecord> records = new ConcurrentHashMap<>();
+
+    @Override
+    protected DataRecord getRecord(final String idempotencyKey) {
+        DataRecord record = records.get(idempotencyKey);
+
+        if (null == record) {
+            throw new IdempotencyItemNotFoundException("No record found for " + idempotencyKey);
+        }
+
+        return record;
+    }
+
+    @Override
+    protected void putRecord(final DataRecord record, final Instant now) {
+        DataRecord stored = records.merge(record.getIdempotencyKey(), record,
+                (existing, candidate) -> existing.isExpired(now) ? candidate : existing);
+
+        if (stored != record) {
+            throw new IdempotencyItemAlreadyExistsException("Record already exists for " + record.getIdempotencyKey());
+        }
+    }
+
+    @Override
+    protected void updateRecord(final DataRecord record) {
+        records.put(record.getIdempotencyKey(), record);
+    }
+
+    @Override
+    protected void deleteRecord(final String idempotencyKey) {
+        records.remove(idempotencyKey);
+    }
+}
@@ -0,0 +1,30 @@
+package software.amazon.lambda.powertools.idempotency;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.lambda.powertools.idempotency.persistence.InMemoryPersistenceStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyUtilsTest {
+
+    @Test
+    void shouldRunFunctionOncePerPayload() {
+        IdempotencyUtils.configure(IdempotencyConfig.builder().build(), new InMemoryPersistenceStore());
+        AtomicInteger calls = new AtomicInteger();
+
+        Integer first = IdempotencyUtils.idempotent(Collections.singletonMap("order", "o1"), Integer.class,
+                calls::incrementAndGet);
+        Integer second = IdempotencyUtils.idempotent(Collections.singletonMap("order", "o1"), Integer.class,
+                calls::incrementAndGet);
+
+        assertThat(first)
+                .isEqualTo(second)
+                .isEqualTo(1);
+
+        assertThat(calls)
+                .hasValue(1);
+    }
+}
@@ -0,0 +1,39 @@
+package software.amazon.lambda.powertools.idempotency.handlers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import software.amazon.lambda.powertools.idempotency.IdempotencyKey;
+import software.amazon.lambda.powertools.idempotency.Idempotent;
+
+public class IdempotentOrderService {
+    public final AtomicInteger calls = new AtomicInteger();
+
+    @Idempotent
+    public Receipt process(SQSMessage message) {
+        calls.incrementAndGet();
+
+        if ("fail".equals(message.getBody())) {
+            throw new IllegalStateException("Failed processing");
+        }
+
+        return new Receipt(message.getBody() + "-" + calls.get());
+    }
+
+    @Idempotent
+    public String processWithKey(String customer, @IdempotencyKey SQSMessage message) {
+        calls.incrementAndGet();
+        return customer + ":" + message.getBody();
+    }
+
+    public static class Receipt {
+        public String id;
+
+        public Receipt() {
+        }
+
+        public Receipt(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package software.amazon.lambda.powertools.idempotency.internal;
+
+import java.time.Instant;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.IdempotencyUtils;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyAlreadyInProgressException;
+import software.amazon.lambda.powertools.idempotency.handlers.IdempotentOrderService;
+import software.amazon.lambda.powertools.idempotency.handlers.IdempotentOrderService.Receipt;
+import software.amazon.lambda.powertools.idempotency.persistence.InMemoryPersistenceStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class IdempotentAspectTest {
+    private final InMemoryPersistenceStore store = new InMemoryPersistenceStore();
+    private final IdempotentOrderService service = new IdempotentOrderService();
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyUtils.configure(IdempotencyConfig.builder()
+                .withEventKeyJMESPath("messageId")
+                .build(), store);
+    }
+
+    @Test
+    void shouldRunOnceAndReturnStoredResultForSameKey() {
+        Receipt first = service.process(message("1", "order"));
+        Receipt second = service.process(message("1", "other body"));
+
+        assertThat(service.calls)
+                .hasValue(1);
+
+        assertThat(second.id)
+                .isEqualTo(first.id)
+                .isEqualTo("order-1");
+    }
+
+    @Test
+    void shouldRunForEachDistinctKey() {
+        service.process(message("1", "order"));
+        service.process(message("2", "order"));
+
+        assertThat(service.calls)
+                .hasValue(2);
+    }
+
+    @Test
+    void shouldRunAgainAfterFailure() {
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> service.process(message("1", "fail")));
+
+        assertThat(service.process(message("1", "order")).id)
+                .isEqualTo("order-2");
+    }
+
+    @Test
+    void shouldThrowWhenSameKeyIsInProgress() {
+        String key = store.idempotencyKey(IdempotencyConfig.builder().build().getObjectMapper()
+                .valueToTree(message("1", "order")));
+        store.saveInProgress(key, Instant.now());
+
+        assertThatExceptionOfType(IdempotencyAlreadyInProgressException.class)
+                .isThrownBy(() -> service.process(message("1", "order")));
+
+        assertThat(service.calls)
+                .hasValue(0);
+    }
+
+    @Test
+    void shouldTakeOverInProgressRecordOfCrashedInvocation() {
+        String key = store.idempotencyKey(IdempotencyConfig.builder().build().getObjectMapper()
+                .valueToTree(message("1", "order")));
+        // Invocation that timed out one minute ago without removing its record
+        store.saveInProgress(key, Instant.now().minusSeconds(61), 1000);
+
+        assertThat(service.process(message("1", "order")).id)
+                .isEqualTo("order-1");
+
+        assertThat(service.process(message("1", "order")).id)
+                .isEqualTo("order-1");
+
+        assertThat(service.calls)
+                .hasValue(1);
+    }
+
+    @Test
+    void shouldUseArgumentAnnotatedWithIdempotencyKey() {
+        service.processWithKey("alice", message("1", "order"));
+        String second = service.processWithKey("bob", message("1", "order"));
+
+        assertThat(second)
+                .isEqualTo("alice:order");
+
+        assertThat(service.calls)
+                .hasValue(1);
+    }
+
+    @Test
+    void shouldRunWithoutIdempotencyWhenKeyIsMissing() {
+        service.process(message(null, "order"));
+        service.process(message(null, "order"));
+
+        assertThat(service.calls)
+                .hasValue(2);
+    }
+
+    private static SQSMessage message(String messageId, String body) {
+        SQSMessage message = new SQSMessage();
+        message.setMessageId(messageId);
+        message.setBody(body);
+        return message;
+    }
+}
@@ -0,0 +1,140 @@
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyKeyException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class BasePersistenceStoreTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CountingPersistenceStore store = new CountingPersistenceStore();
+
+    @Test
+    void shouldHashSelectedPartOfPayload() throws Exception {
+        store.configure(IdempotencyConfig.builder().withEventKeyJMESPath("[user, order]").build(), "my-function");
+
+        String key = store.idempotencyKey(json("{\"user\":\"u1\",\"order\":\"o1\",\"timestamp\":1}"));
+
+        assertThat(key)
+                .startsWith("my-function#")
+                .isEqualTo(store.idempotencyKey(json("{\"user\":\"u1\",\"order\":\"o1\",\"timestamp\":2}")))
+                .isNotEqualTo(store.idempotencyKey(json("{\"user\":\"u1\",\"order\":\"o2\",\"timestamp\":1}")));
+    }
+
+    @Test
+    void shouldReturnNullOrThrowWhenKeyIsMissing() throws Exception {
+        store.configure(IdempotencyConfig.builder().withEventKeyJMESPath("order").build(), "my-function");
+
+        assertThat(store.idempotencyKey(json("{\"user\":\"u1\"}")))
+                .isNull();
+
+        store.configure(IdempotencyConfig.builder()
+                .withEventKeyJMESPath("order")
+                .withThrowOnNoIdempotencyKey(true)
+                .build(), "my-function");
+
+        assertThatExceptionOfType(IdempotencyKeyException.class)
+                .isThrownBy(() -> store.idempotencyKey(json("{\"user\":\"u1\"}")));
+    }
+
+    @Test
+    void shouldServeCompletedRecordsFromLocalCache() {
+        store.configure(IdempotencyConfig.builder().build(), "my-function");
+        Instant now = Instant.now();
+
+        store.saveInProgress("key", now);
+        store.saveSuccess("key", "\"result\"", now);
+
+        assertThatExceptionOfType(IdempotencyItemAlreadyExistsException.class)
+                .isThrownBy(() -> store.saveInProgress("key", now));
+
+        assertThat(store.fetchRecord("key", now).getResponseData())
+                .isEqualTo("\"result\"");
+
+        assertThat(store.puts)
+                .isEqualTo(1);
+
+        assertThat(store.gets)
+                .isZero();
+    }
+
+    @Test
+    void shouldReadFromStoreWhenLocalCacheIsDisabled() {
+        store.configure(IdempotencyConfig.builder().withLocalCacheMaxItems(0).build(), "my-function");
+        Instant now = Instant.now();
+
+        store.saveInProgress("key", now);
+        store.saveSuccess("key", "\"result\"", now);
+
+        assertThat(store.fetchRecord("key", now).getStatus())
+                .isEqualTo(DataRecord.Status.COMPLETED);
+
+        assertThat(store.gets)
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldTreatExpiredRecordsAsMissing() {
+        store.configure(IdempotencyConfig.builder().withExpiration(Duration.ofSeconds(10)).build(), "my-function");
+        Instant now = Instant.now();
+
+        store.saveInProgress("key", now);
+        store.saveSuccess("key", "\"result\"", now);
+
+        Instant later = now.plusSeconds(60);
+
+        assertThatExceptionOfType(IdempotencyItemNotFoundException.class)
+                .isThrownBy(() -> store.fetchRecord("key", later));
+
+        store.saveInProgress("key", later);
+
+        assertThat(store.puts)
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldExpireInProgressRecordsWhenInvocationTimesOut() {
+        Instant now = Instant.now();
+
+        store.saveInProgress("key", now, 5_000);
+
+        assertThatExceptionOfType(IdempotencyItemAlreadyExistsException.class)
+                .isThrownBy(() -> store.saveInProgress("key", now.plusSeconds(1), 5_000));
+
+        store.saveInProgress("key", now.plusSeconds(6), 5_000);
+
+        assertThat(store.puts)
+                .isEqualTo(3);
+    }
+
+    private static JsonNode json(String value) throws Exception {
+        return MAPPER.readTree(value);
+    }
+
+    private static class CountingPersistenceStore extends InMemoryPersistenceStore {
+        private int gets;
+        private int puts;
+
+        @Override
+        protected DataRecord getRecord(String idempotencyKey) {
+            gets++;
+            return super.getRecord(idempotencyKey);
+        }
+
+        @Override
+        protected void putRecord(DataRecord record, Instant now) {
+            puts++;
+            super.putRecord(record, now);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package software.amazon.lambda.powertools.idempotency.persistence;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemAlreadyExistsException;
+import software.amazon.lambda.powertools.idempotency.exceptions.IdempotencyItemNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DynamoDBPersistenceStoreTest {
+    private final DynamoDbClient client = mock(DynamoDbClient.class);
+    private DynamoDBPersistenceStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = DynamoDBPersistenceStore.builder()
+                .withTableName("idempotency")
+                .withDynamoDbClient(client)
+                .build();
+        store.configure(IdempotencyConfig.builder().withLocalCacheMaxItems(0).build(), "my-function");
+    }
+
+    @Test
+    void shouldPutInProgressRecordConditionally() {
+        Instant now = Instant.ofEpochSecond(1000);
+
+        store.saveInProgress("key", now, 30_000);
+
+        ArgumentCaptor<PutItemRequest> captor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(client).putItem(captor.capture());
+
+        assertThat(captor.getValue().tableName())
+                .isEqualTo("idempotency");
+        assertThat(captor.getValue().conditionExpression())
+                .isEqualTo("attribute_not_exists(#id) OR #expiry < :now OR " +
+                        "(#status = :inprogress AND #in_progress_expiry < :now_in_millis)");
+        assertThat(captor.getValue().item())
+                .containsEntry("id", AttributeValue.builder().s("key").build())
+                .containsEntry("status", AttributeValue.builder().s("INPROGRESS").build())
+                .containsEntry("expiration", AttributeValue.builder().n("4600").build())
+                .containsEntry("in_progress_expiration", AttributeValue.builder().n("1030000").build());
+        assertThat(captor.getValue().expressionAttributeValues())
+                .containsEntry(":now", AttributeValue.builder().n("1000").build())
+                .containsEntry(":now_in_millis", AttributeValue.builder().n("1000000").build())
+                .containsEntry(":inprogress", AttributeValue.builder().s("INPROGRESS").build());
+    }
+
+    @Test
+    void shouldFailWhenRecordAlreadyExists() {
+        when(client.putItem(any(PutItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("exists").build());
+
+        assertThatExceptionOfType(IdempotencyItemAlreadyExistsException.class)
+                .isThrownBy(() -> store.saveInProgress("key", Instant.now()));
+    }
+
+    @Test
+    void shouldReadCompletedRecord() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", AttributeValue.builder().s("key").build());
+        item.put("status", AttributeValue.builder().s("COMPLETED").build());
+        item.put("expiration", AttributeValue.builder().n("4600").build());
+        item.put("data", AttributeValue.builder().s("\"result\"").build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(item).build());
+
+        assertThat(store.fetchRecord("key", Instant.ofEpochSecond(1000)))
+                .isEqualTo(new DataRecord("key", DataRecord.Status.COMPLETED, 4600, "\"result\""));
+    }
+
+    @Test
+    void shouldFailWhenRecordIsMissing() {
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+
+        assertThatExceptionOfType(IdempotencyItemNotFoundException.class)
+                .isThrownBy(() -> store.fetchRecord("key", Instant.now()));
+    }
+
+    @Test
+    void shouldUpdateAndDeleteRecord() {
+        store.saveSuccess("key", "\"result\"", Instant.ofEpochSecond(1000));
+        store.removeRecord("key");
+
+        ArgumentCaptor<UpdateItemRequest> update = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(client).updateItem(update.capture());
+
+        assertThat(update.getValue().expressionAttributeValues())
+                .containsEntry(":status", AttributeValue.builder().s("COMPLETED").build())
+                .containsEntry(":data", AttributeValue.builder().s("\"result\"").build());
+
+        ArgumentCaptor<DeleteItemRequest> delete = ArgumentCaptor.forClass(DeleteItemRequest.class);
+        verify(client).deleteItem(delete.capture());
+
+        assertThat(delete.getValue().key())
+                .containsEntry("id", AttributeValue.builder().s("key").build());
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.logging.log4j.core.appender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.async.InternalAsyncUtil;
+import org.apache.logging.log4j.core.config.AppenderControl;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderFactory;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+import org.apache.logging.log4j.message.Message;
+import software.amazon.lambda.powertools.logging.StructuredArgument;
+
+/**
+ * <p>
+ * Hands log events over to a background thread through a bounded buffer, so that laying out and writing them is not
+ * paid by the handler. Events are passed to the referenced appenders in the order they were logged.
+ * </p>
+ *
+ * <p>
+ * The execution environment of a function is frozen as soon as the handler returns, along with the background thread.
+ * {@link #flushAll()} waits for all the buffered events to be written, and is called by
+ * {@link software.amazon.lambda.powertools.logging.Logging} at the end of each invocation. When the buffer is full,
+ * logging blocks until there is room for the event, so no event is lost.
+ * </p>
+ *
+ * <p>
+ * Messages are formatted, and the values of {@link StructuredArgument}s copied, by the logging thread, so that changes
+ * made to logged objects after the log statement do not show in the written event.
+ * </p>
+ *
+ * <p>
+ * Events are taken from the buffer and written under a single lock, by the background thread or by a thread flushing
+ * the buffer, so that they are never written concurrently or out of order.
+ * </p>
+ */
+@Plugin(name = "LambdaAsync", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class LambdaAsyncAppender extends AbstractAppender {
+    private static final Set<LambdaAsyncAppender> STARTED = new CopyOnWriteArraySet<>();
+    private static final long DISPATCH_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Configuration configuration;
+    private final AppenderRef[] appenderRefs;
+    private final BlockingQueue<LogEvent> queue;
+    private final boolean includeLocation;
+    private final long flushTimeoutMillis;
+    private final List<AppenderControl> appenders = new ArrayList<>();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+    private volatile long written;
+    private volatile boolean dispatching;
+    private volatile boolean idle;
+    private Thread dispatcher;
+
+    public static class Builder<B extends Builder<B>> extends AbstractAppender.Builder<B>
+            implements org.apache.logging.log4j.core.util.Builder<LambdaAsyncAppender> {
+
+        @PluginElement("AppenderRef")
+        @Required(message = "No appender references provided to LambdaAsync")
+        private AppenderRef[] appenderRefs;
+
+        @PluginBuilderAttribute
+        private int bufferSize = 1024;
+
+        @PluginBuilderAttribute
+        private boolean includeLocation;
+
+        @PluginBuilderAttribute
+        private long flushTimeoutMillis = 1000;
+
+        @Override
+        public LambdaAsyncAppender build() {
+            return new LambdaAsyncAppender(getName(), getFilter(), isIgnoreExceptions(), getPropertyArray(),
+                    getConfiguration(), appenderRefs, bufferSize, includeLocation, flushTimeoutMillis);
+        }
+
+        public B setAppenderRefs(final AppenderRef... appenderRefs) {
+            this.appenderRefs = appenderRefs;
+            return asBuilder();
+        }
+
+        public B setBufferSize(final int bufferSize) {
+            this.bufferSize = bufferSize;
+            return asBuilder();
+        }
+
+        public B setIncludeLocation(final boolean includeLocation) {
+            this.includeLocation = includeLocation;
+            return asBuilder();
+        }
+
+        public B setFlushTimeoutMillis(final long flushTimeoutMillis) {
+            this.flushTimeoutMillis = flushTimeoutMillis;
+            return asBuilder();
+        }
+    }
+
+    private LambdaAsyncAppender(final String name, final Filter filter, final boolean ignoreExceptions,
+                                final Property[] properties, final Configuration configuration,
+                                final AppenderRef[] appenderRefs, final int bufferSize,
+                                final boolean includeLocation, final long flushTimeoutMillis) {
+        super(name, filter, null, ignoreExceptions, properties);
+        this.configuration = configuration;
+        this.appenderRefs = appenderRefs;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.includeLocation = includeLocation;
+        this.flushTimeoutMillis = flushTimeoutMillis;
+    }
+
+    @PluginBuilderFactory
+    public static <B extends Builder<B>> B newBuilder() {
+        return new Builder<B>().asBuilder();
+    }
+
+    /**
+     * Waits for the events buffered by all started {@code LambdaAsync} appenders to be written.
+     */
+    public static void flushAll() {
+        for (LambdaAsyncAppender appender : STARTED) {
+            appender.flush();
+        }
+    }
+
+    @Override
+    public void start() {
+        for (AppenderRef ref : appenderRefs) {
+            Appender appender = configuration.getAppender(ref.getRef());
+
+            if (null != appender) {
+                appenders.add(new AppenderControl(appender, ref.getLevel(), ref.getFilter()));
+            } else {
+                LOGGER.error("No appender named {} was configured for LambdaAsync {}", ref.getRef(), getName());
+            }
+        }
+
+        dispatching = true;
+        dispatcher = new Thread(this::dispatch, "powertools-" + getName());
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        super.start();
+        STARTED.add(this);
+    }
+
+    @Override
+    public boolean stop(final long timeout, final TimeUnit timeUnit) {
+        setStopping();
+        STARTED.remove(this);
+        super.stop(timeout, timeUnit, false);
+
+        dispatching = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(timeUnit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writeBuffered();
+        setStopped();
+        return true;
+    }
+
+    @Override
+    public boolean requiresLocation() {
+        return includeLocation;
+    }
+
+    @Override
+    public void append(final LogEvent event) {
+        if (includeLocation) {
+            event.getSource();
+        }
+
+        LogEvent immutable = event.toImmutable();
+        freeze(immutable.getMessage());
+
+        try {
+            queue.put(immutable);
+            enqueued.incrementAndGet();
+
+            if (idle) {
+                LockSupport.unpark(dispatcher);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            synchronized (writeLock) {
+                writeBuffered();
+                callAppenders(immutable);
+            }
+        }
+    }
+
+    private static void freeze(final Message message) {
+        InternalAsyncUtil.makeMessageImmutable(message);
+        Object[] parameters = null != message ? message.getParameters() : null;
+
+        if (null != parameters) {
+            for (Object parameter : parameters) {
+                if (parameter instanceof StructuredArgument) {
+                    ((StructuredArgument) parameter).freeze();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the events buffered so far to be written. Events still buffered once {@code flushTimeoutMillis} has
+     * elapsed are written by the calling thread, after the batch the background thread is writing, if any.
+     */
+    public void flush() {
+        long target = enqueued.get();
+
+        if (written >= target) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + flushTimeoutMillis;
+
+        synchronized (lock) {
+            long remaining = flushTimeoutMillis;
+
+            while (written < target && remaining > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        if (written < target) {
+            writeBuffered();
+        }
+    }
+
+    /**
+     * Writes the buffered events in batches. Events are only taken from the buffer while holding the write lock, so
+     * that a flushing thread never writes events logged after the batch being written by the background thread.
+     */
+    private void dispatch() {
+        List<LogEvent> batch = new ArrayList<>();
+
+        while (dispatching) {
+            synchronized (writeLock) {
+                if (queue.drainTo(batch) > 0) {
+                    write(batch);
+                    continue;
+                }
+            }
+
+            idle = true;
+            if (queue.isEmpty() && dispatching) {
+                LockSupport.parkNanos(this, DISPATCH_POLL_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    private void writeBuffered() {
+        synchronized (writeLock) {
+            List<LogEvent> batch = new ArrayList<>(queue.size());
+            queue.drainTo(batch);
+            write(batch);
+        }
+    }
+
+    private void write(final List<LogEvent> batch) {
+        for (LogEvent event : batch) {
+            callAppenders(event);
+        }
+
+        synchronized (lock) {
+            written += batch.size();
+            lock.notifyAll();
+        }
+
+        batch.clear();
+    }
+
+    private void callAppenders(final LogEvent event) {
+        for (AppenderControl appender : appenders) {
+            try {
+                appender.callAppender(event);
+            } catch (Exception e) {
+                error("Failed to write event to appender " + appender.getAppenderName(), event, e);
+            }
+        }
+    }
+}
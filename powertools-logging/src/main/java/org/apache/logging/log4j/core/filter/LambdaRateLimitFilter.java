@@ -0,0 +1,318 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.logging.log4j.core.filter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.config.Node;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderFactory;
+import org.apache.logging.log4j.message.Message;
+
+/**
+ * <p>
+ * Limits the number of log entries per message template, such as {@code "Failed to process order {}"}, to
+ * {@code maxPerInterval} every {@code intervalMillis}. Further entries are dropped and counted, and a summary entry
+ * with the count is logged with the same logger and level once the interval has elapsed, when the template is logged
+ * again or at the end of the invocation.
+ * </p>
+ *
+ * <p>
+ * At most {@code maxTemplates} templates are tracked, entries of other templates are not limited. Templates not
+ * logged since the previous end of invocation stop being tracked at the end of the next one, so that templates only
+ * logged once, such as messages built by concatenation, do not use up that limit. Summary entries are never limited.
+ * </p>
+ */
+@Plugin(name = "LambdaRateLimitFilter", category = Node.CATEGORY, elementType = Filter.ELEMENT_TYPE, printObject = true)
+public final class LambdaRateLimitFilter extends AbstractFilter {
+    static final String SUMMARY = "Suppressed {} repeated log entries in the last {} ms: {}";
+    private static final Set<LambdaRateLimitFilter> STARTED = new CopyOnWriteArraySet<>();
+
+    private final int maxPerInterval;
+    private final long intervalMillis;
+    private final int maxTemplates;
+    private final LongSupplier clock;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public static class Builder<B extends Builder<B>> extends AbstractFilterBuilder<B>
+            implements org.apache.logging.log4j.core.util.Builder<LambdaRateLimitFilter> {
+
+        @PluginBuilderAttribute
+        private int maxPerInterval = 10;
+
+        @PluginBuilderAttribute
+        private long intervalMillis = 60_000;
+
+        @PluginBuilderAttribute
+        private int maxTemplates = 1000;
+
+        @Override
+        public LambdaRateLimitFilter build() {
+            return new LambdaRateLimitFilter(getOnMatch(), getOnMismatch(), maxPerInterval, intervalMillis,
+                    maxTemplates, System::currentTimeMillis);
+        }
+
+        public B setMaxPerInterval(final int maxPerInterval) {
+            this.maxPerInterval = maxPerInterval;
+            return asBuilder();
+        }
+
+        public B setIntervalMillis(final long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+            return asBuilder();
+        }
+
+        public B setMaxTemplates(final int maxTemplates) {
+            this.maxTemplates = maxTemplates;
+            return asBuilder();
+        }
+    }
+
+    LambdaRateLimitFilter(final Result onMatch, final Result onMismatch, final int maxPerInterval,
+                          final long intervalMillis, final int maxTemplates, final LongSupplier clock) {
+        super(onMatch, onMismatch);
+        this.maxPerInterval = maxPerInterval;
+        this.intervalMillis = intervalMillis;
+        this.maxTemplates = maxTemplates;
+        this.clock = clock;
+    }
+
+    @PluginBuilderFactory
+    public static <B extends Builder<B>> B newBuilder() {
+        return new Builder<B>().asBuilder();
+    }
+
+    /**
+     * Logs the summary of entries suppressed by all started {@code LambdaRateLimitFilter} filters.
+     */
+    public static void flushAll() {
+        for (LambdaRateLimitFilter filter : STARTED) {
+            filter.flush();
+        }
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        STARTED.add(this);
+    }
+
+    @Override
+    public void stop() {
+        STARTED.remove(this);
+        super.stop();
+    }
+
+    /**
+     * Logs the summary of entries suppressed so far, starts new intervals for all templates, and stops tracking
+     * templates not logged since the previous flush.
+     */
+    public void flush() {
+        long now = clock.getAsLong();
+
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+
+            if (window.isIdle()) {
+                windows.remove(entry.getKey(), window);
+            } else {
+                window.restartIfElapsed(entry.getKey(), now, 0);
+            }
+        }
+    }
+
+    @Override
+    public Result filter(final LogEvent event) {
+        return filter(event.getLoggerName(), event.getLevel(), template(event.getMessage()));
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final Message msg,
+                         final Throwable t) {
+        return filter(logger, level, template(msg));
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final Object msg,
+                         final Throwable t) {
+        return msg instanceof String ? filter(logger, level, (String) msg) : Result.NEUTRAL;
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object... params) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7, final Object p8) {
+        return filter(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7, final Object p8, final Object p9) {
+        return filter(logger, level, msg);
+    }
+
+    private Result filter(final Logger logger, final Level level, final String template) {
+        if (null == logger || null == logger.getLevel() || !level.isMoreSpecificThan(logger.getLevel())) {
+            // Not logged anyway, or asked via isEnabled without a message
+            return Result.NEUTRAL;
+        }
+
+        return filter(logger.getName(), level, template);
+    }
+
+    private Result filter(final String loggerName, final Level level, final String template) {
+        if (null == template || SUMMARY.equals(template)) {
+            // Summaries are logged through this filter too, and would otherwise share a single window
+            return Result.NEUTRAL;
+        }
+
+        Window window = windows.get(template);
+
+        if (null == window) {
+            if (windows.size() >= maxTemplates) {
+                return Result.NEUTRAL;
+            }
+            window = windows.computeIfAbsent(template, key -> new Window(loggerName, level, clock.getAsLong()));
+        }
+
+        window.restartIfElapsed(template, clock.getAsLong(), intervalMillis);
+
+        return window.tryAcquire(maxPerInterval) ? onMatch : onMismatch;
+    }
+
+    private static String template(final Message message) {
+        return null != message ? message.getFormat() : null;
+    }
+
+    private static final class Window {
+        private final String loggerName;
+        private final Level level;
+        private long start;
+        private int count;
+        private int suppressed;
+
+        private Window(final String loggerName, final Level level, final long start) {
+            this.loggerName = loggerName;
+            this.level = level;
+            this.start = start;
+        }
+
+        /**
+         * @return whether no entry was logged during the current interval
+         */
+        synchronized boolean isIdle() {
+            return count == 0 && suppressed == 0;
+        }
+
+        synchronized boolean tryAcquire(final int maxPerInterval) {
+            if (count < maxPerInterval) {
+                count++;
+                return true;
+            }
+
+            suppressed++;
+            return false;
+        }
+
+        /**
+         * Starts a new interval if the current one is at least {@code intervalMillis} old, and logs the number of
+         * entries suppressed during the previous one, outside of the lock.
+         */
+        void restartIfElapsed(final String template, final long now, final long intervalMillis) {
+            int previouslySuppressed;
+            long elapsed;
+
+            synchronized (this) {
+                elapsed = now - start;
+
+                if (elapsed < intervalMillis) {
+                    return;
+                }
+
+                previouslySuppressed = suppressed;
+                start = now;
+                count = 0;
+                suppressed = 0;
+            }
+
+            if (previouslySuppressed > 0) {
+                LogManager.getLogger(loggerName).log(level, SUMMARY, previouslySuppressed, elapsed, template);
+            }
+        }
+    }
+}
@@ -13,10 +13,17 @@
  */
 package org.apache.logging.log4j.core.layout;
 
-import com.fasterxml.jackson.annotation.JsonAnyGetter;
-import com.fasterxml.jackson.annotation.JsonGetter;
-import com.fasterxml.jackson.annotation.JsonRootName;
-import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.core.Layout;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.config.Configuration;
@@ -25,40 +32,91 @@ import org.apache.logging.log4j.core.config.Node;
 import org.apache.logging.log4j.core.config.plugins.Plugin;
 import org.apache.logging.log4j.core.config.plugins.PluginBuilderAttribute;
 import org.apache.logging.log4j.core.config.plugins.PluginBuilderFactory;
-import org.apache.logging.log4j.core.jackson.XmlConstants;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.impl.ThrowableProxy;
+import org.apache.logging.log4j.core.pattern.PlainTextRenderer;
 import org.apache.logging.log4j.core.util.KeyValuePair;
+import org.apache.logging.log4j.core.util.StringBuilderWriter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.message.ReusableObjectMessage;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.apache.logging.log4j.util.StringBuilders;
 import org.apache.logging.log4j.util.Strings;
+import org.apache.logging.log4j.util.TriConsumer;
+import software.amazon.lambda.powertools.logging.LoggingUtils;
+import software.amazon.lambda.powertools.logging.StructuredArgument;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+/**
+ * <p>
+ * Writes each log event as a single line JSON object, followed by all the keys of its context data, such as the
+ * lambda context fields and keys added via {@code LoggingUtils.appendKey}, and by the {@link StructuredArgument}s
+ * passed as parameters of the log statement, serialized as JSON.
+ * </p>
+ *
+ * <p>
+ * The layout is garbage free: JSON is written into a reusable {@link StringBuilder} and encoded straight into the
+ * appender's buffer, and the formatted timestamp is only rebuilt once per second.
+ * </p>
+ *
+ * <p>
+ * Unlike the Jackson based layout it replaces, it does not support the {@code complete}, {@code properties},
+ * {@code propertiesAsList} and {@code stacktraceAsString} attributes: each event is written on its own, context data
+ * is only written as top level keys, and thrown exceptions always have their {@code extendedStackTrace} written as a
+ * single string. The {@code sampled} context key set by {@code @Logging} on sampled invocations is not written.
+ * </p>
+ */
+@Plugin(name = "LambdaJsonLayout", category = Node.CATEGORY, elementType = Layout.ELEMENT_TYPE, printObject = true)
+public class LambdaJsonLayout extends AbstractStringLayout {
+    static final String CONTENT_TYPE = "application/json";
 
-import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+    // Only drives the debug log level of sampled invocations, and would otherwise be written on every entry of them
+    private static final String SAMPLED_KEY = "sampled";
 
-import static java.time.Instant.ofEpochMilli;
-import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+    private static final TriConsumer<String, Object, StringBuilder> WRITE_CONTEXT_DATA = (key, value, buffer) -> {
+        if (Strings.isNotBlank(key) && value != null && !SAMPLED_KEY.equals(key)) {
+            buffer.append(',');
+            appendString(buffer, key);
+            buffer.append(':');
+            appendString(buffer, value);
+        }
+    };
 
-@Plugin(name = "LambdaJsonLayout", category = Node.CATEGORY, elementType = Layout.ELEMENT_TYPE, printObject = true)
-public class LambdaJsonLayout extends AbstractJacksonLayout {
-    private static final String DEFAULT_FOOTER = "]";
+    private final boolean locationInfo;
+    private final boolean includeStacktrace;
+    private final boolean objectMessageAsJsonObject;
+    private final AdditionalField[] additionalFields;
+    private final String eol;
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter(ZoneId.systemDefault());
 
-    private static final String DEFAULT_HEADER = "[";
+    public static class Builder<B extends Builder<B>> extends AbstractStringLayout.Builder<B>
+            implements org.apache.logging.log4j.core.util.Builder<LambdaJsonLayout> {
 
-    static final String CONTENT_TYPE = "application/json";
+        @PluginBuilderAttribute
+        private boolean locationInfo;
 
-    public static class Builder<B extends Builder<B>> extends AbstractJacksonLayout.Builder<B>
-            implements org.apache.logging.log4j.core.util.Builder<LambdaJsonLayout> {
+        @PluginBuilderAttribute
+        private boolean eventEol;
 
         @PluginBuilderAttribute
-        private boolean propertiesAsList;
+        private boolean includeStacktrace = true;
 
         @PluginBuilderAttribute
         private boolean objectMessageAsJsonObject;
 
+        @PluginBuilderAttribute
+        private boolean includeNullDelimiter;
+
+        @PluginElement("AdditionalField")
+        private KeyValuePair[] additionalFields;
+
+        // Output is always compact, attribute is kept so existing configurations remain valid
+        @PluginBuilderAttribute
+        private boolean compact;
+
         public Builder() {
             super();
             setCharset(StandardCharsets.UTF_8);
@@ -66,25 +124,38 @@ public class LambdaJsonLayout extends AbstractJacksonLayout {
 
         @Override
         public LambdaJsonLayout build() {
-            final boolean encodeThreadContextAsList = isProperties() && propertiesAsList;
-            final String headerPattern = toStringOrNull(getHeader());
-            final String footerPattern = toStringOrNull(getFooter());
-            return new LambdaJsonLayout(getConfiguration(), isLocationInfo(), isProperties(), encodeThreadContextAsList,
-                    isComplete(), isCompact(), getEventEol(), headerPattern, footerPattern, getCharset(),
-                    isIncludeStacktrace(), isStacktraceAsString(), isIncludeNullDelimiter(),
-                    getAdditionalFields(), getObjectMessageAsJsonObject());
+            return new LambdaJsonLayout(getConfiguration(), locationInfo, eventEol, includeStacktrace,
+                    objectMessageAsJsonObject, includeNullDelimiter, additionalFields);
+        }
+
+        public boolean isLocationInfo() {
+            return locationInfo;
+        }
+
+        public B setLocationInfo(final boolean locationInfo) {
+            this.locationInfo = locationInfo;
+            return asBuilder();
         }
 
-        public boolean isPropertiesAsList() {
-            return propertiesAsList;
+        public boolean isEventEol() {
+            return eventEol;
         }
 
-        public B setPropertiesAsList(final boolean propertiesAsList) {
-            this.propertiesAsList = propertiesAsList;
+        public B setEventEol(final boolean eventEol) {
+            this.eventEol = eventEol;
             return asBuilder();
         }
 
-        public boolean getObjectMessageAsJsonObject() {
+        public boolean isIncludeStacktrace() {
+            return includeStacktrace;
+        }
+
+        public B setIncludeStacktrace(final boolean includeStacktrace) {
+            this.includeStacktrace = includeStacktrace;
+            return asBuilder();
+        }
+
+        public boolean isObjectMessageAsJsonObject() {
             return objectMessageAsJsonObject;
         }
 
@@ -92,62 +163,44 @@ public class LambdaJsonLayout extends AbstractJacksonLayout {
             this.objectMessageAsJsonObject = objectMessageAsJsonObject;
             return asBuilder();
         }
-    }
 
-    private LambdaJsonLayout(final Configuration config, final boolean locationInfo, final boolean properties,
-                             final boolean encodeThreadContextAsList,
-                             final boolean complete, final boolean compact, final boolean eventEol,
-                             final String headerPattern, final String footerPattern, final Charset charset,
-                             final boolean includeStacktrace, final boolean stacktraceAsString,
-                             final boolean includeNullDelimiter,
-                             final KeyValuePair[] additionalFields, final boolean objectMessageAsJsonObject) {
-        super(config, new JacksonFactory.JSON(encodeThreadContextAsList, includeStacktrace, stacktraceAsString, objectMessageAsJsonObject).newWriter(
-                locationInfo, properties, compact),
-                charset, compact, complete, eventEol,
-                null,
-                PatternLayout.newSerializerBuilder().setConfiguration(config).setPattern(headerPattern).setDefaultPattern(DEFAULT_HEADER).build(),
-                PatternLayout.newSerializerBuilder().setConfiguration(config).setPattern(footerPattern).setDefaultPattern(DEFAULT_FOOTER).build(),
-                includeNullDelimiter,
-                additionalFields);
-    }
+        public boolean isIncludeNullDelimiter() {
+            return includeNullDelimiter;
+        }
 
-    /**
-     * Returns appropriate JSON header.
-     *
-     * @return a byte array containing the header, opening the JSON array.
-     */
-    @Override
-    public byte[] getHeader() {
-        if (!this.complete) {
-            return null;
+        public B setIncludeNullDelimiter(final boolean includeNullDelimiter) {
+            this.includeNullDelimiter = includeNullDelimiter;
+            return asBuilder();
         }
-        final StringBuilder buf = new StringBuilder();
-        final String str = serializeToString(getHeaderSerializer());
-        if (str != null) {
-            buf.append(str);
+
+        public KeyValuePair[] getAdditionalFields() {
+            return additionalFields;
         }
-        buf.append(this.eol);
-        return getBytes(buf.toString());
-    }
 
-    /**
-     * Returns appropriate JSON footer.
-     *
-     * @return a byte array containing the footer, closing the JSON array.
-     */
-    @Override
-    public byte[] getFooter() {
-        if (!this.complete) {
-            return null;
+        public B setAdditionalFields(final KeyValuePair[] additionalFields) {
+            this.additionalFields = additionalFields;
+            return asBuilder();
         }
-        final StringBuilder buf = new StringBuilder();
-        buf.append(this.eol);
-        final String str = serializeToString(getFooterSerializer());
-        if (str != null) {
-            buf.append(str);
+
+        public boolean isCompact() {
+            return compact;
         }
-        buf.append(this.eol);
-        return getBytes(buf.toString());
+
+        public B setCompact(final boolean compact) {
+            this.compact = compact;
+            return asBuilder();
+        }
+    }
+
+    private LambdaJsonLayout(final Configuration config, final boolean locationInfo, final boolean eventEol,
+                             final boolean includeStacktrace, final boolean objectMessageAsJsonObject,
+                             final boolean includeNullDelimiter, final KeyValuePair[] additionalFields) {
+        super(config, StandardCharsets.UTF_8, null, null);
+        this.locationInfo = locationInfo;
+        this.includeStacktrace = includeStacktrace;
+        this.objectMessageAsJsonObject = objectMessageAsJsonObject;
+        this.additionalFields = AdditionalField.of(additionalFields);
+        this.eol = (eventEol ? "\n" : "") + (includeNullDelimiter ? "\0" : "");
     }
 
     @Override
@@ -165,6 +218,11 @@ public class LambdaJsonLayout extends AbstractJacksonLayout {
         return CONTENT_TYPE + "; charset=" + this.getCharset();
     }
 
+    @Override
+    public boolean requiresLocation() {
+        return locationInfo;
+    }
+
     @PluginBuilderFactory
     public static <B extends Builder<B>> B newBuilder() {
         return new Builder<B>().asBuilder();
@@ -176,63 +234,276 @@ public class LambdaJsonLayout extends AbstractJacksonLayout {
      * @return A JSON Layout.
      */
     public static LambdaJsonLayout createDefaultLayout() {
-        return new LambdaJsonLayout(new DefaultConfiguration(), false, false, false, false, false, false,
-                DEFAULT_HEADER, DEFAULT_FOOTER, StandardCharsets.UTF_8, true, false, false, null, false);
+        return new LambdaJsonLayout(new DefaultConfiguration(), false, false, true, false, false, null);
     }
 
     @Override
-    public Object wrapLogEvent(final LogEvent event) {
-        Map<String, Object> additionalFieldsMap = resolveAdditionalFields(event);
-        // This class combines LogEvent with AdditionalFields during serialization
-        return new LogEventWithAdditionalFields(event, additionalFieldsMap);
+    public String toSerializable(final LogEvent event) {
+        final StringBuilder text = toText(event, getStringBuilder());
+        final String serialized = text.toString();
+        trimToMaxSize(text);
+        return serialized;
     }
 
     @Override
-    public void toSerializable(final LogEvent event, final Writer writer) throws IOException {
-        if (complete && eventCount > 0) {
-            writer.append(", ");
+    public void encode(final LogEvent event, final ByteBufferDestination destination) {
+        final StringBuilder text = toText(event, getStringBuilder());
+        getStringBuilderEncoder().encode(text, destination);
+        trimToMaxSize(text);
+    }
+
+    private StringBuilder toText(final LogEvent event, final StringBuilder buffer) {
+        buffer.append("{\"instant\":{\"epochSecond\":").append(event.getInstant().getEpochSecond())
+                .append(",\"nanoOfSecond\":").append(event.getInstant().getNanoOfSecond())
+                .append("},\"thread\":");
+        appendString(buffer, event.getThreadName());
+        buffer.append(",\"level\":\"").append(event.getLevel().name())
+                .append("\",\"loggerName\":");
+        appendString(buffer, event.getLoggerName());
+
+        if (null != event.getMarker()) {
+            buffer.append(",\"marker\":");
+            appendMarker(buffer, event.getMarker());
         }
-        super.toSerializable(event, writer);
+
+        buffer.append(",\"message\":");
+        appendMessage(buffer, event.getMessage(), objectMessageAsJsonObject);
+
+        if (includeStacktrace && null != event.getThrownProxy()) {
+            appendThrown(buffer, event.getThrownProxy());
+        }
+
+        buffer.append(",\"endOfBatch\":").append(event.isEndOfBatch())
+                .append(",\"loggerFqcn\":");
+        appendString(buffer, event.getLoggerFqcn());
+        buffer.append(",\"threadId\":").append(event.getThreadId())
+                .append(",\"threadPriority\":").append(event.getThreadPriority());
+
+        if (locationInfo && null != event.getSource()) {
+            appendSource(buffer, event.getSource());
+        }
+
+        buffer.append(",\"timestamp\":\"");
+        timestampFormatter.formatTo(event.getTimeMillis(), buffer);
+        buffer.append('"');
+
+        event.getContextData().forEach(WRITE_CONTEXT_DATA, buffer);
+        appendAdditionalFields(buffer, event);
+        appendStructuredArguments(buffer, event.getMessage());
+
+        return buffer.append('}').append(eol);
+    }
+
+    private static void appendMessage(final StringBuilder buffer, final Message message,
+                                      final boolean objectMessageAsJsonObject) {
+        if (null == message) {
+            buffer.append("null");
+            return;
+        }
+
+        if (objectMessageAsJsonObject && message instanceof ObjectMessage) {
+            appendJson(buffer, ((ObjectMessage) message).getParameter());
+            return;
+        }
+
+        if (objectMessageAsJsonObject && message instanceof ReusableObjectMessage) {
+            appendJson(buffer, ((ReusableObjectMessage) message).getParameter());
+            return;
+        }
+
+        buffer.append('"');
+        int start = buffer.length();
+
+        if (message instanceof StringBuilderFormattable) {
+            ((StringBuilderFormattable) message).formatTo(buffer);
+        } else {
+            buffer.append(message.getFormattedMessage());
+        }
+
+        StringBuilders.escapeJson(buffer, start);
+        buffer.append('"');
     }
 
-    private Map<String, Object> resolveAdditionalFields(LogEvent logEvent) {
-        // Note: LinkedHashMap retains order
-        final Map<String, Object> additionalFieldsMap = new LinkedHashMap<>(additionalFields.length);
+    private static void appendMarker(final StringBuilder buffer, final Marker marker) {
+        buffer.append("{\"name\":");
+        appendString(buffer, marker.getName());
 
-        // Go over MDC
-        logEvent.getContextData().forEach((key, value) -> {
-            if (Strings.isNotBlank(key) && value != null) {
-                additionalFieldsMap.put(key, value);
+        if (marker.hasParents()) {
+            buffer.append(",\"parents\":[");
+            Marker[] parents = marker.getParents();
+
+            for (int i = 0; i < parents.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendMarker(buffer, parents[i]);
             }
-        });
+            buffer.append(']');
+        }
 
-        return additionalFieldsMap;
+        buffer.append('}');
     }
 
-    @JsonRootName(XmlConstants.ELT_EVENT)
-    public static class LogEventWithAdditionalFields {
+    private void appendAdditionalFields(final StringBuilder buffer, final LogEvent event) {
+        for (AdditionalField field : additionalFields) {
+            buffer.append(',');
+            appendString(buffer, field.key);
+            buffer.append(':');
+            appendString(buffer, field.needsLookup ?
+                    configuration.getStrSubstitutor().replace(event, field.value) : field.value);
+        }
+    }
 
-        private final LogEvent logEvent;
-        private final Map<String, Object> additionalFields;
+    private static void appendStructuredArguments(final StringBuilder buffer, final Message message) {
+        if (null == message) {
+            return;
+        }
 
-        public LogEventWithAdditionalFields(LogEvent logEvent, Map<String, Object> additionalFields) {
-            this.logEvent = logEvent;
-            this.additionalFields = additionalFields;
+        Object[] parameters = message.getParameters();
+
+        if (null == parameters) {
+            return;
         }
 
-        @JsonUnwrapped
-        public Object getLogEvent() {
-            return logEvent;
+        // Parameters of reusable messages are held in a reused array, which can be longer than the actual parameters
+        int count = message instanceof ReusableMessage ? ((ReusableMessage) message).getParameterCount() : parameters.length;
+
+        for (int i = 0; i < count && i < parameters.length; i++) {
+            if (parameters[i] instanceof StructuredArgument) {
+                StructuredArgument argument = (StructuredArgument) parameters[i];
+                buffer.append(',');
+                appendString(buffer, argument.getKey());
+                buffer.append(':');
+                appendJson(buffer, argument.getLoggedValue());
+            }
         }
+    }
 
-        @JsonAnyGetter
-        public Map<String, Object> getAdditionalFields() {
-            return additionalFields;
+    private static void appendJson(final StringBuilder buffer, final Object value) {
+        int start = buffer.length();
+
+        try {
+            LoggingUtils.objectMapper().writeValue(new StringBuilderWriter(buffer), value);
+        } catch (IOException e) {
+            buffer.setLength(start);
+            appendString(buffer, value);
         }
+    }
 
-        @JsonGetter("timestamp")
-        public String getTimestamp() {
-            return ISO_ZONED_DATE_TIME.format(ZonedDateTime.from(ofEpochMilli(logEvent.getTimeMillis()).atZone(ZoneId.systemDefault())));
+    private static void appendThrown(final StringBuilder buffer, final ThrowableProxy thrown) {
+        buffer.append(",\"thrown\":{\"name\":");
+        appendString(buffer, thrown.getName());
+        buffer.append(",\"message\":");
+        appendString(buffer, thrown.getMessage());
+        buffer.append(",\"extendedStackTrace\":\"");
+        int start = buffer.length();
+        thrown.formatExtendedStackTraceTo(buffer, Collections.emptyList(), PlainTextRenderer.getInstance(), "", "\n");
+        StringBuilders.escapeJson(buffer, start);
+        buffer.append("\"}");
+    }
+
+    private static void appendSource(final StringBuilder buffer, final StackTraceElement source) {
+        buffer.append(",\"source\":{\"class\":");
+        appendString(buffer, source.getClassName());
+        buffer.append(",\"method\":");
+        appendString(buffer, source.getMethodName());
+        buffer.append(",\"file\":");
+        appendString(buffer, source.getFileName());
+        buffer.append(",\"line\":").append(source.getLineNumber()).append('}');
+    }
+
+    static void appendString(final StringBuilder buffer, final Object value) {
+        if (null == value) {
+            buffer.append("null");
+            return;
+        }
+
+        buffer.append('"');
+        int start = buffer.length();
+        StringBuilders.appendValue(buffer, value);
+        StringBuilders.escapeJson(buffer, start);
+        buffer.append('"');
+    }
+
+    /**
+     * {@code <KeyValuePair>} element of the layout, written as a top level key of each event. Values containing
+     * lookups are resolved for each event.
+     */
+    private static final class AdditionalField {
+        private static final AdditionalField[] NONE = new AdditionalField[0];
+
+        private final String key;
+        private final String value;
+        private final boolean needsLookup;
+
+        private AdditionalField(final KeyValuePair pair) {
+            this.key = pair.getKey();
+            this.value = pair.getValue();
+            this.needsLookup = null != value && value.contains("${");
+        }
+
+        static AdditionalField[] of(final KeyValuePair[] pairs) {
+            if (null == pairs || pairs.length == 0) {
+                return NONE;
+            }
+
+            AdditionalField[] fields = new AdditionalField[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                fields[i] = new AdditionalField(pairs[i]);
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * Formats timestamps as {@code ISO_ZONED_DATE_TIME}, reusing the date and time up to seconds as well as the zone
+     * for all the events logged within the same second.
+     */
+    static final class TimestampFormatter {
+        private final ZoneId zone;
+        private volatile CachedSecond cached = new CachedSecond(Long.MIN_VALUE, "", "");
+
+        TimestampFormatter(final ZoneId zone) {
+            this.zone = zone;
+        }
+
+        void formatTo(final long epochMillis, final StringBuilder buffer) {
+            long epochSecond = Math.floorDiv(epochMillis, 1000L);
+            CachedSecond second = cached;
+
+            if (second.epochSecond != epochSecond) {
+                ZonedDateTime dateTime = Instant.ofEpochSecond(epochSecond).atZone(zone);
+                String suffix = dateTime.getOffset().getId() + (zone instanceof ZoneOffset ? "" : "[" + zone.getId() + "]");
+                second = new CachedSecond(epochSecond, ISO_LOCAL_DATE_TIME.format(dateTime.toLocalDateTime()), suffix);
+                cached = second;
+            }
+
+            buffer.append(second.dateTime);
+
+            int millis = (int) Math.floorMod(epochMillis, 1000L);
+            if (millis > 0) {
+                buffer.append('.').append((char) ('0' + millis / 100));
+                if (millis % 100 > 0) {
+                    buffer.append((char) ('0' + millis / 10 % 10));
+                    if (millis % 10 > 0) {
+                        buffer.append((char) ('0' + millis % 10));
+                    }
+                }
+            }
+
+            buffer.append(second.zone);
+        }
+
+        private static final class CachedSecond {
+            private final long epochSecond;
+            private final String dateTime;
+            private final String zone;
+
+            private CachedSecond(final long epochSecond, final String dateTime, final String zone) {
+                this.epochSecond = epochSecond;
+                this.dateTime = dateTime;
+                this.zone = zone;
+            }
         }
     }
 }
@@ -53,11 +53,15 @@ import java.lang.annotation.Target;
  * <p>The data and time of the log event will be written using {@link java.time.format.DateTimeFormatter#ISO_ZONED_DATE_TIME}</p>
  *
  * <p>By default {@code Logging} will not log the event which has trigger the invoke of the Lambda function.
- * This can be enabled using {@code @Logging(logEvent = true)}.</p>
+ * This can be enabled using {@code @Logging(logEvent = true)}. Sensitive values of the logged event can be masked with
+ * {@code logEventMaskedPaths} and its size limited with {@code logEventMaxBytes}.</p>
  *
  * <p>By default {@code Logging} all debug logs will follow log4j2 configuration unless configured via
  * POWERTOOLS_LOGGER_SAMPLE_RATE environment variable {@code @Logging(samplingRate = <0.0-1.0>)}.</p>
  *
+ * <p>DEBUG logs can be kept in memory and only written when an error occurs with
+ * {@code @Logging(debugBufferSize = <number of entries>)}.</p>
+ *
  * <p>To append additional keys to each log entry you can use {@link LoggingUtils#appendKey(String, String)}</p>
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -66,11 +70,26 @@ public @interface Logging {
 
     boolean logEvent() default false;
 
+    /**
+     * Json Pointer paths of the values replaced with {@code *****} when the event is logged with {@link #logEvent()}.
+     * Masked objects and arrays are replaced as a whole, and a {@code *} segment matches every element of an array or
+     * field of an object, as in {@code /Records/*&#47;body}. The event is not logged if one of the paths is invalid.
+     */
+    String[] logEventMaskedPaths() default {};
+
+    /**
+     * Maximum size in bytes of the event logged with {@link #logEvent()}. Serialization of larger events stops at that
+     * size and the log entry gets an {@code eventTruncated} key. Zero or less means no limit.
+     */
+    int logEventMaxBytes() default 0;
+
     double samplingRate() default 0;
 
     /**
-     * Json Pointer path to extract correlation id from.
+     * Json Pointer path to extract correlation id from, or JMESPath expression when the path does not start with
+     * {@code /}.
      * @see  <a href=https://datatracker.ietf.org/doc/html/draft-ietf-appsawg-json-pointer-03/>
+     * @see  <a href="https://jmespath.org/">JMESPath</a>
      */
     String correlationIdPath() default "";
 
@@ -80,4 +99,11 @@ public @interface Logging {
      * Set this attribute to true if you want all custom keys to be deleted on each request.
      */
     boolean clearState() default false;
+
+    /**
+     * Number of DEBUG and TRACE log entries, suppressed by the level of their logger, to keep in memory during each
+     * invocation. Buffered entries are written with the keys they were logged with when an ERROR entry is logged or
+     * when the handler throws, and discarded otherwise. Only the latest entries are kept. Zero disables buffering.
+     */
+    int debugBufferSize() default 0;
 }
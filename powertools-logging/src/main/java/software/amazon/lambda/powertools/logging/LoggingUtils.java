@@ -73,6 +73,22 @@ public final class LoggingUtils {
         ThreadContext.removeAll(asList(keys));
     }
 
+    /**
+     * Creates a key and value to pass as parameter of a log statement, which is added to its log entry only. The
+     * value is serialized as JSON when the entry is written.
+     *
+     * <pre>
+     * LOG.info("Order processed", entry("order", order));
+     * </pre>
+     *
+     * @param key The name of the key to be logged
+     * @param value The value to be serialized as JSON
+     * @return parameter for the log statement
+     */
+    public static StructuredArgument entry(String key, Object value) {
+        return new StructuredArgument(key, value);
+    }
+
     /**
      * Sets correlation id attribute on the logs.
      *
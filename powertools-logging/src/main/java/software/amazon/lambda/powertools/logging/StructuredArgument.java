@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging;
+
+/**
+ * Key and value passed as parameter of a log statement, written by {@code LambdaJsonLayout} as an additional key of
+ * the log entry. The value is serialized as JSON with {@link LoggingUtils#objectMapper()} when the entry is written,
+ * so nothing is serialized for log statements below the enabled level.
+ *
+ * <p>Entries written by another thread, such as through the {@code LambdaAsync} appender, are {@link #freeze() frozen}
+ * by the logging thread first, so that changes made to the value after the log statement are not logged.</p>
+ *
+ * {@see LoggingUtils#entry(String, Object)}
+ */
+public final class StructuredArgument {
+    private final String key;
+    private final Object value;
+    private volatile Object frozenValue;
+
+    StructuredArgument(final String key, final Object value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Copies the value as a JSON tree, or as its text if it cannot be serialized, so that it is logged as it is now.
+     */
+    public void freeze() {
+        if (null == frozenValue && null != value) {
+            try {
+                frozenValue = LoggingUtils.objectMapper().valueToTree(value);
+            } catch (IllegalArgumentException e) {
+                frozenValue = String.valueOf(value);
+            }
+        }
+    }
+
+    /**
+     * @return copy of the value made by {@link #freeze()}, or the value itself if it was not frozen
+     */
+    public Object getLoggedValue() {
+        Object frozen = frozenValue;
+        return null != frozen ? frozen : value;
+    }
+
+    /**
+     * @return key and value, as used by placeholders of the log message
+     */
+    @Override
+    public String toString() {
+        return key + "=" + value;
+    }
+}
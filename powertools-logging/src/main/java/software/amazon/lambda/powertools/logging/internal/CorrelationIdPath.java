@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import io.burt.jmespath.Expression;
+import io.burt.jmespath.jackson.JacksonRuntime;
+
+/**
+ * Compiled {@code correlationIdPath} of {@link software.amazon.lambda.powertools.logging.Logging}. Paths starting with
+ * {@code /} are JSON Pointers, other paths are JMESPath expressions.
+ *
+ * <p>JSON Pointers, and JMESPath expressions only made of fields and indexes, are resolved directly on the event:
+ * through the getters of POJO events, and with a streaming parser on raw events, which are not converted to a tree.
+ * Other JMESPath expressions are searched on the tree of the event.</p>
+ */
+final class CorrelationIdPath {
+    private static final JacksonRuntime JMESPATH = new JacksonRuntime();
+    private static final Pattern SIMPLE_EXPRESSION_STEP = Pattern.compile(
+            "\\.?([A-Za-z_][A-Za-z0-9_]*)|\\.?\"([^\"\\\\]*)\"|\\[(\\d+)]");
+    private static final Object UNRESOLVED = new Object();
+    private static final Map<Class<?>, Map<String, AnnotatedMember>> PROPERTIES = new ConcurrentHashMap<>();
+    private static volatile ObjectMapper propertiesMapper;
+
+    private final JsonPointer pointer;
+    private final Expression<JsonNode> expression;
+
+    private CorrelationIdPath(final JsonPointer pointer, final Expression<JsonNode> expression) {
+        this.pointer = pointer;
+        this.expression = expression;
+    }
+
+    static CorrelationIdPath compile(final String path) {
+        if (path.startsWith("/")) {
+            return new CorrelationIdPath(JsonPointer.compile(path), null);
+        }
+
+        JsonPointer pointer = asPointer(path);
+        return null != pointer ? new CorrelationIdPath(pointer, null) : new CorrelationIdPath(null, JMESPATH.compile(path));
+    }
+
+    /**
+     * @return JSON Pointer equivalent to a JMESPath expression made of fields and indexes only, or null
+     */
+    static JsonPointer asPointer(final String expression) {
+        Matcher step = SIMPLE_EXPRESSION_STEP.matcher(expression);
+        StringBuilder pointer = new StringBuilder();
+        int position = 0;
+
+        while (position < expression.length()) {
+            step.region(position, expression.length());
+
+            if (!step.lookingAt() || (null == step.group(3) && (expression.charAt(position) == '.') == (position == 0))) {
+                return null;
+            }
+
+            String property = null != step.group(1) ? step.group(1) : step.group(2);
+            pointer.append('/').append(null != property ? property.replace("~", "~0").replace("/", "~1") : step.group(3));
+            position = step.end();
+        }
+
+        return pointer.length() > 0 ? JsonPointer.compile(pointer.toString()) : null;
+    }
+
+    /**
+     * @return text of the scalar value at the path in a deserialized event, or null
+     */
+    String valueIn(final ObjectMapper mapper, final Object event) {
+        if (null == pointer) {
+            return text(expression.search(mapper.valueToTree(event)));
+        }
+
+        Object value = valueAt(mapper, event, pointer);
+
+        if (UNRESOLVED == value) {
+            return text(mapper.<JsonNode>valueToTree(event).at(pointer));
+        }
+
+        return null != value ? String.valueOf(value) : null;
+    }
+
+    /**
+     * @return text of the scalar value at the path in a raw JSON event, or null
+     */
+    String valueIn(final ObjectMapper mapper, final byte[] event, final int offset, final int length)
+            throws IOException {
+        if (null == pointer) {
+            return text(expression.search(mapper.readTree(event, offset, length)));
+        }
+
+        try (JsonParser parser = mapper.getFactory().createParser(event, offset, length)) {
+            return null != parser.nextToken() ? valueAt(parser, pointer) : null;
+        }
+    }
+
+    private static String text(final JsonNode node) {
+        return null != node && node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
+
+    /**
+     * Walks the getters, maps, lists and arrays of the event, using the property names of the mapper.
+     *
+     * @return scalar value at the pointer, null if there is none, or {@link #UNRESOLVED} if the event must be
+     * converted to a tree to find it
+     */
+    private static Object valueAt(final ObjectMapper mapper, final Object event, final JsonPointer path) {
+        Object current = event;
+        JsonPointer pointer = path;
+
+        while (!pointer.matches()) {
+            if (null == current || isScalar(current)) {
+                return null;
+            }
+
+            if (current instanceof JsonNode) {
+                return text(((JsonNode) current).at(pointer));
+            }
+
+            if (current instanceof Map) {
+                current = ((Map<?, ?>) current).get(pointer.getMatchingProperty());
+            } else if (current instanceof List) {
+                List<?> list = (List<?>) current;
+                int index = pointer.getMatchingIndex();
+                current = index >= 0 && index < list.size() ? list.get(index) : null;
+            } else if (current.getClass().isArray()) {
+                int index = pointer.getMatchingIndex();
+                current = index >= 0 && index < Array.getLength(current) ? Array.get(current, index) : null;
+            } else {
+                AnnotatedMember property = properties(mapper, current.getClass()).get(pointer.getMatchingProperty());
+
+                if (null == property) {
+                    return UNRESOLVED;
+                }
+                current = property.getValue(current);
+            }
+
+            pointer = pointer.tail();
+        }
+
+        return null == current || isScalar(current) ? current : UNRESOLVED;
+    }
+
+    private static boolean isScalar(final Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character;
+    }
+
+    /**
+     * @return accessors of the serialized properties of a type, by name, introspected once per type and mapper
+     */
+    private static Map<String, AnnotatedMember> properties(final ObjectMapper mapper, final Class<?> type) {
+        if (mapper != propertiesMapper) {
+            PROPERTIES.clear();
+            propertiesMapper = mapper;
+        }
+
+        return PROPERTIES.computeIfAbsent(type, t -> {
+            BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(t));
+            Map<String, AnnotatedMember> properties = new HashMap<>();
+
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                AnnotatedMember accessor = property.getAccessor();
+
+                if (property.couldSerialize() && null != accessor) {
+                    accessor.fixAccess(true);
+                    properties.put(property.getName(), accessor);
+                }
+            }
+            return Collections.unmodifiableMap(properties);
+        });
+    }
+
+    /**
+     * @return text of the scalar value at the pointer, parsing the event only up to that value
+     */
+    private static String valueAt(final JsonParser parser, final JsonPointer pointer) throws IOException {
+        if (pointer.matches()) {
+            return parser.currentToken().isScalarValue() && parser.currentToken() != JsonToken.VALUE_NULL ?
+                    parser.getValueAsString() : null;
+        }
+
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean matches = parser.getCurrentName().equals(pointer.getMatchingProperty());
+                parser.nextToken();
+
+                if (matches) {
+                    return valueAt(parser, pointer.tail());
+                }
+                parser.skipChildren();
+            }
+        }
+
+        if (parser.currentToken() == JsonToken.START_ARRAY && pointer.getMatchingIndex() >= 0) {
+            int index = 0;
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index++ == pointer.getMatchingIndex()) {
+                    return valueAt(parser, pointer.tail());
+                }
+                parser.skipChildren();
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.internal;
+
+import java.util.Map;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.core.impl.ContextDataFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.spi.AbstractLogger;
+
+import static software.amazon.lambda.powertools.logging.internal.LambdaLoggingAspect.SAMPLED_KEY;
+
+/**
+ * Keeps the DEBUG and TRACE entries suppressed by the level of their logger during an invocation in a ring buffer of
+ * bounded size, instead of writing them. Buffered entries are written in order, with the context keys they were
+ * logged with, when an ERROR entry is logged or when the handler throws. They are discarded at the end of successful
+ * invocations.
+ *
+ * <p>Installed as a filter of the configuration, so that it sees entries before they are suppressed. Entries logged
+ * through message suppliers or guarded by {@code isDebugEnabled()} are not buffered.</p>
+ */
+final class DebugLogBuffer extends AbstractFilter {
+    static final String DROPPED = "Dropped {} older debug log entries buffered during this invocation";
+    private static final org.apache.logging.log4j.Logger LOG = LogManager.getLogger(DebugLogBuffer.class);
+
+    private volatile boolean active;
+    private BufferedEntry[] entries = new BufferedEntry[0];
+    private int head;
+    private int size;
+    private int dropped;
+
+    /**
+     * Starts buffering the entries of an invocation, keeping at most {@code capacity} of the latest ones.
+     */
+    synchronized void startInvocation(final int capacity) {
+        if (entries.length != capacity) {
+            entries = new BufferedEntry[capacity];
+        }
+        clear();
+        active = capacity > 0;
+    }
+
+    /**
+     * Stops buffering and discards the entries buffered so far.
+     */
+    synchronized void endInvocation() {
+        active = false;
+        clear();
+    }
+
+    /**
+     * Writes the entries buffered so far, oldest first.
+     */
+    void flush() {
+        BufferedEntry[] flushed;
+        int droppedBeforeFlush;
+
+        synchronized (this) {
+            flushed = new BufferedEntry[size];
+            for (int i = 0; i < size; i++) {
+                flushed[i] = entries[(head + i) % entries.length];
+            }
+            droppedBeforeFlush = dropped;
+            clear();
+        }
+
+        if (droppedBeforeFlush > 0) {
+            LOG.warn(DROPPED, droppedBeforeFlush);
+        }
+
+        for (BufferedEntry entry : flushed) {
+            entry.write();
+        }
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final Message msg,
+                         final Throwable t) {
+        return suppressed(logger, level, msg) ? buffer(logger, level, marker, msg, t) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final Object msg,
+                         final Throwable t) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, logger.getMessageFactory().newMessage(msg), t) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object... params) {
+        return suppressed(logger, level, msg) ? buffer(logger, level, marker, msg, params) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0) {
+        return suppressed(logger, level, msg) ? buffer(logger, level, marker, msg, p0) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1) {
+        return suppressed(logger, level, msg) ? buffer(logger, level, marker, msg, p0, p1) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2) {
+        return suppressed(logger, level, msg) ? buffer(logger, level, marker, msg, p0, p1, p2) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4, p5) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4, p5, p6) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4, p5, p6, p7) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7, final Object p8) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4, p5, p6, p7, p8) : passed(level, msg);
+    }
+
+    @Override
+    public Result filter(final Logger logger, final Level level, final Marker marker, final String msg,
+                         final Object p0, final Object p1, final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7, final Object p8, final Object p9) {
+        return suppressed(logger, level, msg) ?
+                buffer(logger, level, marker, msg, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9) : passed(level, msg);
+    }
+
+    /**
+     * @return whether the entry is a DEBUG or TRACE entry of an invocation that its logger does not write
+     */
+    private boolean suppressed(final Logger logger, final Level level, final Object msg) {
+        return active && null != msg && null != logger && null != logger.getLevel()
+                && level.isLessSpecificThan(Level.DEBUG) && !level.isMoreSpecificThan(logger.getLevel())
+                && !"true".equals(ThreadContext.get(SAMPLED_KEY));
+    }
+
+    private Result passed(final Level level, final Object msg) {
+        if (active && null != msg && level.isMoreSpecificThan(Level.ERROR)) {
+            flush();
+        }
+        return Result.NEUTRAL;
+    }
+
+    private Result buffer(final Logger logger, final Level level, final Marker marker, final String msg,
+                          final Object... params) {
+        return buffer(logger, level, marker, logger.getMessageFactory().newMessage(msg, params), null);
+    }
+
+    /**
+     * Adds the entry to the buffer, formatting its message now in case its parameters change later on.
+     */
+    private Result buffer(final Logger logger, final Level level, final Marker marker, final Message message,
+                          final Throwable thrown) {
+        Message frozen = message instanceof ReusableMessage ? ((ReusableMessage) message).memento() : message;
+        frozen.getFormattedMessage();
+
+        Thread thread = Thread.currentThread();
+        BufferedEntry entry = new BufferedEntry(logger, Log4jLogEvent.newBuilder()
+                .setLoggerName(logger.getName())
+                .setLoggerFqcn(AbstractLogger.class.getName())
+                .setLevel(level)
+                .setMarker(marker)
+                .setMessage(frozen)
+                .setThrown(null != thrown ? thrown : frozen.getThrowable())
+                .setTimeMillis(System.currentTimeMillis())
+                .setThreadName(thread.getName())
+                .setThreadId(thread.getId())
+                .setThreadPriority(thread.getPriority()), ThreadContext.getImmutableContext());
+
+        synchronized (this) {
+            if (active && entries.length > 0) {
+                if (size == entries.length) {
+                    entries[head] = entry;
+                    head = (head + 1) % entries.length;
+                    dropped++;
+                } else {
+                    entries[(head + size++) % entries.length] = entry;
+                }
+            }
+        }
+
+        return Result.NEUTRAL;
+    }
+
+    private void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        head = 0;
+        size = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Entry kept with the context keys of the invocation at the time it was logged. The immutable context map is
+     * shared with the {@link ThreadContext} until the entry is written.
+     */
+    private static final class BufferedEntry {
+        private final Logger logger;
+        private final Log4jLogEvent.Builder event;
+        private final Map<String, String> context;
+
+        private BufferedEntry(final Logger logger, final Log4jLogEvent.Builder event,
+                              final Map<String, String> context) {
+            this.logger = logger;
+            this.event = event;
+            this.context = context;
+        }
+
+        void write() {
+            logger.get().log(event.setContextData(ContextDataFactory.createContextData(context)).build());
+        }
+    }
+}
@@ -13,10 +13,12 @@
  */
 package software.amazon.lambda.powertools.logging.internal;
 
-import com.amazonaws.services.lambda.runtime.Context;
+import java.util.Objects;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.util.IndexedStringMap;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
 
 enum DefaultLambdaFields {
     FUNCTION_NAME("functionName"),
@@ -25,6 +27,8 @@ enum DefaultLambdaFields {
     FUNCTION_MEMORY_SIZE("functionMemorySize"),
     FUNCTION_REQUEST_ID("function_request_id");
 
+    private static volatile IndexedStringMap staticValues;
+
     private final String name;
 
     DefaultLambdaFields(String name) {
@@ -35,15 +39,48 @@ enum DefaultLambdaFields {
         return name;
     }
 
-    static Map<String, String> values(Context context) {
-        Map<String, String> hashMap = new HashMap<>();
+    /**
+     * Appends the fields of the context to the {@link ThreadContext}. Fields which do not change across invocations
+     * are only written when they are not already set, so that warm invocations only update the request id.
+     */
+    static void appendKeys(Context context) {
+        IndexedStringMap values = staticValues(context);
+
+        for (int i = 0; i < values.size(); i++) {
+            if (!Objects.equals(values.getValueAt(i), ThreadContext.get(values.getKeyAt(i)))) {
+                ThreadContext.putAll(values.toMap());
+                break;
+            }
+        }
+
+        appendKeyIfChanged(FUNCTION_REQUEST_ID.name, String.valueOf(context.getAwsRequestId()));
+    }
+
+    static void appendKeyIfChanged(String key, String value) {
+        if (!Objects.equals(value, ThreadContext.get(key))) {
+            ThreadContext.put(key, value);
+        }
+    }
+
+    /**
+     * @return frozen map of the fields which are the same for all invocations of the execution environment, computed
+     * on first invocation
+     */
+    static IndexedStringMap staticValues(Context context) {
+        IndexedStringMap values = staticValues;
+
+        if (null == values || !Objects.equals(values.getValue(FUNCTION_ARN.name), context.getInvokedFunctionArn())) {
+            SortedArrayStringMap map = new SortedArrayStringMap(4);
+            map.putValue(FUNCTION_NAME.name, context.getFunctionName());
+            map.putValue(FUNCTION_VERSION.name, context.getFunctionVersion());
+            map.putValue(FUNCTION_ARN.name, context.getInvokedFunctionArn());
+            map.putValue(FUNCTION_MEMORY_SIZE.name, String.valueOf(context.getMemoryLimitInMB()));
+            map.freeze();
 
-        hashMap.put(FUNCTION_NAME.name, context.getFunctionName());
-        hashMap.put(FUNCTION_VERSION.name, context.getFunctionVersion());
-        hashMap.put(FUNCTION_ARN.name, context.getInvokedFunctionArn());
-        hashMap.put(FUNCTION_MEMORY_SIZE.name, String.valueOf(context.getMemoryLimitInMB()));
-        hashMap.put(FUNCTION_REQUEST_ID.name, String.valueOf(context.getAwsRequestId()));
+            values = map;
+            staticValues = values;
+        }
 
-        return hashMap;
+        return values;
     }
 }
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Writes events logged by {@code @Logging(logEvent = true)} as JSON, replacing the values at
+ * {@code logEventMaskedPaths} with {@link #MASK} and stopping once {@code logEventMaxBytes} have been written.
+ * Masking and truncation are applied while the event is serialized or copied from its raw bytes, without building
+ * an intermediate tree, and serialization stops as soon as the limit is reached.
+ */
+final class JsonEventWriter {
+    static final String MASK = "*****";
+    static final String WILDCARD = "*";
+
+    private final List<JsonPointer> maskedPaths;
+    private final int maxBytes;
+
+    /**
+     * @throws IllegalArgumentException if one of the masked paths is not a JSON Pointer
+     */
+    JsonEventWriter(final String[] maskedPaths, final int maxBytes) {
+        List<JsonPointer> pointers = new ArrayList<>(maskedPaths.length);
+        for (String path : maskedPaths) {
+            try {
+                pointers.add(JsonPointer.compile(path));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid logEventMaskedPaths entry \"" + path +
+                        "\", expected a JSON Pointer such as /body/password", e);
+            }
+        }
+
+        this.maskedPaths = Collections.unmodifiableList(pointers);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return whether events can be logged as is, without masking or truncation
+     */
+    boolean isPassThrough() {
+        return maskedPaths.isEmpty() && maxBytes <= 0;
+    }
+
+    /**
+     * @return true if the event was truncated
+     */
+    boolean write(final ObjectMapper mapper, final Object event, final StringBuilder out) throws IOException {
+        return write(mapper, out, generator -> mapper.writeValue(generator, event));
+    }
+
+    /**
+     * @return true if the event was truncated
+     */
+    boolean write(final ObjectMapper mapper, final byte[] event, final int offset, final int length,
+                  final StringBuilder out) throws IOException {
+        return write(mapper, out, generator -> {
+            try (JsonParser parser = mapper.getFactory().createParser(event, offset, length)) {
+                while (null != parser.nextToken()) {
+                    generator.copyCurrentEvent(parser);
+                }
+            }
+        });
+    }
+
+    private boolean write(final ObjectMapper mapper, final StringBuilder out, final Serialization serialization)
+            throws IOException {
+        LimitedWriter writer = new LimitedWriter(out, maxBytes);
+
+        try (JsonGenerator generator = new MaskingGenerator(mapper.getFactory().createGenerator(writer), maskedPaths)) {
+            serialization.writeTo(generator);
+        } catch (LimitReachedException e) {
+            return true;
+        }
+
+        return false;
+    }
+
+    private interface Serialization {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+
+    private static final class LimitReachedException extends IOException {
+        private LimitReachedException() {
+            super("Maximum size of logged event reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Appends to a {@link StringBuilder} up to a number of UTF-8 encoded bytes, then fails.
+     */
+    private static final class LimitedWriter extends Writer {
+        private final StringBuilder out;
+        private final int maxBytes;
+        private int bytes;
+
+        private LimitedWriter(final StringBuilder out, final int maxBytes) {
+            this.out = out;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(final char[] chars, final int offset, final int length) throws IOException {
+            if (maxBytes <= 0) {
+                out.append(chars, offset, length);
+                return;
+            }
+
+            for (int i = offset; i < offset + length; i++) {
+                char c = chars[i];
+                bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+
+                if (bytes > maxBytes) {
+                    throw new LimitReachedException();
+                }
+                out.append(c);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Writes {@link #MASK} instead of the values, including objects and arrays, at the masked JSON pointers. Pointers
+     * still matching the current position are tracked per object or array being written.
+     */
+    private static final class MaskingGenerator extends JsonGeneratorDelegate {
+        private final List<JsonPointer> rootPointers;
+        private final Deque<Container> containers = new ArrayDeque<>();
+        private boolean rootWritten;
+        private int maskedDepth;
+
+        private MaskingGenerator(final JsonGenerator delegate, final List<JsonPointer> maskedPaths) {
+            super(delegate, false);
+            this.rootPointers = maskedPaths;
+        }
+
+        @Override
+        public void writeStartObject() throws IOException {
+            if (startContainer(false)) {
+                super.writeStartObject();
+            }
+        }
+
+        @Override
+        public void writeStartObject(final Object forValue) throws IOException {
+            if (startContainer(false)) {
+                super.writeStartObject(forValue);
+            }
+        }
+
+        @Override
+        public void writeStartObject(final Object forValue, final int size) throws IOException {
+            if (startContainer(false)) {
+                super.writeStartObject(forValue, size);
+            }
+        }
+
+        @Override
+        public void writeStartArray() throws IOException {
+            if (startContainer(true)) {
+                super.writeStartArray();
+            }
+        }
+
+        @Override
+        public void writeStartArray(final int size) throws IOException {
+            if (startContainer(true)) {
+                super.writeStartArray(size);
+            }
+        }
+
+        @Override
+        public void writeStartArray(final Object forValue) throws IOException {
+            if (startContainer(true)) {
+                super.writeStartArray(forValue);
+            }
+        }
+
+        @Override
+        public void writeStartArray(final Object forValue, final int size) throws IOException {
+            if (startContainer(true)) {
+                super.writeStartArray(forValue, size);
+            }
+        }
+
+        @Override
+        public void writeEndObject() throws IOException {
+            if (endContainer()) {
+                super.writeEndObject();
+            }
+        }
+
+        @Override
+        public void writeEndArray() throws IOException {
+            if (endContainer()) {
+                super.writeEndArray();
+            }
+        }
+
+        @Override
+        public void writeFieldName(final String name) throws IOException {
+            if (fieldName(name)) {
+                super.writeFieldName(name);
+            }
+        }
+
+        @Override
+        public void writeFieldName(final SerializableString name) throws IOException {
+            if (fieldName(name.getValue())) {
+                super.writeFieldName(name);
+            }
+        }
+
+        @Override
+        public void writeArray(final int[] array, final int offset, final int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset; i < offset + length; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(final long[] array, final int offset, final int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset; i < offset + length; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(final double[] array, final int offset, final int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset; i < offset + length; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(final String[] array, final int offset, final int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset; i < offset + length; i++) {
+                writeString(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeString(final String text) throws IOException {
+            if (scalar()) {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeString(final Reader reader, final int len) throws IOException {
+            if (scalar()) {
+                super.writeString(reader, len);
+            }
+        }
+
+        @Override
+        public void writeString(final char[] text, final int offset, final int len) throws IOException {
+            if (scalar()) {
+                super.writeString(text, offset, len);
+            }
+        }
+
+        @Override
+        public void writeString(final SerializableString text) throws IOException {
+            if (scalar()) {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeRawUTF8String(final byte[] text, final int offset, final int length) throws IOException {
+            if (scalar()) {
+                super.writeRawUTF8String(text, offset, length);
+            }
+        }
+
+        @Override
+        public void writeUTF8String(final byte[] text, final int offset, final int length) throws IOException {
+            if (scalar()) {
+                super.writeUTF8String(text, offset, length);
+            }
+        }
+
+        @Override
+        public void writeRawValue(final String text) throws IOException {
+            if (scalar()) {
+                super.writeRawValue(text);
+            }
+        }
+
+        @Override
+        public void writeRawValue(final String text, final int offset, final int len) throws IOException {
+            if (scalar()) {
+                super.writeRawValue(text, offset, len);
+            }
+        }
+
+        @Override
+        public void writeRawValue(final char[] text, final int offset, final int len) throws IOException {
+            if (scalar()) {
+                super.writeRawValue(text, offset, len);
+            }
+        }
+
+        @Override
+        public void writeBinary(final Base64Variant b64variant, final byte[] data, final int offset, final int len)
+                throws IOException {
+            if (scalar()) {
+                super.writeBinary(b64variant, data, offset, len);
+            }
+        }
+
+        @Override
+        public int writeBinary(final Base64Variant b64variant, final InputStream data, final int dataLength)
+                throws IOException {
+            return scalar() ? super.writeBinary(b64variant, data, dataLength) : 0;
+        }
+
+        @Override
+        public void writeNumber(final short v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final int v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final long v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final BigInteger v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final double v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final float v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final BigDecimal v) throws IOException {
+            if (scalar()) {
+                super.writeNumber(v);
+            }
+        }
+
+        @Override
+        public void writeNumber(final String encodedValue) throws IOException {
+            if (scalar()) {
+                super.writeNumber(encodedValue);
+            }
+        }
+
+        @Override
+        public void writeNumber(final char[] encodedValueBuffer, final int offset, final int length)
+                throws IOException {
+            if (scalar()) {
+                super.writeNumber(encodedValueBuffer, offset, length);
+            }
+        }
+
+        @Override
+        public void writeBoolean(final boolean state) throws IOException {
+            if (scalar()) {
+                super.writeBoolean(state);
+            }
+        }
+
+        @Override
+        public void writeNull() throws IOException {
+            if (scalar()) {
+                super.writeNull();
+            }
+        }
+
+        @Override
+        public void writeEmbeddedObject(final Object object) throws IOException {
+            if (scalar()) {
+                super.writeEmbeddedObject(object);
+            }
+        }
+
+        /**
+         * @return true if the start of the object or array must be written
+         */
+        private boolean startContainer(final boolean array) throws IOException {
+            if (maskedDepth > 0) {
+                maskedDepth++;
+                return false;
+            }
+
+            List<JsonPointer> pointers = nextValuePointers();
+
+            if (matches(pointers)) {
+                delegate.writeString(MASK);
+                maskedDepth = 1;
+                return false;
+            }
+
+            containers.push(new Container(array, pointers));
+            return true;
+        }
+
+        /**
+         * @return true if the end of the object or array must be written
+         */
+        private boolean endContainer() {
+            if (maskedDepth > 0) {
+                maskedDepth--;
+                return false;
+            }
+
+            containers.pop();
+            return true;
+        }
+
+        /**
+         * @return true if the field name must be written
+         */
+        private boolean fieldName(final String name) {
+            if (maskedDepth > 0) {
+                return false;
+            }
+
+            Container container = containers.peek();
+            if (null != container) {
+                container.fieldName(name);
+            }
+            return true;
+        }
+
+        /**
+         * @return true if the scalar value must be written
+         */
+        private boolean scalar() throws IOException {
+            if (maskedDepth > 0) {
+                return false;
+            }
+
+            if (matches(nextValuePointers())) {
+                delegate.writeString(MASK);
+                return false;
+            }
+
+            return true;
+        }
+
+        private List<JsonPointer> nextValuePointers() {
+            Container container = containers.peek();
+
+            if (null != container) {
+                return container.nextValuePointers();
+            }
+
+            if (rootWritten) {
+                return emptyList();
+            }
+
+            rootWritten = true;
+            return rootPointers;
+        }
+
+        private static boolean matches(final List<JsonPointer> pointers) {
+            for (JsonPointer pointer : pointers) {
+                if (pointer.matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Object or array being written, with the masked pointers relative to it. A {@link #WILDCARD} segment matches
+     * every field of an object and every element of an array.
+     */
+    private static final class Container {
+        private final boolean array;
+        private final List<JsonPointer> pointers;
+        private List<JsonPointer> fieldPointers = emptyList();
+        private int index;
+
+        private Container(final boolean array, final List<JsonPointer> pointers) {
+            this.array = array;
+            this.pointers = pointers;
+        }
+
+        void fieldName(final String name) {
+            fieldPointers = tails(name, -1);
+        }
+
+        List<JsonPointer> nextValuePointers() {
+            return array ? tails(null, index++) : fieldPointers;
+        }
+
+        private List<JsonPointer> tails(final String property, final int elementIndex) {
+            if (pointers.isEmpty()) {
+                return emptyList();
+            }
+
+            List<JsonPointer> tails = new ArrayList<>(pointers.size());
+            for (JsonPointer pointer : pointers) {
+                if (pointer.matches()) {
+                    continue;
+                }
+
+                boolean matches = WILDCARD.equals(pointer.getMatchingProperty())
+                        || (array ? pointer.getMatchingIndex() == elementIndex
+                        : pointer.getMatchingProperty().equals(property));
+
+                if (matches) {
+                    tails.add(pointer.tail());
+                }
+            }
+            return tails;
+        }
+    }
+}
@@ -17,22 +17,22 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.fasterxml.jackson.core.JsonPointer;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.LambdaAsyncAppender;
+import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.Configurator;
-import org.apache.logging.log4j.core.util.IOUtils;
+import org.apache.logging.log4j.core.filter.DynamicThresholdFilter;
+import org.apache.logging.log4j.core.filter.LambdaRateLimitFilter;
+import org.apache.logging.log4j.core.util.KeyValuePair;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -41,8 +41,6 @@ import software.amazon.lambda.powertools.logging.Logging;
 import software.amazon.lambda.powertools.logging.LoggingUtils;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.Optional.empty;
-import static java.util.Optional.ofNullable;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.coldStartDone;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.extractContext;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.getXrayTraceId;
@@ -52,8 +50,9 @@ import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProce
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.placedOnStreamHandler;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.serviceName;
 import static software.amazon.lambda.powertools.logging.LoggingUtils.appendKey;
-import static software.amazon.lambda.powertools.logging.LoggingUtils.appendKeys;
+import static software.amazon.lambda.powertools.logging.LoggingUtils.entry;
 import static software.amazon.lambda.powertools.logging.LoggingUtils.objectMapper;
+import static software.amazon.lambda.powertools.logging.internal.DefaultLambdaFields.appendKeyIfChanged;
 
 @Aspect
 public final class LambdaLoggingAspect {
@@ -63,14 +62,20 @@ public final class LambdaLoggingAspect {
     private static final String LOG_LEVEL = System.getenv("POWERTOOLS_LOG_LEVEL");
     private static final String SAMPLING_RATE = System.getenv("POWERTOOLS_LOGGER_SAMPLE_RATE");
 
-    private static Level LEVEL_AT_INITIALISATION;
+    static final String SAMPLED_KEY = "sampled";
+    private static final Filter SAMPLING_FILTER = samplingFilter();
+    private static volatile Configuration samplingFilterConfiguration;
+    private static final DebugLogBuffer DEBUG_LOG_BUFFER = debugLogBuffer();
+    private static volatile Configuration debugLogBufferConfiguration;
+
+    static final String EVENT_TRUNCATED_KEY = "eventTruncated";
+    private static final Map<Logging, JsonEventWriter> EVENT_WRITERS = new ConcurrentHashMap<>();
+    private static final Map<Logging, CorrelationIdPath> CORRELATION_ID_PATHS = new ConcurrentHashMap<>();
 
     static {
         if (null != LOG_LEVEL) {
             resetLogLevels(Level.getLevel(LOG_LEVEL));
         }
-
-        LEVEL_AT_INITIALISATION = LOG.getLevel();
     }
 
     @SuppressWarnings({"EmptyMethod"})
@@ -81,35 +86,54 @@ public final class LambdaLoggingAspect {
     @Around(value = "callAt(logging) && execution(@Logging * *.*(..))", argNames = "pjp,logging")
     public Object around(ProceedingJoinPoint pjp,
                          Logging logging) throws Throwable {
-        Object[] proceedArgs = pjp.getArgs();
+        boolean bufferingDebugLogs = startDebugLogBuffer(pjp, logging);
 
-        setLogLevelBasedOnSamplingRate(pjp, logging);
+        try {
+            Object[] proceedArgs = pjp.getArgs();
 
-        extractContext(pjp)
-                .ifPresent(context -> {
-                    appendKeys(DefaultLambdaFields.values(context));
-                    appendKey("coldStart", isColdStart() ? "true" : "false");
-                    appendKey("service", serviceName());
-                });
+            setLogLevelBasedOnSamplingRate(pjp, logging);
 
-        getXrayTraceId().ifPresent(xRayTraceId -> appendKey("xray_trace_id", xRayTraceId));
+            extractContext(pjp)
+                    .ifPresent(context -> {
+                        DefaultLambdaFields.appendKeys(context);
+                        appendKeyIfChanged("coldStart", isColdStart() ? "true" : "false");
+                        appendKeyIfChanged("service", serviceName());
+                    });
 
-        if (logging.logEvent()) {
-            proceedArgs = logEvent(pjp);
-        }
+            getXrayTraceId().ifPresent(xRayTraceId -> appendKey("xray_trace_id", xRayTraceId));
 
-        if (!logging.correlationIdPath().isEmpty()) {
-            proceedArgs = captureCorrelationId(logging.correlationIdPath(), pjp);
-        }
+            if (isHandlerMethod(pjp) && placedOnStreamHandler(pjp)) {
+                proceedArgs = logAndCaptureCorrelationIdFromInputStream(pjp, logging);
+            } else {
+                if (logging.logEvent()) {
+                    proceedArgs = logEvent(pjp, logging);
+                }
 
-        Object proceed = pjp.proceed(proceedArgs);
+                if (!logging.correlationIdPath().isEmpty()) {
+                    proceedArgs = captureCorrelationId(logging, pjp);
+                }
+            }
 
-        if(logging.clearState()) {
-            ThreadContext.clearMap();
-        }
+            Object proceed = pjp.proceed(proceedArgs);
+
+            if(logging.clearState()) {
+                ThreadContext.clearMap();
+            }
 
-        coldStartDone();
-        return proceed;
+            coldStartDone();
+            return proceed;
+        } catch (Throwable e) {
+            if (bufferingDebugLogs) {
+                DEBUG_LOG_BUFFER.flush();
+            }
+            throw e;
+        } finally {
+            if (bufferingDebugLogs) {
+                DEBUG_LOG_BUFFER.endInvocation();
+            }
+            LambdaRateLimitFilter.flushAll();
+            LambdaAsyncAppender.flushAll();
+        }
     }
 
     private static void resetLogLevels(Level logLevel) {
@@ -129,19 +153,76 @@ public final class LambdaLoggingAspect {
                 return;
             }
 
-            appendKey("samplingRate", String.valueOf(samplingRate));
+            appendKeyIfChanged("samplingRate", String.valueOf(samplingRate));
 
             if (samplingRate > sample) {
-                resetLogLevels(Level.DEBUG);
+                installSamplingFilter();
+                appendKeyIfChanged(SAMPLED_KEY, "true");
 
-                LOG.debug("Changed log level to DEBUG based on Sampling configuration. " +
+                LOG.debug("Enabled DEBUG logs for this invocation based on Sampling configuration. " +
                         "Sampling Rate: {}, Sampler Value: {}.", samplingRate, sample);
-            } else if (LEVEL_AT_INITIALISATION != LOG.getLevel()) {
-                resetLogLevels(LEVEL_AT_INITIALISATION);
+            } else if (null != ThreadContext.get(SAMPLED_KEY)) {
+                ThreadContext.remove(SAMPLED_KEY);
             }
         }
     }
 
+    /**
+     * Accepts events of level DEBUG and above, whatever the level of their logger, while the {@link #SAMPLED_KEY}
+     * key of the {@link ThreadContext} is set. Other events are left to the level of their logger.
+     */
+    private static Filter samplingFilter() {
+        Filter filter = DynamicThresholdFilter.createFilter(SAMPLED_KEY,
+                new KeyValuePair[]{new KeyValuePair("true", Level.DEBUG.name())},
+                Level.OFF, Filter.Result.ACCEPT, Filter.Result.NEUTRAL);
+        filter.start();
+        return filter;
+    }
+
+    private static DebugLogBuffer debugLogBuffer() {
+        DebugLogBuffer buffer = new DebugLogBuffer();
+        buffer.start();
+        return buffer;
+    }
+
+    /**
+     * Adds the sampling filter to the current configuration once, and again if the configuration is reloaded. Log
+     * levels of loggers are left untouched, so that loggers do not need to be updated on each invocation.
+     */
+    private static void installSamplingFilter() {
+        samplingFilterConfiguration = installFilter(SAMPLING_FILTER, samplingFilterConfiguration);
+    }
+
+    /**
+     * Buffers the debug logs suppressed during the invocation of a handler, when enabled with
+     * {@link Logging#debugBufferSize()}.
+     *
+     * @return true if debug logs are buffered
+     */
+    private static boolean startDebugLogBuffer(final ProceedingJoinPoint pjp,
+                                               final Logging logging) {
+        if (logging.debugBufferSize() <= 0 || !isHandlerMethod(pjp)) {
+            return false;
+        }
+
+        debugLogBufferConfiguration = installFilter(DEBUG_LOG_BUFFER, debugLogBufferConfiguration);
+        DEBUG_LOG_BUFFER.startInvocation(logging.debugBufferSize());
+        return true;
+    }
+
+    /**
+     * @return current configuration, to which the filter is added unless it is the configuration it was installed in
+     */
+    private static Configuration installFilter(final Filter filter,
+                                               final Configuration installedIn) {
+        Configuration configuration = ((LoggerContext) LogManager.getContext(false)).getConfiguration();
+
+        if (configuration != installedIn) {
+            configuration.addFilter(filter);
+        }
+        return configuration;
+    }
+
     private double samplingRate(final Logging logging) {
         if (null != SAMPLING_RATE) {
             try {
@@ -154,108 +235,163 @@ public final class LambdaLoggingAspect {
         return logging.samplingRate();
     }
 
-    private Object[] logEvent(final ProceedingJoinPoint pjp) {
-        Object[] args = pjp.getArgs();
+    private Object[] logEvent(final ProceedingJoinPoint pjp,
+                              final Logging logging) {
+        if (isHandlerMethod(pjp) && placedOnRequestHandler(pjp)) {
+            Object event = pjp.getArgs()[0];
+            JsonEventWriter writer = eventWriter(pjp, logging);
+            StringBuilder json = new StringBuilder();
 
-        if (isHandlerMethod(pjp)) {
-            if (placedOnRequestHandler(pjp)) {
-                Logger log = logger(pjp);
-                asJson(pjp, pjp.getArgs()[0])
-                        .ifPresent(log::info);
-            }
+            try {
+                if (null == writer) {
+                    return pjp.getArgs();
+                }
 
-            if (placedOnStreamHandler(pjp)) {
-                args = logFromInputStream(pjp);
+                if (writer.isPassThrough()) {
+                    logger(pjp).info(objectMapper().writeValueAsString(event));
+                } else {
+                    logEvent(pjp, json, writer.write(objectMapper(), event, json));
+                }
+            } catch (IOException e) {
+                logger(pjp).error("Failed logging event of type {}", null != event ? event.getClass() : null, e);
             }
         }
 
-        return args;
+        return pjp.getArgs();
+    }
+
+    private void logEvent(final ProceedingJoinPoint pjp,
+                          final StringBuilder json,
+                          final boolean truncated) {
+        if (truncated) {
+            logger(pjp).info("{}", json, entry(EVENT_TRUNCATED_KEY, true));
+        } else {
+            logger(pjp).info(json);
+        }
+    }
+
+    /**
+     * @return writer applying the masked paths and maximum size of the annotation, compiled once per annotation,
+     * or null if the masked paths are invalid, in which case the event is not logged rather than logged unmasked
+     */
+    private JsonEventWriter eventWriter(final ProceedingJoinPoint pjp,
+                                        final Logging logging) {
+        try {
+            return EVENT_WRITERS.computeIfAbsent(logging,
+                    annotation -> new JsonEventWriter(annotation.logEventMaskedPaths(), annotation.logEventMaxBytes()));
+        } catch (IllegalArgumentException e) {
+            logger(pjp).error("Event not logged: {}", e.getMessage());
+            return null;
+        }
     }
 
-    private Object[] captureCorrelationId(final String correlationIdPath,
+    private Object[] captureCorrelationId(final Logging logging,
                                           final ProceedingJoinPoint pjp) {
-        Object[] args = pjp.getArgs();
-        if (isHandlerMethod(pjp)) {
-            if (placedOnRequestHandler(pjp)) {
-                Object arg = pjp.getArgs()[0];
-                JsonNode jsonNode = objectMapper().valueToTree(arg);
+        if (isHandlerMethod(pjp) && placedOnRequestHandler(pjp)) {
+            setCorrelationId(pjp, correlationIdPath(logging).valueIn(objectMapper(), pjp.getArgs()[0]));
+        }
 
-                setCorrelationIdFromNode(correlationIdPath, pjp, jsonNode);
+        return pjp.getArgs();
+    }
 
-                return args;
-            }
+    /**
+     * @return JSON Pointer or JMESPath expression of the annotation, compiled once per annotation
+     */
+    private static CorrelationIdPath correlationIdPath(final Logging logging) {
+        return CORRELATION_ID_PATHS.computeIfAbsent(logging,
+                annotation -> CorrelationIdPath.compile(annotation.correlationIdPath()));
+    }
 
-            if (placedOnStreamHandler(pjp)) {
-                try {
-                    byte[] bytes = bytesFromInputStreamSafely((InputStream) pjp.getArgs()[0]);
-                    JsonNode jsonNode = objectMapper().readTree(bytes);
-                    args[0] = new ByteArrayInputStream(bytes);
+    /**
+     * Reads the event of a stream handler once, logs it as is and extracts the correlation id from the same bytes,
+     * which are then passed to the handler.
+     */
+    private Object[] logAndCaptureCorrelationIdFromInputStream(final ProceedingJoinPoint pjp,
+                                                               final Logging logging) {
+        Object[] args = pjp.getArgs();
 
-                    setCorrelationIdFromNode(correlationIdPath, pjp, jsonNode);
+        if (null == args[0] || (!logging.logEvent() && logging.correlationIdPath().isEmpty())) {
+            return args;
+        }
 
-                    return args;
-                } catch (IOException e) {
-                    Logger log = logger(pjp);
-                    log.warn("Failed to capture correlation id on event from supplied input stream.", e);
+        try {
+            EventBytes bytes = EventBytes.readFrom((InputStream) args[0]);
+            args[0] = bytes.asInputStream();
+
+            JsonEventWriter writer = logging.logEvent() ? eventWriter(pjp, logging) : null;
+
+            if (null != writer) {
+                if (writer.isPassThrough()) {
+                    logger(pjp).info(bytes.asString());
+                } else {
+                    StringBuilder json = new StringBuilder();
+                    logEvent(pjp, json, bytes.writeTo(writer, json));
                 }
             }
+
+            if (!logging.correlationIdPath().isEmpty()) {
+                setCorrelationId(pjp, bytes.valueAt(correlationIdPath(logging)));
+            }
+        } catch (IOException e) {
+            Logger log = logger(pjp);
+            log.warn("Failed to log event or capture correlation id from supplied input stream.", e);
         }
 
         return args;
     }
 
-    private void setCorrelationIdFromNode(String correlationIdPath, ProceedingJoinPoint pjp, JsonNode jsonNode) {
-        JsonNode node = jsonNode.at(JsonPointer.compile(correlationIdPath));
-
-        String asText = node.asText();
-        if (null != asText && !asText.isEmpty()) {
-            LoggingUtils.setCorrelationId(asText);
+    private void setCorrelationId(final ProceedingJoinPoint pjp, final String correlationId) {
+        if (null != correlationId && !correlationId.isEmpty()) {
+            LoggingUtils.setCorrelationId(correlationId);
         } else {
             logger(pjp).debug("Unable to extract any correlation id. Is your function expecting supported event type?");
         }
     }
 
-    private Object[] logFromInputStream(final ProceedingJoinPoint pjp) {
-        Object[] args = pjp.getArgs();
-
-        try {
-            byte[] bytes = bytesFromInputStreamSafely((InputStream) pjp.getArgs()[0]);
-            args[0] = new ByteArrayInputStream(bytes);
-            Logger log = logger(pjp);
+    private Logger logger(final ProceedingJoinPoint pjp) {
+        return LogManager.getLogger(pjp.getSignature().getDeclaringType());
+    }
 
-            asJson(pjp, objectMapper().readValue(bytes, Map.class))
-                    .ifPresent(log::info);
+    /**
+     * Raw bytes of a stream handler event, read without charset conversion and shared with the handler without copy.
+     */
+    private static final class EventBytes extends ByteArrayOutputStream {
 
-        } catch (IOException e) {
-            Logger log = logger(pjp);
-            log.debug("Failed to log event from supplied input stream.", e);
+        private EventBytes(final int size) {
+            super(size);
         }
 
-        return args;
-    }
+        static EventBytes readFrom(final InputStream inputStream) throws IOException {
+            EventBytes bytes = new EventBytes(Math.max(inputStream.available(), 1024));
+            byte[] chunk = new byte[8192];
+            int read;
+
+            try (InputStream in = inputStream) {
+                while ((read = in.read(chunk)) != -1) {
+                    bytes.write(chunk, 0, read);
+                }
+            }
 
-    private byte[] bytesFromInputStreamSafely(final InputStream inputStream) throws IOException {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             InputStreamReader reader = new InputStreamReader(inputStream, UTF_8)) {
-            OutputStreamWriter writer = new OutputStreamWriter(out, UTF_8);
+            return bytes;
+        }
 
-            IOUtils.copy(reader, writer);
-            writer.flush();
-            return out.toByteArray();
+        InputStream asInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
         }
-    }
 
-    private Optional<String> asJson(final ProceedingJoinPoint pjp,
-                                    final Object target) {
-        try {
-            return ofNullable(objectMapper().writeValueAsString(target));
-        } catch (JsonProcessingException e) {
-            logger(pjp).error("Failed logging event of type {}", target.getClass(), e);
-            return empty();
+        String asString() {
+            return new String(buf, 0, count, UTF_8);
         }
-    }
 
-    private Logger logger(final ProceedingJoinPoint pjp) {
-        return LogManager.getLogger(pjp.getSignature().getDeclaringType());
+        /**
+         * @return true if the event was truncated
+         */
+        boolean writeTo(final JsonEventWriter writer, final StringBuilder out) throws IOException {
+            return writer.write(objectMapper(), buf, 0, count, out);
+        }
+
+        String valueAt(final CorrelationIdPath path) throws IOException {
+            return path.valueIn(objectMapper(), buf, 0, count);
+        }
     }
 }
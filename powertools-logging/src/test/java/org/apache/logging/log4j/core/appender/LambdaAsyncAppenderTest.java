@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.logging.log4j.core.appender;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.LambdaJsonLayout;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.lambda.powertools.logging.handlers.PowerLogToolEnabled;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static software.amazon.lambda.powertools.logging.LoggingUtils.entry;
+
+class LambdaAsyncAppenderTest {
+
+    private final SlowAppender target = new SlowAppender();
+    private final DefaultConfiguration configuration = new DefaultConfiguration();
+    private LambdaAsyncAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        configuration.addAppender(target);
+
+        appender = LambdaAsyncAppender.newBuilder()
+                .setName("async")
+                .setConfiguration(configuration)
+                .setAppenderRefs(AppenderRef.createAppenderRef("slow", null, null))
+                .setBufferSize(4)
+                .build();
+        appender.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        appender.stop();
+    }
+
+    @Test
+    void shouldWriteAllBufferedEventsInOrderWhenFlushed() {
+        for (int i = 0; i < 10; i++) {
+            appender.append(event("Event " + i));
+        }
+
+        LambdaAsyncAppender.flushAll();
+
+        assertThat(target.messages)
+                .containsExactly("Event 0", "Event 1", "Event 2", "Event 3", "Event 4",
+                        "Event 5", "Event 6", "Event 7", "Event 8", "Event 9");
+    }
+
+    @Test
+    void shouldWriteEventsInOrderWhenFlushTimesOutWhileDispatcherIsWriting() {
+        LambdaAsyncAppender flooded = LambdaAsyncAppender.newBuilder()
+                .setName("flooded")
+                .setConfiguration(configuration)
+                .setAppenderRefs(AppenderRef.createAppenderRef("slow", null, null))
+                .setBufferSize(64)
+                .setFlushTimeoutMillis(1)
+                .build();
+        flooded.start();
+
+        try {
+            for (int i = 0; i < 50; i++) {
+                flooded.append(event("Event " + i));
+            }
+
+            LambdaAsyncAppender.flushAll();
+
+            assertThat(target.messages)
+                    .containsExactlyElementsOf(IntStream.range(0, 50)
+                            .mapToObj(i -> "Event " + i)
+                            .collect(Collectors.toList()));
+            assertThat(target.concurrentWrites).isFalse();
+        } finally {
+            flooded.stop();
+        }
+    }
+
+    @Test
+    void shouldWriteStructuredArgumentsAsTheyWereWhenLogged() {
+        Map<String, Object> order = new HashMap<>();
+        order.put("status", "CREATED");
+
+        for (int i = 0; i < 3; i++) {
+            appender.append(event("Event " + i));
+        }
+        appender.append(event(new ParameterizedMessage("Order {}", entry("order", order))));
+        order.put("status", "SHIPPED");
+
+        LambdaAsyncAppender.flushAll();
+
+        assertThat(target.messages).contains("Order order={status=CREATED}");
+        assertThat(target.lines.get(3))
+                .contains("\"message\":\"Order order={status=CREATED}\"")
+                .contains("\"order\":{\"status\":\"CREATED\"}");
+    }
+
+    @Test
+    void shouldBeFlushedWhenHandlerAnnotatedWithLoggingReturns() {
+        LambdaAsyncAppender buffered = LambdaAsyncAppender.newBuilder()
+                .setName("buffered")
+                .setConfiguration(configuration)
+                .setAppenderRefs(AppenderRef.createAppenderRef("slow", null, null))
+                .setBufferSize(256)
+                .build();
+        buffered.start();
+
+        PowerLogToolEnabled handler = new PowerLogToolEnabled();
+        Context context = mock(Context.class);
+        // First invocation initializes logging, which could take longer than writing the buffered events
+        handler.handleRequest(null, context);
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                buffered.append(event("Event " + i));
+            }
+
+            handler.handleRequest(null, context);
+
+            assertThat(target.messages)
+                    .hasSize(200);
+        } finally {
+            buffered.stop();
+        }
+    }
+
+    @Test
+    void shouldWriteBufferedEventsWhenStopped() {
+        appender.append(event("Event 0"));
+        appender.append(event("Event 1"));
+
+        appender.stop();
+
+        assertThat(target.messages)
+                .containsExactly("Event 0", "Event 1");
+    }
+
+    private static LogEvent event(String message) {
+        return event(new SimpleMessage(message));
+    }
+
+    private static LogEvent event(Message message) {
+        return Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMessage(message)
+                .build();
+    }
+
+    private static class SlowAppender extends AbstractAppender {
+        private final LambdaJsonLayout layout = LambdaJsonLayout.createDefaultLayout();
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final List<String> lines = new CopyOnWriteArrayList<>();
+        private final AtomicInteger writing = new AtomicInteger();
+        private final AtomicBoolean concurrentWrites = new AtomicBoolean();
+
+        SlowAppender() {
+            super("slow", null, null, true, null);
+            start();
+        }
+
+        @Override
+        public void append(LogEvent event) {
+            if (writing.incrementAndGet() > 1) {
+                concurrentWrites.set(true);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(event.getMessage().getFormattedMessage());
+            lines.add(layout.toSerializable(event));
+            writing.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.logging.log4j.core.filter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Filter.Result;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.LambdaAsyncAppender;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LambdaRateLimitFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final LambdaRateLimitFilter filter = new LambdaRateLimitFilter(Result.NEUTRAL, Result.DENY, 2, 100, 2, now::get);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ThreadContext.clearAll();
+        FileChannel.open(Paths.get("target/logfile.json"), StandardOpenOption.WRITE).truncate(0).close();
+    }
+
+    @Test
+    void shouldDropEntriesOverLimitAndLogSummaryOnNextInterval() throws IOException {
+        assertThat(filter.filter(event("Failed order {}", 1))).isEqualTo(Result.NEUTRAL);
+        assertThat(filter.filter(event("Failed order {}", 2))).isEqualTo(Result.NEUTRAL);
+        assertThat(filter.filter(event("Failed order {}", 3))).isEqualTo(Result.DENY);
+        assertThat(filter.filter(event("Failed order {}", 4))).isEqualTo(Result.DENY);
+        assertThat(filter.filter(event("Other {}", 1))).isEqualTo(Result.NEUTRAL);
+
+        now.addAndGet(100);
+
+        assertThat(filter.filter(event("Failed order {}", 5))).isEqualTo(Result.NEUTRAL);
+
+        assertThat(loggedMessages())
+                .containsExactly("Suppressed 2 repeated log entries in the last 100 ms: Failed order {}");
+    }
+
+    @Test
+    void shouldLogSummaryWhenFlushed() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            filter.filter(event("Failed order {}", i));
+        }
+
+        now.addAndGet(10);
+        filter.flush();
+
+        assertThat(loggedMessages())
+                .containsExactly("Suppressed 3 repeated log entries in the last 10 ms: Failed order {}");
+
+        assertThat(filter.filter(event("Failed order {}", 6))).isEqualTo(Result.NEUTRAL);
+    }
+
+    @Test
+    void shouldNotLimitTemplatesOverMaxTemplates() {
+        filter.filter(event("First {}", 1));
+        filter.filter(event("Second {}", 1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(filter.filter(event("Third {}", i))).isEqualTo(Result.NEUTRAL);
+        }
+    }
+
+    @Test
+    void shouldStopTrackingTemplatesNotLoggedSincePreviousFlush() {
+        filter.filter(event("First {}", 1));
+        filter.filter(event("Second {}", 1));
+        filter.flush();
+
+        filter.filter(event("Second {}", 2));
+        filter.flush();
+
+        assertThat(filter.filter(event("Third {}", 1))).isEqualTo(Result.NEUTRAL);
+        assertThat(filter.filter(event("Third {}", 2))).isEqualTo(Result.NEUTRAL);
+        assertThat(filter.filter(event("Third {}", 3))).isEqualTo(Result.DENY);
+    }
+
+    @Test
+    void shouldNotLimitSummaries() throws IOException {
+        LambdaRateLimitFilter contextFilter = new LambdaRateLimitFilter(Result.NEUTRAL, Result.DENY, 2, 100, 10,
+                now::get);
+        Configuration configuration = ((LoggerContext) LogManager.getContext(false)).getConfiguration();
+        configuration.addFilter(contextFilter);
+
+        try {
+            Logger logger = LogManager.getLogger(LambdaRateLimitFilterTest.class);
+            for (int i = 0; i < 3; i++) {
+                logger.warn("Template " + i + " {}", 1);
+                logger.warn("Template " + i + " {}", 2);
+                logger.warn("Template " + i + " {}", 3);
+            }
+
+            contextFilter.flush();
+        } finally {
+            configuration.removeFilter(contextFilter);
+        }
+
+        assertThat(loggedMessages())
+                .filteredOn(message -> String.valueOf(message).startsWith("Suppressed"))
+                .containsExactly("Suppressed 1 repeated log entries in the last 0 ms: Template 0 {}",
+                        "Suppressed 1 repeated log entries in the last 0 ms: Template 1 {}",
+                        "Suppressed 1 repeated log entries in the last 0 ms: Template 2 {}");
+    }
+
+    private static LogEvent event(String template, int parameter) {
+        return Log4jLogEvent.newBuilder()
+                .setLoggerName(LambdaRateLimitFilterTest.class.getName())
+                .setLevel(Level.WARN)
+                .setMessage(new ParameterizedMessage(template, parameter))
+                .build();
+    }
+
+    private static List<Object> loggedMessages() throws IOException {
+        LambdaAsyncAppender.flushAll();
+        ObjectMapper mapper = new ObjectMapper();
+
+        return Files.lines(Paths.get("target/logfile.json"))
+                .map(line -> {
+                    try {
+                        return mapper.readValue(line, Map.class).get("message");
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -20,6 +20,10 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 
 import com.amazonaws.services.lambda.runtime.Context;
@@ -27,6 +31,17 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.util.KeyValuePair;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -34,12 +49,14 @@ import software.amazon.lambda.powertools.logging.handlers.PowerLogToolEnabled;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolSamplingEnabled;
 import software.amazon.lambda.powertools.logging.internal.LambdaLoggingAspect;
 
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
 import static java.util.Collections.emptyMap;
-import static org.apache.commons.lang3.reflect.FieldUtils.writeStaticField;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
+import static software.amazon.lambda.powertools.logging.LoggingUtils.entry;
 
 class LambdaJsonLayoutTest {
 
@@ -115,11 +132,140 @@ class LambdaJsonLayoutTest {
                 });
     }
 
+    @Test
+    void shouldOnlyLogDebugEventsOfSampledInvocationWithoutChangingLoggerLevels() throws IOException {
+        new PowerLogToolSamplingEnabled().handleRequest("test", context);
+
+        assertThat(LogManager.getRootLogger().getLevel())
+                .isEqualTo(Level.INFO);
+
+        assertThat(Files.lines(Paths.get("target/logfile.json")))
+                .hasSize(3)
+                .allSatisfy(line -> assertThat(parseToMap(line))
+                        .doesNotContainKey("sampled"));
+
+        handler.handleRequest("test", context);
+
+        assertThat(Files.lines(Paths.get("target/logfile.json")))
+                .hasSize(4)
+                .satisfies(line -> assertThat(parseToMap(line.get(3)))
+                        .containsEntry("level", "INFO")
+                        .containsEntry("message", "Test event")
+                        .doesNotContainKey("sampled"));
+    }
+
+    @Test
+    void shouldWriteThrownAndContextDataAsEscapedJson() {
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.ERROR)
+                .setMessage(new SimpleMessage("Failed \"quoted\"\nline"))
+                .setThrown(new IllegalStateException("Boom"))
+                .setContextData(new SortedArrayStringMap(singletonMap("key", "value\twith tab")))
+                .build();
+
+        Map<String, Object> line = parseToMap(LambdaJsonLayout.createDefaultLayout().toSerializable(event));
+
+        assertThat(line)
+                .containsEntry("message", "Failed \"quoted\"\nline")
+                .containsEntry("key", "value\twith tab")
+                .containsKey("timestamp");
+
+        assertThat((Map<String, Object>) line.get("thrown"))
+                .containsEntry("name", IllegalStateException.class.getName())
+                .containsEntry("message", "Boom")
+                .hasEntrySatisfying("extendedStackTrace", trace -> assertThat((String) trace)
+                        .startsWith("java.lang.IllegalStateException: Boom\n\tat "));
+    }
+
+    @Test
+    void shouldWriteStructuredArgumentsAsJson() {
+        Map<String, Object> order = new HashMap<>();
+        order.put("id", 42);
+        order.put("items", Arrays.asList("book", "pen"));
+
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMessage(new ParameterizedMessage("Processed {}", entry("order", order), entry("status", "DONE")))
+                .build();
+
+        Map<String, Object> line = parseToMap(LambdaJsonLayout.createDefaultLayout().toSerializable(event));
+
+        assertThat(line)
+                .containsEntry("message", "Processed order=" + order)
+                .containsEntry("order", order)
+                .containsEntry("status", "DONE");
+    }
+
+    @Test
+    void shouldWriteMarkerAndAdditionalFields() {
+        Marker marker = MarkerManager.getMarker("AUDIT").setParents(MarkerManager.getMarker("SECURITY"));
+        LambdaJsonLayout layout = LambdaJsonLayout.newBuilder()
+                .setConfiguration(new DefaultConfiguration())
+                .setAdditionalFields(new KeyValuePair[]{
+                        new KeyValuePair("team", "payments"),
+                        new KeyValuePair("customer", "${ctx:customerId}")})
+                .build();
+
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMarker(marker)
+                .setMessage(new SimpleMessage("Audited"))
+                .setContextData(new SortedArrayStringMap(singletonMap("customerId", "c-42")))
+                .build();
+
+        Map<String, Object> line = parseToMap(layout.toSerializable(event));
+
+        assertThat(line)
+                .containsEntry("team", "payments")
+                .containsEntry("customer", "c-42");
+        assertThat((Map<String, Object>) line.get("marker"))
+                .containsEntry("name", "AUDIT")
+                .containsEntry("parents", Arrays.asList(singletonMap("name", "SECURITY")));
+    }
+
+    @Test
+    void shouldWriteObjectMessagesAsJsonObjectWhenEnabled() {
+        LambdaJsonLayout layout = LambdaJsonLayout.newBuilder()
+                .setConfiguration(new DefaultConfiguration())
+                .setObjectMessageAsJsonObject(true)
+                .setIncludeNullDelimiter(true)
+                .build();
+
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMessage(new ObjectMessage(singletonMap("id", 42)))
+                .build();
+
+        String serialized = layout.toSerializable(event);
+
+        assertThat(serialized).endsWith("}\0");
+        assertThat(parseToMap(serialized.substring(0, serialized.length() - 1)))
+                .containsEntry("message", singletonMap("id", 42));
+    }
+
+    @Test
+    void shouldFormatTimestampAsIsoZonedDateTime() {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        LambdaJsonLayout.TimestampFormatter formatter = new LambdaJsonLayout.TimestampFormatter(zone);
+
+        for (long millis : new long[]{1634630400000L, 1634630400100L, 1634630400120L, 1634630400123L,
+                1634630400999L, 1634630401000L, -1L}) {
+            StringBuilder buffer = new StringBuilder();
+            formatter.formatTo(millis, buffer);
+
+            assertThat(buffer.toString())
+                    .isEqualTo(ISO_ZONED_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(zone)));
+        }
+    }
+
     private void resetLogLevel(Level level) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
         Method resetLogLevels = LambdaLoggingAspect.class.getDeclaredMethod("resetLogLevels", Level.class);
         resetLogLevels.setAccessible(true);
         resetLogLevels.invoke(null, level);
-        writeStaticField(LambdaLoggingAspect.class, "LEVEL_AT_INITIALISATION", level, true);
     }
 
     private Map<String, Object> parseToMap(String stringAsJson) {
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.handlers;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.lambda.powertools.logging.Logging;
+
+public class PowerLogToolDebugBufferEnabled implements RequestHandler<String, Object> {
+    private final Logger LOG = LogManager.getLogger(PowerLogToolDebugBufferEnabled.class);
+
+    @Override
+    @Logging(debugBufferSize = 2)
+    public Object handleRequest(String input, Context context) {
+        LOG.debug("Test debug event {}", 1);
+        LOG.debug("Test debug event {}", 2);
+        LOG.debug("Test debug event {}", 3);
+        LOG.info("Test event");
+
+        if ("error".equals(input)) {
+            LOG.error("Test error event");
+        }
+
+        if ("throw".equals(input)) {
+            throw new IllegalStateException("Test failure");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorrelationIdPathTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private byte[] rawEvent;
+    private APIGatewayProxyRequestEvent event;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rawEvent = Files.readAllBytes(Paths.get("src/test/resources/apiGatewayProxyEventV1.json"));
+        event = MAPPER.readValue(rawEvent, APIGatewayProxyRequestEvent.class);
+    }
+
+    @Test
+    void shouldConvertFieldAndIndexExpressionsToPointers() {
+        assertThat(CorrelationIdPath.asPointer("requestContext.requestId"))
+                .isEqualTo(JsonPointer.compile("/requestContext/requestId"));
+
+        assertThat(CorrelationIdPath.asPointer("multiValueHeaders.\"accept-encoding\"[0]"))
+                .isEqualTo(JsonPointer.compile("/multiValueHeaders/accept-encoding/0"));
+
+        assertThat(CorrelationIdPath.asPointer("Records[0].\"a/b\""))
+                .isEqualTo(JsonPointer.compile("/Records/0/a~1b"));
+    }
+
+    @Test
+    void shouldNotConvertOtherExpressionsToPointers() {
+        assertThat(CorrelationIdPath.asPointer("headers.Host || requestContext.requestId"))
+                .isNull();
+
+        assertThat(CorrelationIdPath.asPointer(".requestContext"))
+                .isNull();
+
+        assertThat(CorrelationIdPath.asPointer("Records[-1].messageId"))
+                .isNull();
+
+        assertThat(CorrelationIdPath.asPointer("Records[*].messageId"))
+                .isNull();
+    }
+
+    @Test
+    void shouldExtractSameValueFromPojoAndRawEvent() throws IOException {
+        for (String path : new String[]{"/requestContext/requestId", "requestContext.requestId",
+                "multiValueHeaders.\"accept-encoding\"[0]", "headers.Missing || headers.Host"}) {
+            CorrelationIdPath correlationIdPath = CorrelationIdPath.compile(path);
+
+            assertThat(correlationIdPath.valueIn(MAPPER, event))
+                    .isNotEmpty()
+                    .isEqualTo(correlationIdPath.valueIn(MAPPER, rawEvent, 0, rawEvent.length));
+        }
+    }
+
+    @Test
+    void shouldReturnNullForMissingOrNonScalarValues() throws IOException {
+        for (String path : new String[]{"/requestContext/missing", "/requestContext", "body", "headers.*"}) {
+            CorrelationIdPath correlationIdPath = CorrelationIdPath.compile(path);
+
+            assertThat(correlationIdPath.valueIn(MAPPER, event))
+                    .isNull();
+
+            assertThat(correlationIdPath.valueIn(MAPPER, rawEvent, 0, rawEvent.length))
+                    .isNull();
+        }
+    }
+
+    @Test
+    void shouldWalkMapsAndListsOfEvent() {
+        Object event = singletonMap("records", singletonList(singletonMap("id", 42)));
+
+        assertThat(CorrelationIdPath.compile("records[0].id").valueIn(MAPPER, event))
+                .isEqualTo("42");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.logging.internal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class JsonEventWriterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void shouldMaskScalarsObjectsAndArrayElements() throws IOException {
+        JsonEventWriter writer = new JsonEventWriter(new String[]{"/user/password", "/user/address", "/cards/1"}, 0);
+        StringBuilder out = new StringBuilder();
+
+        boolean truncated = writer.write(MAPPER, event(), out);
+
+        assertThat(truncated)
+                .isFalse();
+
+        assertThat(out.toString())
+                .isEqualTo("{\"user\":{\"name\":\"Jane\",\"password\":\"*****\",\"address\":\"*****\"}," +
+                        "\"cards\":[\"1111\",\"*****\",\"3333\"],\"total\":42}");
+    }
+
+    @Test
+    void shouldMaskSameValuesWhenCopyingRawEvent() throws IOException {
+        JsonEventWriter writer = new JsonEventWriter(new String[]{"/user/password", "/user/address", "/cards/1"}, 0);
+        byte[] event = MAPPER.writeValueAsBytes(event());
+        StringBuilder fromObject = new StringBuilder();
+        StringBuilder fromBytes = new StringBuilder();
+
+        writer.write(MAPPER, event(), fromObject);
+        writer.write(MAPPER, event, 0, event.length, fromBytes);
+
+        assertThat(fromBytes.toString())
+                .isEqualTo(fromObject.toString());
+    }
+
+    @Test
+    void shouldMaskEveryElementOrFieldOnWildcardSegment() throws IOException {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("messageId", "1");
+        first.put("body", "secret");
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("messageId", "2");
+        second.put("body", "other secret");
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("Records", Arrays.asList(first, second));
+        event.put("user", Collections.singletonMap("name", "Jane"));
+
+        JsonEventWriter writer = new JsonEventWriter(new String[]{"/Records/*/body", "/user/*"}, 0);
+        StringBuilder out = new StringBuilder();
+
+        writer.write(MAPPER, event, out);
+
+        assertThat(out.toString())
+                .isEqualTo("{\"Records\":[{\"messageId\":\"1\",\"body\":\"*****\"}," +
+                        "{\"messageId\":\"2\",\"body\":\"*****\"}],\"user\":{\"name\":\"*****\"}}");
+    }
+
+    @Test
+    void shouldRejectMaskedPathsNotStartingWithSlash() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new JsonEventWriter(new String[]{"body.password"}, 0))
+                .withMessage("Invalid logEventMaskedPaths entry \"body.password\", " +
+                        "expected a JSON Pointer such as /body/password");
+    }
+
+    @Test
+    void shouldMaskWholeEventOnRootPointer() throws IOException {
+        JsonEventWriter writer = new JsonEventWriter(new String[]{""}, 0);
+        StringBuilder out = new StringBuilder();
+
+        writer.write(MAPPER, event(), out);
+
+        assertThat(out.toString())
+                .isEqualTo("\"*****\"");
+    }
+
+    @Test
+    void shouldStopWritingAtMaxBytes() throws IOException {
+        JsonEventWriter writer = new JsonEventWriter(new String[0], 10);
+        StringBuilder out = new StringBuilder();
+
+        boolean truncated = writer.write(MAPPER, Collections.singletonMap("name", "Zoë Zoë Zoë"), out);
+
+        assertThat(truncated)
+                .isTrue();
+
+        assertThat(out.toString())
+                .isEqualTo("{\"name\":\"Z");
+        assertThat(out.toString().getBytes(UTF_8))
+                .hasSizeLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void shouldPassThroughWithoutMaskedPathsOrMaxBytes() {
+        assertThat(new JsonEventWriter(new String[0], 0).isPassThrough())
+                .isTrue();
+
+        assertThat(new JsonEventWriter(new String[0], 100).isPassThrough())
+                .isFalse();
+    }
+
+    private static Map<String, Object> event() {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("name", "Jane");
+        user.put("password", "secret");
+        user.put("address", Collections.singletonMap("city", "Paris"));
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("user", user);
+        event.put("cards", Arrays.asList("1111", "2222", "3333"));
+        event.put("total", 42);
+        return event;
+    }
+}
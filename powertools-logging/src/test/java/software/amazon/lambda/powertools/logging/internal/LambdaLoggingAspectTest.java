@@ -25,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -41,6 +42,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.util.IndexedStringMap;
 import org.json.JSONException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -52,14 +54,20 @@ import software.amazon.lambda.powertools.core.internal.SystemWrapper;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolAlbCorrelationId;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolApiGatewayHttpApiCorrelationId;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolApiGatewayRestApiCorrelationId;
+import software.amazon.lambda.powertools.logging.handlers.PowerLogToolDebugBufferEnabled;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolEnabled;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolEnabledForStream;
 import software.amazon.lambda.powertools.logging.handlers.PowerLogToolEnabledWithClearState;
+import software.amazon.lambda.powertools.logging.handlers.PowerLogToolJmesPathCorrelationId;
 import software.amazon.lambda.powertools.logging.handlers.PowerToolDisabled;
 import software.amazon.lambda.powertools.logging.handlers.PowerToolDisabledForStream;
 import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventEnabled;
 import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventEnabledForStream;
 import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventEnabledWithCustomMapper;
+import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventInvalidMaskedPaths;
+import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventMaskedEnabledForStream;
+import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventTruncatedEnabled;
+import software.amazon.lambda.powertools.logging.handlers.PowerToolLogEventWithCorrelationIdEnabledForStream;
 
 import static com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.RequestParametersEntity;
 import static com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.ResponseElementsEntity;
@@ -73,6 +81,7 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.joining;
 import static org.apache.commons.lang3.reflect.FieldUtils.writeStaticField;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
@@ -117,6 +126,25 @@ class LambdaLoggingAspectTest {
                 .containsKey("service");
     }
 
+    @Test
+    void shouldComputeStaticLambdaContextFieldsOnceAndUpdateRequestIdOnEachInvocation() {
+        requestHandler.handleRequest(new Object(), context);
+        IndexedStringMap staticValues = DefaultLambdaFields.staticValues(context);
+
+        when(context.getAwsRequestId()).thenReturn("OtherRequestId");
+        requestHandler.handleRequest(new Object(), context);
+
+        assertThat(DefaultLambdaFields.staticValues(context))
+                .isSameAs(staticValues)
+                .satisfies(values -> assertThat(values.isFrozen()).isTrue());
+
+        assertThat(ThreadContext.getImmutableContext())
+                .hasSize(EXPECTED_CONTEXT_SIZE)
+                .containsEntry(DefaultLambdaFields.FUNCTION_ARN.getName(), "testArn")
+                .containsEntry(DefaultLambdaFields.FUNCTION_REQUEST_ID.getName(), "OtherRequestId")
+                .containsEntry("coldStart", "false");
+    }
+
     @Test
     void shouldSetLambdaContextForStreamHandlerWhenEnabled() throws IOException {
         requestStreamHandler = new PowerLogToolEnabledForStream();
@@ -234,6 +262,117 @@ class LambdaLoggingAspectTest {
         assertEquals(expectEvent, event, false);
     }
 
+    @Test
+    void shouldLogEventAndCaptureCorrelationIdForStreamInSinglePass() throws IOException {
+        requestStreamHandler = new PowerToolLogEventWithCorrelationIdEnabledForStream();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] event = Files.readAllBytes(Paths.get("src/test/resources/apiGatewayProxyEventV1.json"));
+
+        requestStreamHandler.handleRequest(new ByteArrayInputStream(event), output, context);
+
+        assertThat(output.toByteArray())
+                .isEqualTo(event);
+
+        assertThat(ThreadContext.getImmutableContext())
+                .containsEntry("correlation_id", "77375676-xmpl-4b79-853a-f982474efe18");
+
+        Map<String, Object> log = parseToMap(Files.lines(Paths.get("target/logfile.json")).collect(joining()));
+
+        assertThat(log)
+                .containsEntry("message", new String(event, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldLogEventWithMaskedPathsForStream() throws IOException {
+        requestStreamHandler = new PowerToolLogEventMaskedEnabledForStream();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] event = Files.readAllBytes(Paths.get("src/test/resources/apiGatewayProxyEventV1.json"));
+
+        requestStreamHandler.handleRequest(new ByteArrayInputStream(event), output, context);
+
+        assertThat(output.toByteArray())
+                .isEqualTo(event);
+
+        Map<String, Object> log = parseToMap(Files.lines(Paths.get("target/logfile.json")).collect(joining()));
+        Map<String, Object> loggedEvent = parseToMap((String) log.get("message"));
+
+        assertThat(loggedEvent)
+                .containsEntry("multiValueHeaders", "*****")
+                .containsEntry("httpMethod", "GET");
+
+        assertThat((Map<String, Object>) loggedEvent.get("headers"))
+                .containsEntry("Host", "*****")
+                .containsEntry("accept-encoding", "gzip, deflate, br");
+
+        assertThat((Map<String, Object>) loggedEvent.get("requestContext"))
+                .containsEntry("requestId", "*****")
+                .containsEntry("path", "/Prod/");
+    }
+
+    @Test
+    void shouldTruncateLoggedEventAboveMaxBytes() throws IOException {
+        requestHandler = new PowerToolLogEventTruncatedEnabled();
+
+        requestHandler.handleRequest(s3EventNotification(), context);
+
+        Map<String, Object> log = parseToMap(Files.lines(Paths.get("target/logfile.json")).collect(joining()));
+
+        assertThat((String) log.get("message"))
+                .startsWith("{\"records\":[{")
+                .hasSize(64);
+
+        assertThat(log)
+                .containsEntry("eventTruncated", true);
+    }
+
+    @Test
+    void shouldReportInvalidMaskedPathsWithoutFailingHandler() throws IOException {
+        requestHandler = new PowerToolLogEventInvalidMaskedPaths();
+
+        Object result = requestHandler.handleRequest(Collections.singletonMap("body", "secret"), context);
+
+        assertThat(result)
+                .isEqualTo("handled");
+
+        assertThat(loggedMessages())
+                .containsExactly("Event not logged: Invalid logEventMaskedPaths entry \"body.password\", " +
+                        "expected a JSON Pointer such as /body/password");
+    }
+
+    @Test
+    void shouldDiscardBufferedDebugLogsOnSuccess() throws IOException {
+        new PowerLogToolDebugBufferEnabled().handleRequest("success", context);
+
+        assertThat(loggedMessages())
+                .containsExactly("Test event");
+    }
+
+    @Test
+    void shouldWriteLatestBufferedDebugLogsBeforeLoggedError() throws IOException {
+        new PowerLogToolDebugBufferEnabled().handleRequest("error", context);
+
+        assertThat(loggedMessages())
+                .containsExactly("Test event", "Dropped 1 older debug log entries buffered during this invocation",
+                        "Test debug event 2", "Test debug event 3", "Test error event");
+
+        Map<String, Object> debugLog = parseToMap(Files.readAllLines(Paths.get("target/logfile.json")).get(2));
+
+        assertThat(debugLog)
+                .containsEntry("level", "DEBUG")
+                .containsEntry(DefaultLambdaFields.FUNCTION_REQUEST_ID.getName(), "RequestId")
+                .containsEntry("loggerName", PowerLogToolDebugBufferEnabled.class.getName());
+    }
+
+    @Test
+    void shouldWriteBufferedDebugLogsWhenHandlerThrows() throws IOException {
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new PowerLogToolDebugBufferEnabled().handleRequest("throw", context));
+
+        assertThat(loggedMessages())
+                .containsExactly("Test event", "Dropped 1 older debug log entries buffered during this invocation",
+                        "Test debug event 2", "Test debug event 3");
+    }
+
     @Test
     void shouldLogServiceNameWhenEnvVarSet() throws IllegalAccessException {
         writeStaticField(LambdaHandlerProcessor.class, "SERVICE_NAME", "testService", true);
@@ -270,6 +409,17 @@ class LambdaLoggingAspectTest {
                 .containsEntry("correlation_id", event.getRequestContext().getRequestId());
     }
 
+    @ParameterizedTest
+    @Event(value = "apiGatewayProxyEventV1.json", type = APIGatewayProxyRequestEvent.class)
+    void shouldLogCorrelationIdFromJmesPathExpression(APIGatewayProxyRequestEvent event) {
+        RequestHandler<APIGatewayProxyRequestEvent, Object> handler = new PowerLogToolJmesPathCorrelationId();
+        handler.handleRequest(event, context);
+
+        assertThat(ThreadContext.getImmutableContext())
+                .hasSize(EXPECTED_CONTEXT_SIZE + 1)
+                .containsEntry("correlation_id", event.getHeaders().get("X-Amzn-Trace-Id"));
+    }
+
     @ParameterizedTest
     @Event(value = "apiGatewayProxyEventV2.json", type = APIGatewayV2HTTPEvent.class)
     void shouldLogCorrelationIdOnAPIGatewayV2HTTPEvent(APIGatewayV2HTTPEvent event) {
@@ -324,7 +474,6 @@ class LambdaLoggingAspectTest {
         Method resetLogLevels = LambdaLoggingAspect.class.getDeclaredMethod("resetLogLevels", Level.class);
         resetLogLevels.setAccessible(true);
         resetLogLevels.invoke(null, level);
-        writeStaticField(LambdaLoggingAspect.class, "LEVEL_AT_INITIALISATION", level, true);
     }
 
     private S3EventNotification s3EventNotification() {
@@ -351,6 +500,12 @@ class LambdaLoggingAspectTest {
         return new S3EventNotification(singletonList(record));
     }
 
+    private List<Object> loggedMessages() throws IOException {
+        return Files.readAllLines(Paths.get("target/logfile.json")).stream()
+                .map(line -> parseToMap(line).get("message"))
+                .collect(Collectors.toList());
+    }
+
     private Map<String, Object> parseToMap(String stringAsJson) {
         try {
             return new ObjectMapper().readValue(stringAsJson, Map.class);
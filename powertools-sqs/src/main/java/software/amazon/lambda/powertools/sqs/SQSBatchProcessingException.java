@@ -1,6 +1,7 @@
 package software.amazon.lambda.powertools.sqs;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
@@ -22,6 +23,8 @@ import static java.util.stream.Collectors.joining;
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, boolean, Class)}</li>
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsMessageHandler)}</li>
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, boolean, SqsMessageHandler)}</li>
+ *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, Class)}</li>
+ *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, SqsMessageHandler)}</li>
  * </ul>
  * </p>
  */
@@ -30,17 +33,33 @@ public class SQSBatchProcessingException extends RuntimeException {
     private final List<Exception> exceptions;
     private final List<SQSMessage> failures;
     private final List<Object> returnValues;
+    private String message;
+    private List<Failure> failureDetails;
 
     public <T> SQSBatchProcessingException(final List<Exception> exceptions,
                                            final List<SQSMessage> failures,
                                            final List<T> successReturns) {
-        super(exceptions.stream()
-                .map(Throwable::toString)
-                .collect(joining("\n")));
+        this(new ArrayList<>(exceptions), new ArrayList<>(failures), new ArrayList<>(successReturns), true);
+    }
 
-        this.exceptions = new ArrayList<>(exceptions);
-        this.failures = new ArrayList<>(failures);
-        this.returnValues = new ArrayList<>(successReturns);
+    /**
+     * Creates the exception without copying given lists, which must not be modified afterwards. Message of the
+     * exception and {@link #getFailureDetails()} are only built when first requested.
+     *
+     * @param exceptions         exceptions thrown while processing failed messages, in the same order as failures
+     * @param failures           messages which failed processing
+     * @param successReturns     returns of successfully processed messages
+     * @param writableStackTrace whether stack trace of this exception is captured
+     */
+    public <T> SQSBatchProcessingException(final List<Exception> exceptions,
+                                           final List<SQSMessage> failures,
+                                           final List<T> successReturns,
+                                           final boolean writableStackTrace) {
+        super(null, null, true, writableStackTrace);
+
+        this.exceptions = Collections.unmodifiableList(exceptions);
+        this.failures = Collections.unmodifiableList(failures);
+        this.returnValues = Collections.unmodifiableList(successReturns);
     }
 
     /**
@@ -67,10 +86,72 @@ public class SQSBatchProcessingException extends RuntimeException {
         return failures;
     }
 
+    /**
+     * Compact view of failed messages, holding only message id and exception type and message, which is cheap to
+     * log or serialize even for large batches.
+     * @return List of failures, in the same order as {@link #getFailures()}
+     */
+    public List<Failure> getFailureDetails() {
+        if (null == failureDetails) {
+            List<Failure> details = new ArrayList<>(failures.size());
+
+            for (int i = 0; i < failures.size(); i++) {
+                details.add(new Failure(failures.get(i).getMessageId(), exceptions.get(i)));
+            }
+
+            failureDetails = Collections.unmodifiableList(details);
+        }
+
+        return failureDetails;
+    }
+
+    @Override
+    public String getMessage() {
+        if (null == message) {
+            message = exceptions.stream()
+                    .map(Throwable::toString)
+                    .collect(joining("\n"));
+        }
+
+        return message;
+    }
+
     @Override
     public void printStackTrace() {
         for (Exception exception : exceptions) {
             exception.printStackTrace();
         }
     }
+
+    /**
+     * Failed message id along with type and message of the exception it failed with.
+     */
+    public static final class Failure {
+        private final String messageId;
+        private final String exceptionClass;
+        private final String exceptionMessage;
+
+        Failure(final String messageId, final Exception exception) {
+            this.messageId = messageId;
+            this.exceptionClass = exception.getClass().getName();
+            this.exceptionMessage = exception.getMessage();
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public String getExceptionClass() {
+            return exceptionClass;
+        }
+
+        public String getExceptionMessage() {
+            return exceptionMessage;
+        }
+
+        @Override
+        public String toString() {
+            return messageId + ": " + exceptionClass + (null != exceptionMessage ? ": " + exceptionMessage : "");
+        }
+    }
 }
@@ -32,6 +32,28 @@ import static com.amazonaws.services.lambda.runtime.events.SQSEvent.*;
  * {@link SqsBatch#suppressException()} to true. By default its value is false
  * </p>
  *
+ * <p>
+ * To avoid the whole batch being delivered again when lambda function runs out of time, set
+ * {@link SqsBatch#remainingTimeMarginMillis()}. Once remaining execution time falls below it, no further messages
+ * are processed and they are reported as failed.
+ * </p>
+ *
+ * <p>
+ * Transient failures can be retried within the same invocation via {@link SqsBatch#retryOn()} and
+ * {@link SqsBatch#maxAttempts()}, and messages failing repeatedly can be sent to a dead letter queue via
+ * {@link SqsBatch#deadLetterQueueUrl()}. Refer {@link SqsRetryPolicy} for details.
+ * </p>
+ *
+ * <p>
+ * When processing a batch may take longer than the visibility timeout of the queue, set
+ * {@link SqsBatch#visibilityTimeoutSeconds()} so that visibility of in flight messages is extended in the background.
+ * </p>
+ *
+ * <p>
+ * To protect a downstream service, {@link SqsBatch#maxMessagesPerSecond()} limits the rate at which messages are passed
+ * to the handler. Refer {@link SqsRateLimiter} for details.
+ * </p>
+ *
  * <pre>
  * public class SqsMessageHandler implements RequestHandler<SQSEvent, String> {
  *
@@ -59,4 +81,69 @@ public @interface SqsBatch {
     Class<? extends SqsMessageHandler<Object>> value();
 
     boolean suppressException() default false;
+
+    /**
+     * Remaining execution time in milliseconds below which no further messages are picked up for processing.
+     * Messages which were not processed are reported as failed, while successfully processed messages are deleted
+     * from SQS so they are not delivered again. Default is 0, which disables the check.
+     */
+    long remainingTimeMarginMillis() default 0;
+
+    /**
+     * Total number of attempts per message within a single invocation when it fails with one of {@link #retryOn()}
+     * exceptions. Default is 1, which disables retries.
+     */
+    int maxAttempts() default 1;
+
+    /**
+     * Exception types, including their subtypes, which are considered transient and retried.
+     */
+    Class<? extends Exception>[] retryOn() default {};
+
+    /**
+     * Upper bound of the jittered delay before the first retry. Doubled for each further retry.
+     */
+    long retryBaseDelayMillis() default 100;
+
+    /**
+     * Maximum delay between two attempts.
+     */
+    long retryMaxDelayMillis() default 5000;
+
+    /**
+     * Url of the queue failed messages are sent to once they have been received {@link #maxReceiveCount()} times.
+     * Such messages are deleted from the source queue and not reported as failures. Empty by default, which disables
+     * routing.
+     */
+    String deadLetterQueueUrl() default "";
+
+    /**
+     * Value of {@code ApproximateReceiveCount} from which a failed message is sent to {@link #deadLetterQueueUrl()}.
+     * Messages whose receive count is unknown are never sent to that queue.
+     */
+    int maxReceiveCount() default 5;
+
+    /**
+     * Visibility timeout of the queue in seconds. When set, visibility timeout of messages still being processed is
+     * extended via {@code sqs:ChangeMessageVisibilityBatch} before it expires. Default is 0, which disables it.
+     */
+    int visibilityTimeoutSeconds() default 0;
+
+    /**
+     * Number of messages per second passed to the handler, per downstream key. Messages exceeding it are not processed
+     * and become visible again once they are expected to be within the rate. Default is 0, which disables it.
+     */
+    double maxMessagesPerSecond() default 0;
+
+    /**
+     * Maximum number of messages passed to the handler at once after a quiet period. Default is 0, which means one
+     * second worth of {@link #maxMessagesPerSecond()}.
+     */
+    int rateLimitBurst() default 0;
+
+    /**
+     * Name of the message attribute holding the downstream key of a message. Empty by default, which means all messages
+     * share a single rate limit.
+     */
+    String rateLimitKeyAttribute() default "";
 }
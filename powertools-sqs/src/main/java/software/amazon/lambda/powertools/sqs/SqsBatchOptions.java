@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+/**
+ * <p>
+ * Options of {@link SqsUtils#batchProcessor(com.amazonaws.services.lambda.runtime.events.SQSEvent, SqsBatchOptions, SqsMessageHandler)}.
+ * All options are disabled by default.
+ * </p>
+ *
+ * <pre>
+ * List&lt;String&gt; returnValues = SqsUtils.batchProcessor(input, SqsBatchOptions.builder()
+ *         .context(context)
+ *         .remainingTimeMarginMillis(5000)
+ *         .retryPolicy(RETRY_POLICY)
+ *         .build(), SampleMessageHandler.class);
+ * </pre>
+ */
+public final class SqsBatchOptions {
+    /**
+     * Options of the batch processor when none is set.
+     */
+    public static final SqsBatchOptions DEFAULT = builder().build();
+
+    private final boolean suppressException;
+    private final Context context;
+    private final long remainingTimeMarginMillis;
+    private final SqsRetryPolicy retryPolicy;
+    private final int visibilityTimeoutSeconds;
+    private final SqsRateLimiter rateLimiter;
+
+    private SqsBatchOptions(final Builder builder) {
+        this.suppressException = builder.suppressException;
+        this.context = builder.context;
+        this.remainingTimeMarginMillis = builder.remainingTimeMarginMillis;
+        this.retryPolicy = builder.retryPolicy;
+        this.visibilityTimeoutSeconds = builder.visibilityTimeoutSeconds;
+        this.rateLimiter = builder.rateLimiter;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    boolean suppressException() {
+        return suppressException;
+    }
+
+    Context context() {
+        return context;
+    }
+
+    long remainingTimeMarginMillis() {
+        return remainingTimeMarginMillis;
+    }
+
+    SqsRetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    int visibilityTimeoutSeconds() {
+        return visibilityTimeoutSeconds;
+    }
+
+    SqsRateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    public static final class Builder {
+        private boolean suppressException;
+        private Context context;
+        private long remainingTimeMarginMillis;
+        private SqsRetryPolicy retryPolicy = SqsRetryPolicy.NONE;
+        private int visibilityTimeoutSeconds;
+        private SqsRateLimiter rateLimiter = SqsRateLimiter.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param suppressException if this is set to true, No {@link SQSBatchProcessingException} is thrown even on
+         *                          failed messages.
+         */
+        public Builder suppressException(final boolean suppressException) {
+            this.suppressException = suppressException;
+            return this;
+        }
+
+        /**
+         * @param context {@link Context} received by lambda function, used to check its remaining time.
+         */
+        public Builder context(final Context context) {
+            this.context = context;
+            return this;
+        }
+
+        /**
+         * @param remainingTimeMarginMillis Remaining time in milliseconds below which no further messages are
+         *                                  processed. Requires {@link #context(Context)}. 0 disables the check.
+         */
+        public Builder remainingTimeMarginMillis(final long remainingTimeMarginMillis) {
+            if (remainingTimeMarginMillis < 0) {
+                throw new IllegalArgumentException("remainingTimeMarginMillis must not be negative");
+            }
+
+            this.remainingTimeMarginMillis = remainingTimeMarginMillis;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy {@link SqsRetryPolicy} applied to messages which fail processing.
+         */
+        public Builder retryPolicy(final SqsRetryPolicy retryPolicy) {
+            this.retryPolicy = null != retryPolicy ? retryPolicy : SqsRetryPolicy.NONE;
+            return this;
+        }
+
+        /**
+         * @param visibilityTimeoutSeconds Visibility timeout of the queue in seconds, used to extend the visibility
+         *                                 timeout of messages not processed yet. 0 disables the visibility heartbeat.
+         */
+        public Builder visibilityTimeoutSeconds(final int visibilityTimeoutSeconds) {
+            if (visibilityTimeoutSeconds < 0) {
+                throw new IllegalArgumentException("visibilityTimeoutSeconds must not be negative");
+            }
+
+            this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter {@link SqsRateLimiter} deferring messages exceeding the rate of their downstream.
+         */
+        public Builder rateLimiter(final SqsRateLimiter rateLimiter) {
+            this.rateLimiter = null != rateLimiter ? rateLimiter : SqsRateLimiter.NONE;
+            return this;
+        }
+
+        public SqsBatchOptions build() {
+            return new SqsBatchOptions(this);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.util.List;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * <p>
+ * Handler receiving chunks of {@link SQSMessage} at once, for processing which benefits from bulk APIs such as
+ * DynamoDB {@code BatchWriteItem}. It reports the outcome of each message via {@link SqsBulkResult}, so that partial
+ * failures of a bulk call are handled as individual failed messages.
+ * </p>
+ *
+ * <p>
+ * It is required by utilities:
+ * <ul>
+ *   <li>{@link SqsUtils#bulkProcessor(SQSEvent, int, SqsBulkHandler)}</li>
+ *   <li>{@link SqsUtils#bulkProcessor(SQSEvent, boolean, int, SqsBulkHandler)}</li>
+ *   <li>{@link SqsUtils#bulkProcessor(SQSEvent, SqsBatchOptions, int, SqsBulkHandler)}</li>
+ * </ul>
+ * </p>
+ *
+ * @param <R> Return value type for each successfully processed message
+ */
+@FunctionalInterface
+public interface SqsBulkHandler<R> {
+
+    /**
+     * @param messages chunk of messages to process
+     * @return outcome of messages of the chunk. Messages without outcome are considered failed. If this method throws,
+     * all the messages of the chunk are considered failed.
+     */
+    SqsBulkResult<R> process(List<SQSMessage> messages);
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * <p>
+ * Outcome of each message of a chunk processed by {@link SqsBulkHandler}.
+ * </p>
+ *
+ * <pre>
+ * SqsBulkResult.Builder&lt;String&gt; result = SqsBulkResult.builder();
+ *
+ * for (SQSMessage message : messages) {
+ *     if (unprocessed.contains(message.getMessageId())) {
+ *         result.failure(message, new IllegalStateException("Item not written"));
+ *     } else {
+ *         result.success(message, message.getMessageId());
+ *     }
+ * }
+ *
+ * return result.build();
+ * </pre>
+ *
+ * @param <R> Return value type for each successfully processed message
+ */
+public final class SqsBulkResult<R> {
+    private final Map<String, R> successes;
+    private final Map<String, Exception> failures;
+
+    private SqsBulkResult(final Builder<R> builder) {
+        this.successes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.successes));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(builder.failures));
+    }
+
+    public static <R> Builder<R> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return values returned for successfully processed messages, by message id
+     */
+    public Map<String, R> successes() {
+        return successes;
+    }
+
+    /**
+     * @return exceptions of failed messages, by message id
+     */
+    public Map<String, Exception> failures() {
+        return failures;
+    }
+
+    public static final class Builder<R> {
+        private final Map<String, R> successes = new LinkedHashMap<>();
+        private final Map<String, Exception> failures = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param message successfully processed message
+         * @param value   value returned for the message
+         */
+        public Builder<R> success(final SQSMessage message, final R value) {
+            failures.remove(message.getMessageId());
+            successes.put(message.getMessageId(), value);
+            return this;
+        }
+
+        /**
+         * @param message   message which failed processing
+         * @param exception reason of the failure
+         */
+        public Builder<R> failure(final SQSMessage message, final Exception exception) {
+            successes.remove(message.getMessageId());
+            failures.put(message.getMessageId(), exception);
+            return this;
+        }
+
+        public SqsBulkResult<R> build() {
+            return new SqsBulkResult<>(this);
+        }
+    }
+}
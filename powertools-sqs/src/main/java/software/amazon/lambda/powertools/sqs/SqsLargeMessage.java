@@ -53,8 +53,23 @@ import java.lang.annotation.Target;
  * <p><b>Note</b>: Retreiving payloads from S3 will increase the duration of the
  * Lambda function.</p>
  *
- * <p>If the request handler method returns then each payload will be deleted
- * from S3 using {@code deleteObject(bucket, key)}</p>
+ * <p>Payloads are downloaded concurrently, at most {@code maxConcurrentDownloads} at
+ * a time. Use {@code downloadTimeoutMillis} to fail the batch with
+ * {@code FailedProcessingLargePayloadException} when a single payload takes too long
+ * to retrieve {@code @SqsLargeMessage(maxConcurrentDownloads=5, downloadTimeoutMillis=2000)}</p>
+ *
+ * <p>Handlers which only read the body of some of the messages, for example after filtering
+ * on message attributes, can delay retrieval of each payload until {@code getBody()} is first
+ * called on the message {@code @SqsLargeMessage(lazyPayloadRetrieval=true)}. Failure to
+ * retrieve the payload is then thrown from {@code getBody()}.</p>
+ *
+ * <p>If the request handler method returns then payloads will be deleted
+ * from S3, grouped per bucket using {@code deleteObjects(request)} for up to
+ * 1000 keys at a time</p>
+ *
+ * <p>To take deletion of payloads out of the invocation duration, deletion can happen
+ * on a background thread {@code @SqsLargeMessage(asyncPayloadDeletion=true)}. Failures
+ * are then only logged.</p>
  *
  * <p>To disable deletion of payloads setting the following annotation parameter
  * {@code @SqsLargeMessage(deletePayloads=false)}</p>
@@ -65,4 +80,12 @@ import java.lang.annotation.Target;
 public @interface SqsLargeMessage {
 
     boolean deletePayloads() default true;
+
+    int maxConcurrentDownloads() default 10;
+
+    long downloadTimeoutMillis() default 0;
+
+    boolean asyncPayloadDeletion() default false;
+
+    boolean lazyPayloadRetrieval() default false;
 }
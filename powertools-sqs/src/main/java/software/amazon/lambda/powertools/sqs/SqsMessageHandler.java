@@ -18,6 +18,8 @@ import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, boolean, Class)}</li>
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsMessageHandler)}</li>
  *   <li>{@link SqsUtils#batchProcessor(SQSEvent, boolean, SqsMessageHandler)}</li>
+ *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, Class)}</li>
+ *   <li>{@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, SqsMessageHandler)}</li>
  * </ul>
  * </p>
  * @param <R> Return value type from {@link SqsMessageHandler#process(SQSMessage)}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect;
+import software.amazon.payloadoffloading.PayloadS3Pointer;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>
+ * Gives streaming access to the payload of a {@link SQSMessage} received in {@link SQSEvent}, whether the payload
+ * is part of the message body or has been offloaded to S3 via extended client lib.
+ * </p>
+ *
+ * <p>
+ * Payloads offloaded to S3 are only retrieved when {@link SqsMessagePayload#openStream()} or
+ * {@link SqsMessagePayload#openChannel()} is called, and are never held in memory as a whole by the utility.
+ * </p>
+ *
+ * Refer {@link SqsUtils#streamedMessagesFromS3(SQSEvent, java.util.function.Function)}
+ */
+public final class SqsMessagePayload {
+    private static final Logger LOG = LoggerFactory.getLogger(SqsMessagePayload.class);
+
+    private final SQSMessage message;
+    private final PayloadS3Pointer s3Pointer;
+    private final List<InputStream> openedStreams = new ArrayList<>();
+
+    SqsMessagePayload(final SQSMessage message,
+                      final PayloadS3Pointer s3Pointer) {
+        this.message = message;
+        this.s3Pointer = s3Pointer;
+    }
+
+    /**
+     * @return Original {@link SQSMessage}. For payloads offloaded to S3, body still contains the pointer to S3 object.
+     */
+    public SQSMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * @return true if the payload of this message has been offloaded to S3.
+     */
+    public boolean isOffloaded() {
+        return null != s3Pointer;
+    }
+
+    /**
+     * Opens a stream on the payload of the message. For payloads offloaded to S3, each call issues a new S3 GET.
+     * Streams not closed by the caller are closed by the utility once processing of the batch completes.
+     *
+     * @return stream of the message payload
+     * @throws SqsLargeMessageAspect.FailedProcessingLargePayloadException if payload could not be retrieved from S3
+     */
+    public InputStream openStream() {
+        if (!isOffloaded()) {
+            return new ByteArrayInputStream(message.getBody().getBytes(UTF_8));
+        }
+
+        InputStream stream = SqsLargeMessageAspect.openPayloadStream(s3Pointer);
+        openedStreams.add(stream);
+        return stream;
+    }
+
+    /**
+     * Same as {@link SqsMessagePayload#openStream()} but as a {@link ReadableByteChannel}.
+     *
+     * @return channel of the message payload
+     * @throws SqsLargeMessageAspect.FailedProcessingLargePayloadException if payload could not be retrieved from S3
+     */
+    public ReadableByteChannel openChannel() {
+        return Channels.newChannel(openStream());
+    }
+
+    PayloadS3Pointer s3Pointer() {
+        return s3Pointer;
+    }
+
+    void closeOpenedStreams() {
+        for (InputStream stream : openedStreams) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOG.debug("Failed closing stream of S3 payload", e);
+            }
+        }
+        openedStreams.clear();
+    }
+}
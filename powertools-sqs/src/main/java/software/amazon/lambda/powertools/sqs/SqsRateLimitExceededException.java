@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+/**
+ * Reason of a message being deferred by {@link SqsRateLimiter}. The message has not been passed to the handler and
+ * becomes visible again in the queue after {@link #getDelaySeconds()}.
+ */
+public class SqsRateLimitExceededException extends RuntimeException {
+    private final String key;
+    private final int delaySeconds;
+
+    public SqsRateLimitExceededException(final String key, final int delaySeconds) {
+        super(String.format("Rate limit exceeded for key %s, message deferred by %d seconds", key, delaySeconds),
+                null, false, false);
+        this.key = key;
+        this.delaySeconds = delaySeconds;
+    }
+
+    /**
+     * @return downstream key the rate limit was exceeded for
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return visibility timeout set on the message, in seconds
+     */
+    public int getDelaySeconds() {
+        return delaySeconds;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * <p>
+ * Limits the rate at which messages are passed to {@link SqsMessageHandler#process(SQSMessage)}, so that a downstream
+ * service is not overloaded when a queue backlog drains. Each downstream key gets its own token bucket, refilled at
+ * {@link Builder#permitsPerSecond(double)} and holding up to {@link Builder#burst(int)} tokens.
+ * </p>
+ *
+ * <p>
+ * A message arriving when no token is available is not processed. It fails with
+ * {@link SqsRateLimitExceededException} and its visibility timeout is changed so that it becomes visible again once a
+ * token is expected to be available, instead of failing on throttling errors of the downstream.
+ * </p>
+ *
+ * <p>
+ * Buckets live in the memory of the execution environment, so the limit applies per concurrent execution. Keep the
+ * instance in a static field so that buckets survive across invocations.
+ * </p>
+ *
+ * <pre>
+ * private static final SqsRateLimiter RATE_LIMITER = SqsRateLimiter.builder()
+ *         .permitsPerSecond(50)
+ *         .keyAttribute("downstream")
+ *         .build();
+ * </pre>
+ */
+public final class SqsRateLimiter {
+    /**
+     * Limiter which never defers messages.
+     */
+    public static final SqsRateLimiter NONE = new SqsRateLimiter(builder());
+
+    private static final String DEFAULT_KEY = "default";
+    private static final long MAX_DELAY_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final Function<SQSMessage, String> key;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private SqsRateLimiter(final Builder builder) {
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.burst = builder.burst > 0 ? builder.burst : (int) Math.max(1, Math.ceil(builder.permitsPerSecond));
+        this.key = builder.key;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    boolean isEnabled() {
+        return permitsPerSecond > 0;
+    }
+
+    String key(final SQSMessage message) {
+        String value = key.apply(message);
+        return null != value ? value : DEFAULT_KEY;
+    }
+
+    /**
+     * @param key            downstream key of the message
+     * @param alreadyDeferred number of messages with the same key already deferred in the current batch
+     * @return 0 if the message can be processed now, otherwise delay in milliseconds after which it should be retried
+     */
+    long acquire(final String key, final int alreadyDeferred) {
+        long waitMillis = buckets.computeIfAbsent(key, k -> new TokenBucket(permitsPerSecond, burst))
+                .tryAcquire(System.nanoTime());
+
+        if (waitMillis == 0) {
+            return 0;
+        }
+
+        long delay = waitMillis + (long) Math.ceil(alreadyDeferred * 1000 / permitsPerSecond);
+        return Math.min(delay, MAX_DELAY_MILLIS);
+    }
+
+    public static final class Builder {
+        private double permitsPerSecond;
+        private int burst;
+        private Function<SQSMessage, String> key = message -> DEFAULT_KEY;
+
+        private Builder() {
+        }
+
+        /**
+         * @param permitsPerSecond Number of messages per second passed to the handler, per downstream key.
+         */
+        public Builder permitsPerSecond(final double permitsPerSecond) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive");
+            }
+
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param burst Maximum number of messages passed to the handler at once after a quiet period. Defaults to
+         *              one second worth of permits.
+         */
+        public Builder burst(final int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * @param key Function returning the downstream key of a message. Messages with the same key share a bucket.
+         */
+        public Builder key(final Function<SQSMessage, String> key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * @param attributeName Name of the message attribute holding the downstream key of a message. Empty or null
+         *                      means all messages share a single bucket.
+         */
+        public Builder keyAttribute(final String attributeName) {
+            if (null == attributeName || attributeName.isEmpty()) {
+                this.key = message -> DEFAULT_KEY;
+                return this;
+            }
+
+            this.key = message -> {
+                Map<String, MessageAttribute> attributes = message.getMessageAttributes();
+                MessageAttribute attribute = null != attributes ? attributes.get(attributeName) : null;
+                return null != attribute ? attribute.getStringValue() : null;
+            };
+            return this;
+        }
+
+        public SqsRateLimiter build() {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalStateException("permitsPerSecond must be set");
+            }
+
+            return new SqsRateLimiter(this);
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double permitsPerNano;
+        private final int capacity;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(final double permitsPerSecond, final int capacity) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        synchronized long tryAcquire(final long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+
+            return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerNano / TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * <p>
+ * Controls what happens to a {@link SQSMessage} when {@link SqsMessageHandler#process(SQSMessage)} throws.
+ * </p>
+ *
+ * <p>
+ * Exceptions of one of the {@link Builder#retryOn(Class[])} types are retried within the same invocation, up to
+ * {@link Builder#maxAttempts(int)} attempts in total. Retries are delayed with exponential backoff and full jitter,
+ * starting at {@link Builder#baseDelayMillis(long)} and capped at {@link Builder#maxDelayMillis(long)}.
+ * </p>
+ *
+ * <p>
+ * If {@link Builder#deadLetterQueueUrl(String)} is set, a message which still fails and has been received at least
+ * {@link Builder#maxReceiveCount(int)} times, 5 by default, as reported by its {@code ApproximateReceiveCount}
+ * attribute, is sent to that queue instead of being returned to the source queue. Such messages are not reported as
+ * failures. Messages whose receive count is missing or invalid are never sent to that queue.
+ * </p>
+ *
+ * <pre>
+ * SqsRetryPolicy policy = SqsRetryPolicy.builder()
+ *         .retryOn(SdkClientException.class)
+ *         .maxAttempts(3)
+ *         .deadLetterQueueUrl("https://sqs.eu-west-1.amazonaws.com/123456789012/my-dlq")
+ *         .maxReceiveCount(3)
+ *         .build();
+ * </pre>
+ */
+public final class SqsRetryPolicy {
+    /**
+     * Policy which neither retries nor routes messages to a dead letter queue.
+     */
+    public static final SqsRetryPolicy NONE = builder().build();
+
+    private static final String APPROXIMATE_RECEIVE_COUNT = "ApproximateReceiveCount";
+    private static final int DEFAULT_MAX_RECEIVE_COUNT = 5;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final List<Class<? extends Exception>> retryOn;
+    private final String deadLetterQueueUrl;
+    private final int maxReceiveCount;
+
+    private SqsRetryPolicy(final Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelayMillis = builder.baseDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.retryOn = Collections.unmodifiableList(new ArrayList<>(builder.retryOn));
+        this.deadLetterQueueUrl = builder.deadLetterQueueUrl;
+        this.maxReceiveCount = builder.maxReceiveCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public String deadLetterQueueUrl() {
+        return deadLetterQueueUrl;
+    }
+
+    boolean shouldRetry(final Exception e, final int attempt) {
+        return attempt < maxAttempts && retryOn.stream().anyMatch(type -> type.isInstance(e));
+    }
+
+    long delayMillis(final int attempt) {
+        long cap = baseDelayMillis;
+
+        for (int i = 1; i < attempt && cap < maxDelayMillis; i++) {
+            cap <<= 1;
+        }
+
+        return ThreadLocalRandom.current().nextLong(Math.min(cap, maxDelayMillis) + 1);
+    }
+
+    boolean shouldMoveToDeadLetterQueue(final SQSMessage message) {
+        if (null == deadLetterQueueUrl) {
+            return false;
+        }
+
+        String receiveCount = null != message.getAttributes() ?
+                message.getAttributes().get(APPROXIMATE_RECEIVE_COUNT) : null;
+
+        if (null == receiveCount) {
+            return false;
+        }
+
+        try {
+            return Integer.parseInt(receiveCount) >= maxReceiveCount;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static final class Builder {
+        private int maxAttempts = 1;
+        private long baseDelayMillis = 100;
+        private long maxDelayMillis = 5000;
+        private List<Class<? extends Exception>> retryOn = Collections.emptyList();
+        private String deadLetterQueueUrl;
+        private int maxReceiveCount = DEFAULT_MAX_RECEIVE_COUNT;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxAttempts Total number of attempts per message within a single invocation, including the first one.
+         */
+        public Builder maxAttempts(final int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelayMillis Upper bound of the delay before first retry. Doubled for each further retry.
+         */
+        public Builder baseDelayMillis(final long baseDelayMillis) {
+            if (baseDelayMillis < 0) {
+                throw new IllegalArgumentException("baseDelayMillis must not be negative");
+            }
+
+            this.baseDelayMillis = baseDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxDelayMillis Maximum delay between two attempts.
+         */
+        public Builder maxDelayMillis(final long maxDelayMillis) {
+            if (maxDelayMillis < 0) {
+                throw new IllegalArgumentException("maxDelayMillis must not be negative");
+            }
+
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param retryOn Exception types, including their subtypes, which are considered transient and retried.
+         */
+        @SafeVarargs
+        public final Builder retryOn(final Class<? extends Exception>... retryOn) {
+            this.retryOn = Arrays.asList(retryOn);
+            return this;
+        }
+
+        /**
+         * @param deadLetterQueueUrl Url of the queue poison messages are sent to. Empty or null disables routing.
+         */
+        public Builder deadLetterQueueUrl(final String deadLetterQueueUrl) {
+            this.deadLetterQueueUrl = null == deadLetterQueueUrl || deadLetterQueueUrl.isEmpty() ?
+                    null : deadLetterQueueUrl;
+            return this;
+        }
+
+        /**
+         * @param maxReceiveCount Receive count from which a failed message is sent to the dead letter queue. Defaults
+         *                        to 5, so that failed messages are first retried by SQS a few times.
+         */
+        public Builder maxReceiveCount(final int maxReceiveCount) {
+            if (maxReceiveCount < 1) {
+                throw new IllegalArgumentException("maxReceiveCount must be at least 1");
+            }
+
+            this.maxReceiveCount = maxReceiveCount;
+            return this;
+        }
+
+        public SqsRetryPolicy build() {
+            return new SqsRetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package software.amazon.lambda.powertools.sqs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * <p>
+ * {@link SqsMessageHandler} which deserializes body of each {@link SQSMessage} inside {@link SQSEvent} into type
+ * {@code T} before handing it over to {@link SqsTypedMessageHandler#process(Object, SQSMessage)}.
+ * </p>
+ *
+ * <p>
+ * Message bodies are deserialized using {@link SqsUtils#objectMapper()}. The {@link ObjectReader} for type {@code T}
+ * is resolved once per type and mapper, and shared between all handler instances. Override the mapper via
+ * {@link SqsUtils#defaultObjectMapper(com.fasterxml.jackson.databind.ObjectMapper)} if needed, which also applies to
+ * handler instances already created.
+ * </p>
+ *
+ * <p>
+ * If the body of a message cannot be deserialized, {@link UncheckedIOException} is thrown and the message is treated
+ * as a failed message by the batch utilities.
+ * </p>
+ *
+ * @param <T> Type the body of each message is deserialized into
+ * @param <R> Return value type from {@link SqsTypedMessageHandler#process(Object, SQSMessage)}
+ */
+public abstract class SqsTypedMessageHandler<T, R> implements SqsMessageHandler<R> {
+    private final JavaType type;
+
+    protected SqsTypedMessageHandler() {
+        JavaType[] types = SqsUtils.objectMapper()
+                .getTypeFactory()
+                .findTypeParameters(getClass(), SqsTypedMessageHandler.class);
+
+        this.type = types[0];
+    }
+
+    @Override
+    public final R process(final SQSMessage message) {
+        try {
+            return process(SqsUtils.readerFor(type).<T>readValue(message.getBody()), message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param body    Body of the message deserialized into type {@code T}
+     * @param message Original {@link SQSMessage}
+     * @return Value which will be part of list returned by batch utilities
+     */
+    public abstract R process(T body, SQSMessage message);
+}
@@ -14,23 +14,36 @@
 package software.amazon.lambda.powertools.sqs;
 
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.lambda.powertools.sqs.internal.BatchContext;
+import software.amazon.lambda.powertools.sqs.internal.BatchMetrics;
 import software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect;
+import software.amazon.lambda.powertools.sqs.internal.VisibilityHeartbeat;
 import software.amazon.payloadoffloading.PayloadS3Pointer;
 
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
 import static software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect.processMessages;
 
@@ -39,9 +52,14 @@ import static software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspe
  */
 public final class SqsUtils {
     private static final Logger LOG = LoggerFactory.getLogger(SqsUtils.class);
+    private static final long NO_TIME_MARGIN = 0;
+
+    private static final Map<Class<?>, SqsMessageHandler<?>> HANDLERS = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
     private static SqsClient client = SqsClient.create();
+    private static ObjectMapper objectMapper = new ObjectMapper();
+    private static boolean captureStackTrace = true;
 
     private SqsUtils() {
     }
@@ -82,7 +100,58 @@ public final class SqsUtils {
         R returnValue = messageFunction.apply(sqsMessages);
 
         if (deleteS3Payload) {
-            s3Pointers.forEach(SqsLargeMessageAspect::deleteMessage);
+            SqsLargeMessageAspect.deleteMessages(s3Pointers);
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * This is a utility method when large payloads should not be loaded in memory.
+     * Gives you streaming access to each message payload in the SQS event produced via extended client lib.
+     * Payloads offloaded to S3 are only retrieved when the stream for the message is opened.
+     * If messageFunction completes successfully, it will delete all the S3 payloads referenced by the event.
+     *
+     * @param sqsEvent        Event received from SQS Extended client library
+     * @param messageFunction Function to execute you business logic which provides streaming access to message payloads.
+     * @return Return value from the function.
+     */
+    public static <R> R streamedMessagesFromS3(final SQSEvent sqsEvent,
+                                               final Function<List<SqsMessagePayload>, R> messageFunction) {
+        return streamedMessagesFromS3(sqsEvent, true, messageFunction);
+    }
+
+    /**
+     * This is a utility method when large payloads should not be loaded in memory.
+     * Gives you streaming access to each message payload in the SQS event produced via extended client lib.
+     * Payloads offloaded to S3 are only retrieved when the stream for the message is opened.
+     * If messageFunction completes successfully, Control if it will delete all the S3 payloads referenced by the event.
+     *
+     * @param sqsEvent        Event received from SQS Extended client library
+     * @param deleteS3Payload Whether S3 payloads should be deleted post success.
+     * @param messageFunction Function to execute you business logic which provides streaming access to message payloads.
+     * @return Return value from the function.
+     */
+    public static <R> R streamedMessagesFromS3(final SQSEvent sqsEvent,
+                                               final boolean deleteS3Payload,
+                                               final Function<List<SqsMessagePayload>, R> messageFunction) {
+        List<SqsMessagePayload> payloads = sqsEvent.getRecords().stream()
+                .map(message -> new SqsMessagePayload(message, SqsLargeMessageAspect.isLargeMessage(message) ?
+                        PayloadS3Pointer.fromJson(message.getBody()) : null))
+                .collect(Collectors.toList());
+
+        R returnValue;
+        try {
+            returnValue = messageFunction.apply(payloads);
+        } finally {
+            payloads.forEach(SqsMessagePayload::closeOpenedStreams);
+        }
+
+        if (deleteS3Payload) {
+            SqsLargeMessageAspect.deleteMessages(payloads.stream()
+                    .filter(SqsMessagePayload::isOffloaded)
+                    .map(SqsMessagePayload::s3Pointer)
+                    .collect(Collectors.toList()));
         }
 
         return returnValue;
@@ -151,6 +220,10 @@ public final class SqsUtils {
      * Lambda execution context for deletion.
      * </p>
      *
+     * <p>
+     * Handler class is instantiated once and the instance is reused across invocations, so it must be safe to reuse.
+     * </p>
+     *
      * @param event             {@link SQSEvent} received by lambda function.
      * @param suppressException if this is set to true, No {@link SQSBatchProcessingException} is thrown even on failed
      *                          messages.
@@ -229,25 +302,453 @@ public final class SqsUtils {
     public static <R> List<R> batchProcessor(final SQSEvent event,
                                              final boolean suppressException,
                                              final SqsMessageHandler<R> handler) {
+        return batchProcessor(event, SqsBatchOptions.builder().suppressException(suppressException).build(), handler);
+    }
+
+    /**
+     * This utility method is used to processes each {@link SQSMessage} inside received {@link SQSEvent} with the
+     * given {@link SqsBatchOptions}.
+     *
+     * <p>
+     * Refer {@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, SqsMessageHandler)} for details.
+     * </p>
+     *
+     * <p>
+     * Handler class is instantiated once and the instance is reused across invocations, so it must be safe to reuse.
+     * </p>
+     *
+     * @param event   {@link SQSEvent} received by lambda function.
+     * @param options {@link SqsBatchOptions} of the processing.
+     * @param handler Class implementing {@link SqsMessageHandler} which will be called for each message in event.
+     * @return List of values returned by {@link SqsMessageHandler#process(SQSMessage)} while processing each message.
+     * @throws SQSBatchProcessingException if some messages fail during processing and no suppression enabled.
+     */
+    public static <R> List<R> batchProcessor(final SQSEvent event,
+                                             final SqsBatchOptions options,
+                                             final Class<? extends SqsMessageHandler<R>> handler) {
+        return batchProcessor(event, options, instantiatedHandler(handler));
+    }
+
+    /**
+     * This utility method is used to processes each {@link SQSMessage} inside received {@link SQSEvent} with the
+     * given {@link SqsBatchOptions}. Failed messages are handled as described in
+     * {@link SqsUtils#batchProcessor(SQSEvent, boolean, SqsMessageHandler)}.
+     *
+     * <p>
+     * When {@link SqsBatchOptions.Builder#remainingTimeMarginMillis(long)} is set, utility checks
+     * {@link Context#getRemainingTimeInMillis()} before picking up each message. Once it falls below the margin, no
+     * further messages are processed and all of them are reported as failed with a {@link TimeoutException}.
+     * Successfully processed messages are then deleted from SQS as with any other failure, so they are not delivered
+     * again. Margin should leave enough time for that delete call and for any work done by the handler after the
+     * batch is processed.
+     * </p>
+     *
+     * <p>
+     * When {@link SqsMessageHandler#process(SQSMessage)} throws an exception considered transient by the
+     * {@link SqsRetryPolicy}, the message is processed again after a jittered exponential backoff, until it succeeds
+     * or runs out of attempts. No retry is attempted once remaining time falls below the margin. A message which still
+     * fails is sent to the dead letter queue of the policy via {@code sqs:SendMessageBatch} once it has been received
+     * enough times, and is then deleted from the source queue like a successful message.
+     * </p>
+     *
+     * <p>
+     * When {@link SqsBatchOptions.Builder#visibilityTimeoutSeconds(int)} is set, a background thread calls
+     * {@code sqs:ChangeMessageVisibilityBatch} for messages of the batch before their visibility timeout expires, so
+     * that long running batches are not delivered again to another concurrent execution. Each call extends visibility
+     * by the larger of the visibility timeout and twice the longest processing time of a message observed so far.
+     * Failed messages stop being extended right away, and are made visible again once the batch is processed if they
+     * were already extended, while successful ones are extended until the batch is processed.
+     * </p>
+     *
+     * <p>
+     * When a {@link SqsRateLimiter} is set, a token is taken from the bucket of the downstream key of a message before
+     * it is passed to the handler. If none is available, the message is not processed: it fails with
+     * {@link SqsRateLimitExceededException} and its visibility timeout is changed via
+     * {@code sqs:ChangeMessageVisibilityBatch}, so that it becomes visible again once a token is expected to be
+     * available. Deferred messages of the same key are spread over successive seconds according to the rate.
+     * </p>
+     *
+     * @param event   {@link SQSEvent} received by lambda function.
+     * @param options {@link SqsBatchOptions} of the processing.
+     * @param handler Instance of class implementing {@link SqsMessageHandler} which will be called for each message in event.
+     * @return List of values returned by {@link SqsMessageHandler#process(SQSMessage)} while processing each message.
+     * @throws SQSBatchProcessingException if some messages fail during processing and no suppression enabled.
+     */
+    public static <R> List<R> batchProcessor(final SQSEvent event,
+                                             final SqsBatchOptions options,
+                                             final SqsMessageHandler<R> handler) {
+        final Context context = options.context();
+        final long remainingTimeMarginMillis = options.remainingTimeMarginMillis();
+        final SqsRetryPolicy retryPolicy = options.retryPolicy();
+        final SqsRateLimiter rateLimiter = options.rateLimiter();
+        final List<R> handlerReturn = new ArrayList<>();
+        final Map<String, Integer> deferredByKey = new HashMap<>();
+
+        BatchMetrics metrics = BatchMetrics.start();
+        BatchContext batchContext = new BatchContext(client, retryPolicy.deadLetterQueueUrl(), metrics,
+                captureStackTrace);
+        TimeoutException notProcessed = null;
+
+        try (VisibilityHeartbeat heartbeat = VisibilityHeartbeat.start(client, event.getRecords(),
+                options.visibilityTimeoutSeconds())) {
+            for (SQSMessage message : event.getRecords()) {
+                if (null == notProcessed && isOutOfTime(context, remainingTimeMarginMillis)) {
+                    // Shared by all remaining messages, rather than capturing a stack trace for each of them
+                    notProcessed = new TimeoutException(String.format("Message not processed, " +
+                            "remaining time of lambda function fell below %d ms", remainingTimeMarginMillis));
+                }
+
+                if (null != notProcessed) {
+                    metrics.notProcessed();
+                    heartbeat.skipped(message);
+                    batchContext.addFailure(message, notProcessed);
+                    continue;
+                }
+
+                if (deferred(message, rateLimiter, deferredByKey, metrics, heartbeat, batchContext)) {
+                    continue;
+                }
+
+                long startedAt = System.currentTimeMillis();
+                metrics.received(message, startedAt);
+                heartbeat.processing(message);
+
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        handlerReturn.add(handler.process(message));
+                        batchContext.addSuccess(message);
+                        heartbeat.processed(message, true);
+                        metrics.processed(System.currentTimeMillis() - startedAt, true);
+                        break;
+                    } catch (Exception e) {
+                        if (retryPolicy.shouldRetry(e, attempt)
+                                && !isOutOfTime(context, remainingTimeMarginMillis)
+                                && backOff(retryPolicy.delayMillis(attempt))) {
+                            LOG.debug("Retrying message {} after attempt {} failed", message.getMessageId(), attempt);
+                            continue;
+                        }
+
+                        boolean poison = retryPolicy.shouldMoveToDeadLetterQueue(message);
+                        if (poison) {
+                            batchContext.addPoisonMessage(message, e);
+                        } else {
+                            batchContext.addFailure(message, e);
+                        }
+                        // Poison messages are deleted along with successful ones, so they stay invisible until then
+                        heartbeat.processed(message, poison);
+                        metrics.processed(System.currentTimeMillis() - startedAt, false);
+                        break;
+                    }
+                }
+            }
+        }
+
+        try {
+            batchContext.processSuccessAndHandleFailed(handlerReturn, options.suppressException());
+        } finally {
+            metrics.emit();
+        }
+
+        return handlerReturn;
+    }
+
+    /**
+     * This utility method is used to processes {@link SQSMessage} inside received {@link SQSEvent} in chunks of up to
+     * {@code chunkSize} messages.
+     *
+     * <p>
+     * Refer {@link SqsUtils#bulkProcessor(SQSEvent, SqsBatchOptions, int, SqsBulkHandler)} for details.
+     * </p>
+     *
+     * @param event     {@link SQSEvent} received by lambda function.
+     * @param chunkSize Maximum number of messages passed to each call of {@link SqsBulkHandler#process(List)}.
+     * @param handler   Instance of class implementing {@link SqsBulkHandler} which will be called for each chunk.
+     * @return List of values returned for successfully processed messages.
+     * @throws SQSBatchProcessingException if some messages fail during processing.
+     */
+    public static <R> List<R> bulkProcessor(final SQSEvent event,
+                                            final int chunkSize,
+                                            final SqsBulkHandler<R> handler) {
+        return bulkProcessor(event, false, chunkSize, handler);
+    }
+
+    /**
+     * This utility method is used to processes {@link SQSMessage} inside received {@link SQSEvent} in chunks of up to
+     * {@code chunkSize} messages.
+     *
+     * <p>
+     * Refer {@link SqsUtils#bulkProcessor(SQSEvent, SqsBatchOptions, int, SqsBulkHandler)} for details.
+     * </p>
+     *
+     * @param event             {@link SQSEvent} received by lambda function.
+     * @param suppressException if this is set to true, No {@link SQSBatchProcessingException} is thrown even on failed
+     *                          messages.
+     * @param chunkSize         Maximum number of messages passed to each call of {@link SqsBulkHandler#process(List)}.
+     * @param handler           Instance of class implementing {@link SqsBulkHandler} which will be called for each chunk.
+     * @return List of values returned for successfully processed messages.
+     * @throws SQSBatchProcessingException if some messages fail during processing and no suppression enabled.
+     */
+    public static <R> List<R> bulkProcessor(final SQSEvent event,
+                                            final boolean suppressException,
+                                            final int chunkSize,
+                                            final SqsBulkHandler<R> handler) {
+        return bulkProcessor(event, SqsBatchOptions.builder().suppressException(suppressException).build(), chunkSize,
+                handler);
+    }
+
+    /**
+     * This utility method is used to processes {@link SQSMessage} inside received {@link SQSEvent} in chunks of up to
+     * {@code chunkSize} messages, in the order they were received, with the given {@link SqsBatchOptions}.
+     *
+     * <p>
+     * {@link SqsBulkHandler#process(List)} reports the outcome of each message of the chunk. Failed messages, messages
+     * without outcome and all the messages of a chunk for which the handler throws are handled as failed messages of
+     * {@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, SqsMessageHandler)}: successful messages are deleted
+     * from SQS and {@link SQSBatchProcessingException} is thrown unless suppressed.
+     * </p>
+     *
+     * <p>
+     * Options apply as for {@link SqsUtils#batchProcessor(SQSEvent, SqsBatchOptions, SqsMessageHandler)}, chunk by
+     * chunk: remaining time is checked before each chunk, messages without a rate limiter token are deferred before
+     * the chunk is passed to the handler, and messages of the chunk failing with a transient exception are passed
+     * again together to the handler after backoff. Messages which still fail are sent to the dead letter queue of the
+     * {@link SqsRetryPolicy} once received enough times, and visibility of messages of the batch is extended while
+     * they are processed.
+     * </p>
+     *
+     * @param event     {@link SQSEvent} received by lambda function.
+     * @param options   {@link SqsBatchOptions} of the processing.
+     * @param chunkSize Maximum number of messages passed to each call of {@link SqsBulkHandler#process(List)}.
+     * @param handler   Instance of class implementing {@link SqsBulkHandler} which will be called for each chunk.
+     * @return List of values returned for successfully processed messages.
+     * @throws SQSBatchProcessingException if some messages fail during processing and no suppression enabled.
+     */
+    public static <R> List<R> bulkProcessor(final SQSEvent event,
+                                            final SqsBatchOptions options,
+                                            final int chunkSize,
+                                            final SqsBulkHandler<R> handler) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+
+        final Context context = options.context();
+        final long remainingTimeMarginMillis = options.remainingTimeMarginMillis();
+        final SqsRetryPolicy retryPolicy = options.retryPolicy();
+        final SqsRateLimiter rateLimiter = options.rateLimiter();
         final List<R> handlerReturn = new ArrayList<>();
+        final List<SQSMessage> records = event.getRecords();
+        final Map<String, Integer> deferredByKey = new HashMap<>();
+
+        BatchMetrics metrics = BatchMetrics.start();
+        BatchContext batchContext = new BatchContext(client, retryPolicy.deadLetterQueueUrl(), metrics,
+                captureStackTrace);
+        TimeoutException notProcessed = null;
+
+        try (VisibilityHeartbeat heartbeat = VisibilityHeartbeat.start(client, records,
+                options.visibilityTimeoutSeconds())) {
+            for (int start = 0; start < records.size(); start += chunkSize) {
+                List<SQSMessage> chunk = records.subList(start, Math.min(start + chunkSize, records.size()));
 
-        BatchContext batchContext = new BatchContext(client);
+                if (null == notProcessed && isOutOfTime(context, remainingTimeMarginMillis)) {
+                    notProcessed = new TimeoutException(String.format("Message not processed, " +
+                            "remaining time of lambda function fell below %d ms", remainingTimeMarginMillis));
+                }
 
-        for (SQSMessage message : event.getRecords()) {
-            try {
-                handlerReturn.add(handler.process(message));
-                batchContext.addSuccess(message);
-            } catch (Exception e) {
-                batchContext.addFailure(message, e);
+                if (null != notProcessed) {
+                    for (SQSMessage message : chunk) {
+                        metrics.notProcessed();
+                        heartbeat.skipped(message);
+                        batchContext.addFailure(message, notProcessed);
+                    }
+                    continue;
+                }
+
+                List<SQSMessage> pending = new ArrayList<>(chunk.size());
+                for (SQSMessage message : chunk) {
+                    if (!deferred(message, rateLimiter, deferredByKey, metrics, heartbeat, batchContext)) {
+                        pending.add(message);
+                    }
+                }
+
+                long startedAt = System.currentTimeMillis();
+                pending.forEach(message -> {
+                    metrics.received(message, startedAt);
+                    heartbeat.processing(message);
+                });
+
+                for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                    SqsBulkResult<R> result;
+                    Exception chunkFailure = null;
+
+                    try {
+                        result = handler.process(Collections.unmodifiableList(pending));
+                    } catch (Exception e) {
+                        result = SqsBulkResult.<R>builder().build();
+                        chunkFailure = e;
+                    }
+
+                    long processingMillis = System.currentTimeMillis() - startedAt;
+                    Map<SQSMessage, Exception> failures = new LinkedHashMap<>();
+                    List<SQSMessage> retried = new ArrayList<>();
+
+                    for (SQSMessage message : pending) {
+                        String messageId = message.getMessageId();
+
+                        if (result.successes().containsKey(messageId)) {
+                            handlerReturn.add(result.successes().get(messageId));
+                            batchContext.addSuccess(message);
+                            heartbeat.processed(message, true);
+                            metrics.processed(processingMillis, true);
+                            continue;
+                        }
+
+                        Exception failure = result.failures().get(messageId);
+                        if (null == failure) {
+                            failure = null != chunkFailure ? chunkFailure :
+                                    new IllegalStateException("No outcome reported for message " + messageId);
+                        }
+
+                        failures.put(message, failure);
+                        if (retryPolicy.shouldRetry(failure, attempt)) {
+                            retried.add(message);
+                        }
+                    }
+
+                    boolean retrying = !retried.isEmpty()
+                            && !isOutOfTime(context, remainingTimeMarginMillis)
+                            && backOff(retryPolicy.delayMillis(attempt));
+
+                    for (Map.Entry<SQSMessage, Exception> failure : failures.entrySet()) {
+                        SQSMessage message = failure.getKey();
+
+                        if (retrying && retried.contains(message)) {
+                            LOG.debug("Retrying message {} after attempt {} failed", message.getMessageId(), attempt);
+                            continue;
+                        }
+
+                        boolean poison = retryPolicy.shouldMoveToDeadLetterQueue(message);
+                        if (poison) {
+                            batchContext.addPoisonMessage(message, failure.getValue());
+                        } else {
+                            batchContext.addFailure(message, failure.getValue());
+                        }
+                        // Poison messages are deleted along with successful ones, so they stay invisible until then
+                        heartbeat.processed(message, poison);
+                        metrics.processed(processingMillis, false);
+                    }
+
+                    pending = retrying ? retried : Collections.emptyList();
+                }
             }
         }
 
-        batchContext.processSuccessAndHandleFailed(handlerReturn, suppressException);
+        try {
+            batchContext.processSuccessAndHandleFailed(handlerReturn, options.suppressException());
+        } finally {
+            metrics.emit();
+        }
 
         return handlerReturn;
     }
 
+    /**
+     * Takes a token of the rate limiter for the downstream key of the message, or defers the message until one is
+     * expected to be available.
+     *
+     * @return true if the message was deferred and must not be processed
+     */
+    private static boolean deferred(final SQSMessage message,
+                                    final SqsRateLimiter rateLimiter,
+                                    final Map<String, Integer> deferredByKey,
+                                    final BatchMetrics metrics,
+                                    final VisibilityHeartbeat heartbeat,
+                                    final BatchContext batchContext) {
+        if (!rateLimiter.isEnabled()) {
+            return false;
+        }
+
+        String key = rateLimiter.key(message);
+        int alreadyDeferred = deferredByKey.getOrDefault(key, 0);
+        long delayMillis = rateLimiter.acquire(key, alreadyDeferred);
+
+        if (delayMillis <= 0) {
+            return false;
+        }
+
+        int delaySeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delayMillis + 999));
+        deferredByKey.put(key, alreadyDeferred + 1);
+        metrics.notProcessed();
+        heartbeat.deferred(message);
+        batchContext.addDeferred(message, new SqsRateLimitExceededException(key, delaySeconds), delaySeconds);
+        return true;
+    }
+
+    private static boolean backOff(final long delayMillis) {
+        try {
+            Thread.sleep(delayMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isOutOfTime(final Context context,
+                                       final long remainingTimeMarginMillis) {
+        return null != context
+                && remainingTimeMarginMillis > NO_TIME_MARGIN
+                && context.getRemainingTimeInMillis() < remainingTimeMarginMillis;
+    }
+
+    /**
+     * Sets whether {@link SQSBatchProcessingException} captures its own stack trace. Exceptions thrown while
+     * processing each message are available via {@link SQSBatchProcessingException#getExceptions()} either way, so
+     * disabling it saves the cost of filling in a stack trace on every failed batch. Enabled by default.
+     *
+     * @param captureStackTrace false to not capture stack trace of {@link SQSBatchProcessingException}
+     */
+    public static void captureStackTrace(final boolean captureStackTrace) {
+        SqsUtils.captureStackTrace = captureStackTrace;
+    }
+
+    /**
+     * Enables capturing metrics of batch and large message processing: number of processed and failed messages,
+     * processing time and queue age of each message, fetch time of large payloads and latency of deleting messages.
+     * They are added to {@link software.amazon.lambda.powertools.metrics.MetricsUtils#metricsLogger()} once per
+     * invocation, so the handler must be annotated with {@link software.amazon.lambda.powertools.metrics.Metrics}
+     * for them to be flushed. Disabled by default.
+     *
+     * @param captureMetrics true to capture metrics
+     */
+    public static void captureMetrics(final boolean captureMetrics) {
+        BatchMetrics.enable(captureMetrics);
+    }
+
+    /**
+     * Sets the instance of ObjectMapper object which is used for deserializing message bodies for
+     * {@link SqsTypedMessageHandler}.
+     *
+     * @param objectMapper Custom implementation of object mapper to be used for deserializing message bodies
+     */
+    public static void defaultObjectMapper(ObjectMapper objectMapper) {
+        SqsUtils.objectMapper = objectMapper;
+        READERS.clear();
+    }
+
+    public static ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    static ObjectReader readerFor(final JavaType type) {
+        return READERS.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    @SuppressWarnings("unchecked")
     private static <R> SqsMessageHandler<R> instantiatedHandler(final Class<? extends SqsMessageHandler<R>> handler) {
+        return (SqsMessageHandler<R>) HANDLERS.computeIfAbsent(handler, key -> newHandlerInstance(handler));
+    }
+
+    private static <R> SqsMessageHandler<R> newHandlerInstance(final Class<? extends SqsMessageHandler<R>> handler) {
 
         try {
             if (null == handler.getDeclaringClass()) {
@@ -265,11 +766,51 @@ public final class SqsUtils {
     }
 
     private static SQSMessage clonedMessage(final SQSMessage sqsMessage) {
-        try {
-            return objectMapper
-                    .readValue(objectMapper.writeValueAsString(sqsMessage), SQSMessage.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+        SQSMessage clonedMessage = sqsMessage.clone();
+
+        if (null != sqsMessage.getAttributes()) {
+            clonedMessage.setAttributes(new HashMap<>(sqsMessage.getAttributes()));
+        }
+
+        if (null != sqsMessage.getMessageAttributes()) {
+            Map<String, MessageAttribute> messageAttributes = new HashMap<>();
+            sqsMessage.getMessageAttributes()
+                    .forEach((name, attribute) -> messageAttributes.put(name, clonedAttribute(attribute)));
+            clonedMessage.setMessageAttributes(messageAttributes);
         }
+
+        return clonedMessage;
+    }
+
+    /**
+     * Copies the binary values and lists of the attribute as well, which {@link MessageAttribute#clone()} shares
+     * with the original attribute, so that reading a binary value does not move the position of the original buffer.
+     */
+    private static MessageAttribute clonedAttribute(final MessageAttribute attribute) {
+        MessageAttribute clonedAttribute = attribute.clone();
+        clonedAttribute.setBinaryValue(clonedBuffer(attribute.getBinaryValue()));
+
+        if (null != attribute.getStringListValues()) {
+            clonedAttribute.setStringListValues(new ArrayList<>(attribute.getStringListValues()));
+        }
+
+        if (null != attribute.getBinaryListValues()) {
+            List<ByteBuffer> binaryListValues = new ArrayList<>(attribute.getBinaryListValues().size());
+            attribute.getBinaryListValues().forEach(value -> binaryListValues.add(clonedBuffer(value)));
+            clonedAttribute.setBinaryListValues(binaryListValues);
+        }
+
+        return clonedAttribute;
+    }
+
+    private static ByteBuffer clonedBuffer(final ByteBuffer buffer) {
+        if (null == buffer) {
+            return null;
+        }
+
+        ByteBuffer clonedBuffer = ByteBuffer.allocate(buffer.remaining());
+        clonedBuffer.put(buffer.duplicate());
+        clonedBuffer.flip();
+        return clonedBuffer;
     }
 }
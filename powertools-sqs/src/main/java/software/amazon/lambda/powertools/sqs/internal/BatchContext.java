@@ -4,29 +4,68 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.lambda.powertools.sqs.SQSBatchProcessingException;
 
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 public final class BatchContext {
     private static final Logger LOG = LoggerFactory.getLogger(BatchContext.class);
+    private static final int MAX_ENTRIES_PER_BATCH = 10;
+    private static final int MAX_PAYLOAD_BYTES_PER_BATCH = 256 * 1024;
+    private static final String MESSAGE_GROUP_ID = "MessageGroupId";
 
     private final List<SQSMessage> success = new ArrayList<>();
     private final List<SQSMessage> failures = new ArrayList<>();
     private final List<Exception> exceptions = new ArrayList<>();
+    private final List<SQSMessage> poisonMessages = new ArrayList<>();
+    private final List<Exception> poisonExceptions = new ArrayList<>();
+    private final List<SQSMessage> deferred = new ArrayList<>();
+    private final List<Integer> deferredDelays = new ArrayList<>();
     private final SqsClient client;
+    private final String deadLetterQueueUrl;
+    private final BatchMetrics metrics;
+    private final boolean captureStackTrace;
 
     public BatchContext(SqsClient client) {
+        this(client, null);
+    }
+
+    public BatchContext(SqsClient client, String deadLetterQueueUrl) {
+        this(client, deadLetterQueueUrl, BatchMetrics.disabled());
+    }
+
+    public BatchContext(SqsClient client, String deadLetterQueueUrl, BatchMetrics metrics) {
+        this(client, deadLetterQueueUrl, metrics, true);
+    }
+
+    public BatchContext(SqsClient client, String deadLetterQueueUrl, BatchMetrics metrics, boolean captureStackTrace) {
         this.client = client;
+        this.deadLetterQueueUrl = deadLetterQueueUrl;
+        this.metrics = metrics;
+        this.captureStackTrace = captureStackTrace;
     }
 
     public void addSuccess(SQSMessage event) {
@@ -38,8 +77,25 @@ public final class BatchContext {
         exceptions.add(e);
     }
 
+    public void addPoisonMessage(SQSMessage event, Exception e) {
+        poisonMessages.add(event);
+        poisonExceptions.add(e);
+    }
+
+    /**
+     * Adds a message which was not processed and should become visible again after {@code delaySeconds}.
+     */
+    public void addDeferred(SQSMessage event, Exception e, int delaySeconds) {
+        addFailure(event, e);
+        deferred.add(event);
+        deferredDelays.add(delaySeconds);
+    }
+
     public <T> void processSuccessAndHandleFailed(final List<T> successReturns,
                                                   final boolean suppressException) {
+        moveToDeadLetterQueue();
+        changeVisibilityOfDeferred();
+
         if (hasFailures()) {
             deleteSuccessMessage();
 
@@ -51,11 +107,154 @@ public final class BatchContext {
                 LOG.debug(format("[%s] records failed processing, but exceptions are suppressed. " +
                         "Failed messages %s", failures.size(), messageIds));
             } else {
-                throw new SQSBatchProcessingException(exceptions, failures, successReturns);
+                throw new SQSBatchProcessingException(exceptions, failures, successReturns, captureStackTrace);
+            }
+        }
+    }
+
+    /**
+     * Sends poison messages to the dead letter queue, in batches of at most 10 entries whose total payload stays within
+     * the 256 KB limit of a {@code SendMessageBatch} request.
+     */
+    private void moveToDeadLetterQueue() {
+        List<SendMessageBatchRequestEntry> entries = poisonMessages.stream()
+                .map(BatchContext::deadLetterEntry)
+                .collect(toList());
+
+        int start = 0;
+        while (start < entries.size()) {
+            int end = start;
+            int payloadBytes = 0;
+
+            while (end < entries.size() && end - start < MAX_ENTRIES_PER_BATCH) {
+                int entryBytes = payloadBytes(entries.get(end));
+
+                if (end > start && payloadBytes + entryBytes > MAX_PAYLOAD_BYTES_PER_BATCH) {
+                    break;
+                }
+                payloadBytes += entryBytes;
+                end++;
+            }
+
+            sendToDeadLetterQueue(entries.subList(start, end), start);
+            start = end;
+        }
+    }
+
+    private void sendToDeadLetterQueue(final List<SendMessageBatchRequestEntry> entries, final int start) {
+        SendMessageBatchRequest request = SendMessageBatchRequest.builder()
+                .queueUrl(deadLetterQueueUrl)
+                .entries(entries)
+                .build();
+
+        Set<String> failedIds = new HashSet<>();
+
+        try {
+            SendMessageBatchResponse response = client.sendMessageBatch(request);
+            response.failed().forEach(entry -> failedIds.add(entry.id()));
+            LOG.debug(format("Response from send to dead letter queue request %s", response));
+        } catch (SdkException e) {
+            LOG.error("Failed sending messages to dead letter queue " + deadLetterQueueUrl, e);
+            entries.forEach(entry -> failedIds.add(entry.id()));
+        }
+
+        for (int i = start; i < start + entries.size(); i++) {
+            SQSMessage message = poisonMessages.get(i);
+
+            if (failedIds.contains(message.getMessageId())) {
+                addFailure(message, poisonExceptions.get(i));
+            } else {
+                addSuccess(message);
             }
         }
     }
 
+    private void changeVisibilityOfDeferred() {
+        if (deferred.isEmpty()) {
+            return;
+        }
+
+        String queueUrl = queueUrl(client, deferred.get(0).getEventSourceArn());
+
+        for (int start = 0; start < deferred.size(); start += MAX_ENTRIES_PER_BATCH) {
+            int end = Math.min(start + MAX_ENTRIES_PER_BATCH, deferred.size());
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+
+            for (int i = start; i < end; i++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(deferred.get(i).getMessageId())
+                        .receiptHandle(deferred.get(i).getReceiptHandle())
+                        .visibilityTimeout(deferredDelays.get(i))
+                        .build());
+            }
+
+            try {
+                ChangeMessageVisibilityBatchResponse response = client.changeMessageVisibilityBatch(
+                        ChangeMessageVisibilityBatchRequest.builder()
+                                .queueUrl(queueUrl)
+                                .entries(entries)
+                                .build());
+                LOG.debug(format("Response from change visibility of deferred messages request %s", response));
+            } catch (SdkException e) {
+                LOG.error("Failed changing visibility of deferred messages", e);
+            }
+        }
+    }
+
+    /**
+     * Copies a message for the dead letter queue. Messages whose payload is offloaded to S3 are forwarded with their
+     * original body, pointing to the payload, which is then kept in S3.
+     */
+    private static SendMessageBatchRequestEntry deadLetterEntry(final SQSMessage message) {
+        String body = message.getBody();
+
+        if (message instanceof LazyLargeMessage) {
+            LazyLargeMessage largeMessage = (LazyLargeMessage) message;
+            largeMessage.retainPayload();
+            body = largeMessage.pointerBody();
+        }
+
+        SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder()
+                .id(message.getMessageId())
+                .messageBody(body);
+
+        if (null != message.getMessageAttributes()) {
+            Map<String, MessageAttributeValue> attributes = new HashMap<>();
+            message.getMessageAttributes().forEach((name, value) -> attributes.put(name, MessageAttributeValue.builder()
+                    .dataType(value.getDataType())
+                    .stringValue(value.getStringValue())
+                    .binaryValue(null != value.getBinaryValue() ? SdkBytes.fromByteBuffer(value.getBinaryValue()) : null)
+                    .build()));
+            entry.messageAttributes(attributes);
+        }
+
+        if (null != message.getAttributes() && message.getAttributes().containsKey(MESSAGE_GROUP_ID)) {
+            entry.messageGroupId(message.getAttributes().get(MESSAGE_GROUP_ID))
+                    .messageDeduplicationId(message.getMessageId());
+        }
+
+        return entry.build();
+    }
+
+    /**
+     * @return size counted by SQS towards the payload limit: body, and names, types and values of message attributes
+     */
+    private static int payloadBytes(final SendMessageBatchRequestEntry entry) {
+        int bytes = utf8Length(entry.messageBody());
+
+        for (Map.Entry<String, MessageAttributeValue> attribute : entry.messageAttributes().entrySet()) {
+            MessageAttributeValue value = attribute.getValue();
+            bytes += utf8Length(attribute.getKey()) + utf8Length(value.dataType()) + utf8Length(value.stringValue())
+                    + (null != value.binaryValue() ? value.binaryValue().asByteArrayUnsafe().length : 0);
+        }
+
+        return bytes;
+    }
+
+    private static int utf8Length(final String value) {
+        return null != value ? value.getBytes(UTF_8).length : 0;
+    }
+
     private boolean hasFailures() {
         return !failures.isEmpty();
     }
@@ -70,13 +269,19 @@ public final class BatchContext {
                             .build()).collect(toList()))
                     .build();
 
+            long startedAt = System.currentTimeMillis();
             DeleteMessageBatchResponse deleteMessageBatchResponse = client.deleteMessageBatch(request);
+            metrics.deleted(System.currentTimeMillis() - startedAt);
             LOG.debug(format("Response from delete request %s", deleteMessageBatchResponse));
         }
     }
 
     private String url() {
-        String[] arnArray = success.get(0).getEventSourceArn().split(":");
+        return queueUrl(client, success.get(0).getEventSourceArn());
+    }
+
+    static String queueUrl(final SqsClient client, final String eventSourceArn) {
+        String[] arnArray = eventSourceArn.split(":");
         return client.getQueueUrl(GetQueueUrlRequest.builder()
                 .queueOwnerAWSAccountId(arnArray[4])
                 .queueName(arnArray[5])
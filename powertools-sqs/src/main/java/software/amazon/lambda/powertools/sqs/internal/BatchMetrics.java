@@ -0,0 +1,162 @@
+package software.amazon.lambda.powertools.sqs.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import software.amazon.cloudwatchlogs.emf.logger.MetricsLogger;
+import software.amazon.cloudwatchlogs.emf.model.Unit;
+import software.amazon.lambda.powertools.metrics.MetricsUtils;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+/**
+ * Collects metrics of a single invocation of the batch or large message utilities, and adds them to
+ * {@link MetricsUtils#metricsLogger()} in one go, so they are flushed with the other metrics of the invocation by
+ * {@link software.amazon.lambda.powertools.metrics.Metrics}.
+ *
+ * <p>
+ * Latencies are emitted as multiple values of the same metric, which CloudWatch aggregates into a distribution.
+ * As a metric can hold at most {@link #MAX_VALUES_PER_METRIC} values, larger batches are sampled uniformly.
+ * </p>
+ */
+public final class BatchMetrics {
+    public static final String PROCESSED_MESSAGES = "ProcessedMessages";
+    public static final String FAILED_MESSAGES = "FailedMessages";
+    public static final String MESSAGE_PROCESSING_TIME = "MessageProcessingTime";
+    public static final String MESSAGE_QUEUE_AGE = "MessageQueueAge";
+    public static final String LARGE_PAYLOAD_FETCH_TIME = "LargePayloadFetchTime";
+    public static final String DELETE_MESSAGE_BATCH_TIME = "DeleteMessageBatchTime";
+
+    static final int MAX_VALUES_PER_METRIC = 100;
+    private static final String APPROXIMATE_FIRST_RECEIVE_TIMESTAMP = "ApproximateFirstReceiveTimestamp";
+    private static final BatchMetrics DISABLED = new BatchMetrics();
+    private static volatile boolean enabled;
+
+    private final Samples processingTime = new Samples();
+    private final Samples queueAge = new Samples();
+    private final Samples payloadFetchTime = new Samples();
+    private final Samples deleteTime = new Samples();
+    private int processed;
+    private int failed;
+
+    private BatchMetrics() {
+    }
+
+    /**
+     * @param enabled whether metrics of the batch and large message utilities are captured
+     */
+    public static void enable(final boolean enabled) {
+        BatchMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return collector for the current invocation, or a no-op instance when metrics are not captured
+     */
+    public static BatchMetrics start() {
+        return enabled ? new BatchMetrics() : DISABLED;
+    }
+
+    public static BatchMetrics disabled() {
+        return DISABLED;
+    }
+
+    public synchronized void received(final SQSMessage message, final long now) {
+        if (this == DISABLED) {
+            return;
+        }
+
+        Map<String, String> attributes = message.getAttributes();
+        String firstReceived = null != attributes ? attributes.get(APPROXIMATE_FIRST_RECEIVE_TIMESTAMP) : null;
+
+        if (null != firstReceived) {
+            try {
+                queueAge.add(Math.max(0, now - Long.parseLong(firstReceived)));
+            } catch (NumberFormatException e) {
+                // Attribute set by SQS, ignore message if it is not a timestamp
+            }
+        }
+    }
+
+    public synchronized void processed(final long processingMillis, final boolean success) {
+        if (this == DISABLED) {
+            return;
+        }
+
+        processingTime.add(processingMillis);
+
+        if (success) {
+            processed++;
+        } else {
+            failed++;
+        }
+    }
+
+    public synchronized void notProcessed() {
+        if (this != DISABLED) {
+            failed++;
+        }
+    }
+
+    public synchronized void payloadFetched(final long fetchMillis) {
+        if (this != DISABLED) {
+            payloadFetchTime.add(fetchMillis);
+        }
+    }
+
+    public synchronized void deleted(final long deleteMillis) {
+        if (this != DISABLED) {
+            deleteTime.add(deleteMillis);
+        }
+    }
+
+    /**
+     * Adds collected metrics to {@link MetricsUtils#metricsLogger()}.
+     */
+    public void emit() {
+        if (this != DISABLED) {
+            emit(MetricsUtils.metricsLogger());
+        }
+    }
+
+    synchronized void emit(final MetricsLogger logger) {
+        if (processed + failed > 0) {
+            logger.putMetric(PROCESSED_MESSAGES, processed, Unit.COUNT);
+            logger.putMetric(FAILED_MESSAGES, failed, Unit.COUNT);
+        }
+
+        processingTime.emit(logger, MESSAGE_PROCESSING_TIME);
+        queueAge.emit(logger, MESSAGE_QUEUE_AGE);
+        payloadFetchTime.emit(logger, LARGE_PAYLOAD_FETCH_TIME);
+        deleteTime.emit(logger, DELETE_MESSAGE_BATCH_TIME);
+    }
+
+    /**
+     * Uniform sample of at most {@link #MAX_VALUES_PER_METRIC} values, using reservoir sampling.
+     */
+    private static final class Samples {
+        private final List<Long> values = new ArrayList<>();
+        private int seen;
+
+        void add(final long value) {
+            seen++;
+
+            if (values.size() < MAX_VALUES_PER_METRIC) {
+                values.add(value);
+                return;
+            }
+
+            int index = ThreadLocalRandom.current().nextInt(seen);
+            if (index < MAX_VALUES_PER_METRIC) {
+                values.set(index, value);
+            }
+        }
+
+        void emit(final MetricsLogger logger, final String name) {
+            for (Long value : values) {
+                logger.putMetric(name, value, Unit.MILLISECONDS);
+            }
+        }
+    }
+}
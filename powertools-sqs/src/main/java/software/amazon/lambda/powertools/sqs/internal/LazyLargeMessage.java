@@ -0,0 +1,72 @@
+package software.amazon.lambda.powertools.sqs.internal;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import software.amazon.payloadoffloading.PayloadS3Pointer;
+
+/**
+ * {@link SQSEvent.SQSMessage} whose payload has been offloaded to S3 and is only retrieved the first time
+ * {@link #getBody()} is called, unless it was set beforehand. Messages whose body is never read are never downloaded.
+ *
+ * <p>The original body, pointing to the payload in S3, is kept so that the message can be forwarded as is to a dead
+ * letter queue, in which case its payload is retained in S3.</p>
+ */
+final class LazyLargeMessage extends SQSEvent.SQSMessage {
+    private final String pointerBody;
+    private final PayloadS3Pointer s3Pointer;
+    private boolean retrieved;
+    private volatile boolean payloadRetained;
+
+    LazyLargeMessage(final SQSEvent.SQSMessage sqsMessage) {
+        super.setBody(sqsMessage.getBody());
+        this.pointerBody = sqsMessage.getBody();
+        this.s3Pointer = PayloadS3Pointer.fromJson(sqsMessage.getBody());
+
+        setMessageId(sqsMessage.getMessageId());
+        setReceiptHandle(sqsMessage.getReceiptHandle());
+        setMd5OfBody(sqsMessage.getMd5OfBody());
+        setMd5OfMessageAttributes(sqsMessage.getMd5OfMessageAttributes());
+        setEventSourceArn(sqsMessage.getEventSourceArn());
+        setEventSource(sqsMessage.getEventSource());
+        setAwsRegion(sqsMessage.getAwsRegion());
+        setAttributes(sqsMessage.getAttributes());
+        setMessageAttributes(sqsMessage.getMessageAttributes());
+    }
+
+    @Override
+    public synchronized String getBody() {
+        if (!retrieved) {
+            super.setBody(SqsLargeMessageAspect.downloadPayload(s3Pointer));
+            retrieved = true;
+        }
+
+        return super.getBody();
+    }
+
+    @Override
+    public synchronized void setBody(final String body) {
+        super.setBody(body);
+        retrieved = true;
+    }
+
+    PayloadS3Pointer s3Pointer() {
+        return s3Pointer;
+    }
+
+    /**
+     * @return body of the message as received, pointing to the payload in S3
+     */
+    String pointerBody() {
+        return pointerBody;
+    }
+
+    /**
+     * Keeps the payload in S3 after the message is processed, as it is still referenced by a copy of the message.
+     */
+    void retainPayload() {
+        payloadRetained = true;
+    }
+
+    boolean isPayloadRetained() {
+        return payloadRetained;
+    }
+}
@@ -1,8 +1,20 @@
 package software.amazon.lambda.powertools.sqs.internal;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import com.amazonaws.AmazonServiceException;
@@ -11,6 +23,7 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.util.IOUtils;
@@ -27,12 +40,24 @@ import software.amazon.payloadoffloading.PayloadS3Pointer;
 
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.isHandlerMethod;
 
 @Aspect
 public class SqsLargeMessageAspect {
 
     private static final Logger LOG = LoggerFactory.getLogger(SqsLargeMessageAspect.class);
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 10;
+    private static final long NO_TIMEOUT = 0;
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+    private static final String RESERVED_ATTRIBUTE_NAME = "ExtendedPayloadSize";
+    private static final String LEGACY_RESERVED_ATTRIBUTE_NAME = "SQSLargePayloadSize";
+    private static final ExecutorService DELETE_EXECUTOR = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("powertools-sqs-payload-delete-"));
+    private static ThreadPoolExecutor downloadExecutor;
     private static AmazonS3 amazonS3 = AmazonS3ClientBuilder.defaultClient();
 
     @SuppressWarnings({"EmptyMethod"})
@@ -47,12 +72,21 @@ public class SqsLargeMessageAspect {
 
         if (isHandlerMethod(pjp)
                 && placedOnSqsEventRequestHandler(pjp)) {
-            List<PayloadS3Pointer> pointersToDelete = rewriteMessages((SQSEvent) proceedArgs[0]);
+            List<LazyLargeMessage> largeMessages = rewriteMessages((SQSEvent) proceedArgs[0], sqsLargeMessage);
 
             Object proceed = pjp.proceed(proceedArgs);
 
             if (sqsLargeMessage.deletePayloads()) {
-                pointersToDelete.forEach(this::deleteMessageFromS3);
+                List<PayloadS3Pointer> pointersToDelete = largeMessages.stream()
+                        .filter(message -> !message.isPayloadRetained())
+                        .map(LazyLargeMessage::s3Pointer)
+                        .collect(toList());
+
+                if (sqsLargeMessage.asyncPayloadDeletion()) {
+                    deleteMessagesAsync(pointersToDelete);
+                } else {
+                    deleteMessages(pointersToDelete);
+                }
             }
             return proceed;
         }
@@ -60,33 +94,232 @@ public class SqsLargeMessageAspect {
         return pjp.proceed(proceedArgs);
     }
 
-    private List<PayloadS3Pointer> rewriteMessages(SQSEvent sqsEvent) {
-        List<SQSMessage> records = sqsEvent.getRecords();
-        return processMessages(records);
+    /**
+     * Replaces the messages of the event whose payload is offloaded to S3, keeping their original body, and retrieves
+     * their payloads unless retrieval is lazy.
+     */
+    private List<LazyLargeMessage> rewriteMessages(SQSEvent sqsEvent,
+                                                   SqsLargeMessage sqsLargeMessage) {
+        List<LazyLargeMessage> largeMessages = replaceWithLazyMessages(sqsEvent);
+
+        if (!sqsLargeMessage.lazyPayloadRetrieval() && !largeMessages.isEmpty()) {
+            List<String> payloads = downloadPayloads(largeMessages.stream()
+                            .map(LazyLargeMessage::s3Pointer)
+                            .collect(toList()),
+                    sqsLargeMessage.maxConcurrentDownloads(), sqsLargeMessage.downloadTimeoutMillis());
+
+            for (int i = 0; i < largeMessages.size(); i++) {
+                largeMessages.get(i).setBody(payloads.get(i));
+            }
+        }
+
+        return largeMessages;
+    }
+
+    private static List<LazyLargeMessage> replaceWithLazyMessages(final SQSEvent sqsEvent) {
+        List<SQSMessage> records = new ArrayList<>(sqsEvent.getRecords().size());
+        List<LazyLargeMessage> largeMessages = new ArrayList<>();
+
+        for (SQSMessage sqsMessage : sqsEvent.getRecords()) {
+            if (isLargeMessage(sqsMessage)) {
+                LazyLargeMessage lazyMessage = new LazyLargeMessage(sqsMessage);
+                records.add(lazyMessage);
+                largeMessages.add(lazyMessage);
+            } else {
+                records.add(sqsMessage);
+            }
+        }
+
+        sqsEvent.setRecords(records);
+        return largeMessages;
     }
 
     public static List<PayloadS3Pointer> processMessages(final List<SQSMessage> records) {
+        return processMessages(records, DEFAULT_MAX_CONCURRENT_DOWNLOADS, NO_TIMEOUT);
+    }
+
+    /**
+     * Replaces the body of every message which points to a payload offloaded to S3 with the actual payload.
+     * Payloads are downloaded concurrently, at most {@code maxConcurrentDownloads} at a time. If any of the
+     * payloads fails to download, or takes longer than {@code downloadTimeoutMillis}, the whole batch fails
+     * with {@link FailedProcessingLargePayloadException}.
+     *
+     * @param records                SQS messages to enrich
+     * @param maxConcurrentDownloads maximum number of payloads downloaded in parallel
+     * @param downloadTimeoutMillis  maximum time to download each payload, from the start of its download, zero or
+     *                               less means no timeout
+     * @return pointers to payloads which were retrieved from S3
+     */
+    public static List<PayloadS3Pointer> processMessages(final List<SQSMessage> records,
+                                                         final int maxConcurrentDownloads,
+                                                         final long downloadTimeoutMillis) {
+        List<SQSMessage> largeMessages = new ArrayList<>();
         List<PayloadS3Pointer> s3Pointers = new ArrayList<>();
+
         for (SQSMessage sqsMessage : records) {
-            if (isBodyLargeMessagePointer(sqsMessage.getBody())) {
-                PayloadS3Pointer s3Pointer = PayloadS3Pointer.fromJson(sqsMessage.getBody());
+            if (isLargeMessage(sqsMessage)) {
+                largeMessages.add(sqsMessage);
+                s3Pointers.add(PayloadS3Pointer.fromJson(sqsMessage.getBody()));
+            }
+        }
 
-                S3Object s3Object = callS3Gracefully(s3Pointer, pointer -> {
-                    S3Object object = amazonS3.getObject(pointer.getS3BucketName(), pointer.getS3Key());
-                    LOG.debug("Object downloaded with key: " + s3Pointer.getS3Key());
-                    return object;
-                });
+        if (s3Pointers.isEmpty()) {
+            return s3Pointers;
+        }
 
-                sqsMessage.setBody(readStringFromS3Object(s3Object));
-                s3Pointers.add(s3Pointer);
-            }
+        List<String> payloads = downloadPayloads(s3Pointers, maxConcurrentDownloads, downloadTimeoutMillis);
+        for (int i = 0; i < largeMessages.size(); i++) {
+            largeMessages.get(i).setBody(payloads.get(i));
         }
 
         return s3Pointers;
     }
 
+    /**
+     * Downloads payloads on the shared download pool, with at most {@code maxConcurrentDownloads} workers taking
+     * pointers in order, so that at most that many downloads of the batch run at a time.
+     */
+    private static List<String> downloadPayloads(final List<PayloadS3Pointer> s3Pointers,
+                                                 final int maxConcurrentDownloads,
+                                                 final long downloadTimeoutMillis) {
+        int workers = Math.max(1, Math.min(maxConcurrentDownloads, s3Pointers.size()));
+        ExecutorService executor = downloadExecutor(workers);
+        List<PayloadDownload> downloads = s3Pointers.stream()
+                .map(PayloadDownload::new)
+                .collect(toList());
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> running = new ArrayList<>(workers);
+        List<String> payloads = new ArrayList<>(s3Pointers.size());
+        BatchMetrics metrics = BatchMetrics.start();
+
+        try {
+            for (int i = 0; i < workers; i++) {
+                running.add(executor.submit(() -> {
+                    for (int index = next.getAndIncrement(); index < downloads.size(); index = next.getAndIncrement()) {
+                        downloads.get(index).run(metrics);
+                    }
+                }));
+            }
+
+            for (PayloadDownload download : downloads) {
+                payloads.add(awaitPayload(download, downloadTimeoutMillis));
+            }
+        } finally {
+            // Stops workers from picking up further downloads once one failed or timed out
+            next.set(downloads.size());
+            running.forEach(worker -> worker.cancel(true));
+            metrics.emit();
+        }
+
+        return payloads;
+    }
+
+    /**
+     * @return pool shared by all invocations, created on first use and grown to the largest number of concurrent
+     * downloads requested. Idle threads are released after a minute.
+     */
+    private static synchronized ExecutorService downloadExecutor(final int threads) {
+        if (null == downloadExecutor) {
+            downloadExecutor = new ThreadPoolExecutor(threads, threads, 1, MINUTES, new LinkedBlockingQueue<>(),
+                    new DaemonThreadFactory("powertools-sqs-large-message-"));
+            downloadExecutor.allowCoreThreadTimeOut(true);
+        } else if (threads > downloadExecutor.getMaximumPoolSize()) {
+            downloadExecutor.setMaximumPoolSize(threads);
+            downloadExecutor.setCorePoolSize(threads);
+        }
+
+        return downloadExecutor;
+    }
+
+    /**
+     * Opens a stream on a payload offloaded to S3 without reading it into memory. Caller is responsible for
+     * closing the returned stream.
+     *
+     * @param s3Pointer pointer to the payload
+     * @return stream of the payload content
+     */
+    public static InputStream openPayloadStream(final PayloadS3Pointer s3Pointer) {
+        return getS3Object(s3Pointer).getObjectContent();
+    }
+
+    /**
+     * Checks if the payload of the message has been offloaded to S3. The reserved message attribute set by the extended
+     * client lib is checked first, so that the body only needs to be inspected for messages sent without it.
+     *
+     * @param sqsMessage message to check
+     * @return true if body of the message is a pointer to a payload in S3
+     */
+    public static boolean isLargeMessage(final SQSMessage sqsMessage) {
+        if (sqsMessage instanceof LazyLargeMessage) {
+            return false;
+        }
+
+        Map<String, SQSEvent.MessageAttribute> messageAttributes = sqsMessage.getMessageAttributes();
+        if (null != messageAttributes
+                && (messageAttributes.containsKey(RESERVED_ATTRIBUTE_NAME)
+                || messageAttributes.containsKey(LEGACY_RESERVED_ATTRIBUTE_NAME))) {
+            return true;
+        }
+
+        return isBodyLargeMessagePointer(sqsMessage.getBody());
+    }
+
+    static String downloadPayload(final PayloadS3Pointer s3Pointer) {
+        return readStringFromS3Object(getS3Object(s3Pointer));
+    }
+
+    private static S3Object getS3Object(final PayloadS3Pointer s3Pointer) {
+        return callS3Gracefully(s3Pointer, pointer -> {
+            S3Object object = amazonS3.getObject(pointer.getS3BucketName(), pointer.getS3Key());
+            LOG.debug("Object downloaded with key: " + s3Pointer.getS3Key());
+            return object;
+        });
+    }
+
+    /**
+     * Waits for a payload at most {@code downloadTimeoutMillis} from the start of its download, rather than from
+     * the start of the wait, as downloads run concurrently with the ones awaited before.
+     */
+    private static String awaitPayload(final PayloadDownload download,
+                                       final long downloadTimeoutMillis) {
+        PayloadS3Pointer s3Pointer = download.s3Pointer;
+
+        try {
+            if (downloadTimeoutMillis <= 0) {
+                return download.payload.get();
+            }
+
+            while (true) {
+                long startedAt = download.startedAt;
+                long waitMillis = startedAt > 0 ?
+                        startedAt + downloadTimeoutMillis - System.currentTimeMillis() : downloadTimeoutMillis;
+
+                try {
+                    return download.payload.get(Math.max(0, waitMillis), MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (startedAt > 0) {
+                        throw e;
+                    }
+                    // Download was still waiting for a thread, its timeout only runs from when it starts
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FailedProcessingLargePayloadException) {
+                throw (FailedProcessingLargePayloadException) e.getCause();
+            }
+
+            throw new FailedProcessingLargePayloadException(format("Failed processing S3 record with [Bucket Name: %s Bucket Key: %s]", s3Pointer.getS3BucketName(), s3Pointer.getS3Key()), e.getCause());
+        } catch (TimeoutException e) {
+            LOG.error("Timed out downloading object with key: " + s3Pointer.getS3Key());
+            throw new FailedProcessingLargePayloadException(format("Timed out after %d ms processing S3 record with [Bucket Name: %s Bucket Key: %s]", downloadTimeoutMillis, s3Pointer.getS3BucketName(), s3Pointer.getS3Key()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailedProcessingLargePayloadException(format("Interrupted processing S3 record with [Bucket Name: %s Bucket Key: %s]", s3Pointer.getS3BucketName(), s3Pointer.getS3Key()), e);
+        }
+    }
+
     private static boolean isBodyLargeMessagePointer(String record) {
-        return record.startsWith("[\"software.amazon.payloadoffloading.PayloadS3Pointer\"");
+        return null != record && record.startsWith("[\"software.amazon.payloadoffloading.PayloadS3Pointer\"");
     }
 
     private static String readStringFromS3Object(S3Object object) {
@@ -98,7 +331,7 @@ public class SqsLargeMessageAspect {
         }
     }
 
-    private void deleteMessageFromS3(PayloadS3Pointer s3Pointer) {
+    public static void deleteMessage(PayloadS3Pointer s3Pointer) {
         callS3Gracefully(s3Pointer, pointer -> {
             amazonS3.deleteObject(s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
             LOG.info("Message deleted from S3: " + s3Pointer.toJson());
@@ -106,14 +339,71 @@ public class SqsLargeMessageAspect {
         });
     }
 
-    public static void deleteMessage(PayloadS3Pointer s3Pointer) {
-        callS3Gracefully(s3Pointer, pointer -> {
-            amazonS3.deleteObject(s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
-            LOG.info("Message deleted from S3: " + s3Pointer.toJson());
-            return null;
+    /**
+     * Deletes payloads from S3 with as few calls as possible. Keys are grouped per bucket and deleted with
+     * multi-object delete requests of at most 1000 keys.
+     *
+     * @param s3Pointers pointers to payloads to delete
+     */
+    public static void deleteMessages(final List<PayloadS3Pointer> s3Pointers) {
+        Map<String, List<PayloadS3Pointer>> pointersByBucket = s3Pointers.stream()
+                .collect(groupingBy(PayloadS3Pointer::getS3BucketName, LinkedHashMap::new, toList()));
+
+        pointersByBucket.forEach((bucket, pointers) -> {
+            for (int from = 0; from < pointers.size(); from += MAX_KEYS_PER_DELETE) {
+                List<PayloadS3Pointer> chunk = pointers.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, pointers.size()));
+
+                if (chunk.size() == 1) {
+                    deleteMessage(chunk.get(0));
+                } else {
+                    deleteObjects(bucket, chunk);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #deleteMessages(List)} but deletion happens on a background thread so that it is not part of
+     * the invocation. Failures are only logged. If the execution environment is frozen before deletion completes,
+     * it resumes on the next invocation.
+     *
+     * @param s3Pointers pointers to payloads to delete
+     */
+    public static void deleteMessagesAsync(final List<PayloadS3Pointer> s3Pointers) {
+        if (s3Pointers.isEmpty()) {
+            return;
+        }
+
+        List<PayloadS3Pointer> pointers = new ArrayList<>(s3Pointers);
+        DELETE_EXECUTOR.execute(() -> {
+            try {
+                deleteMessages(pointers);
+            } catch (FailedProcessingLargePayloadException e) {
+                LOG.error("Failed deleting payloads from S3 in background", e);
+            }
         });
     }
 
+    private static void deleteObjects(final String bucket,
+                                      final List<PayloadS3Pointer> pointers) {
+        List<String> keys = pointers.stream()
+                .map(PayloadS3Pointer::getS3Key)
+                .collect(toList());
+
+        try {
+            amazonS3.deleteObjects(new DeleteObjectsRequest(bucket)
+                    .withKeys(keys.toArray(new String[0]))
+                    .withQuiet(true));
+            LOG.info(format("Messages deleted from S3 bucket %s: %s", bucket, keys));
+        } catch (AmazonServiceException e) {
+            LOG.error("A service exception", e);
+            throw new FailedProcessingLargePayloadException(format("Failed deleting S3 records with [Bucket Name: %s Bucket Keys: %s]", bucket, keys), e);
+        } catch (SdkClientException e) {
+            LOG.error("Some sort of client exception", e);
+            throw new FailedProcessingLargePayloadException(format("Failed deleting S3 records with [Bucket Name: %s Bucket Keys: %s]", bucket, keys), e);
+        }
+    }
+
     private static <R> R callS3Gracefully(final PayloadS3Pointer pointer,
                                    final Function<PayloadS3Pointer, R> function) {
         try {
@@ -138,4 +428,28 @@ public class SqsLargeMessageAspect {
             super(message, cause);
         }
     }
+
+    /**
+     * Payload of a single pointer, downloaded by one of the workers of a batch.
+     */
+    private static final class PayloadDownload {
+        private final PayloadS3Pointer s3Pointer;
+        private final CompletableFuture<String> payload = new CompletableFuture<>();
+        private volatile long startedAt;
+
+        private PayloadDownload(final PayloadS3Pointer s3Pointer) {
+            this.s3Pointer = s3Pointer;
+        }
+
+        private void run(final BatchMetrics metrics) {
+            startedAt = System.currentTimeMillis();
+
+            try {
+                payload.complete(downloadPayload(s3Pointer));
+                metrics.payloadFetched(System.currentTimeMillis() - startedAt);
+            } catch (Throwable e) {
+                payload.completeExceptionally(e);
+            }
+        }
+    }
 }
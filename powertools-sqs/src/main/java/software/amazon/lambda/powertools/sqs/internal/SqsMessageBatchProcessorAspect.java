@@ -1,18 +1,27 @@
 package software.amazon.lambda.powertools.sqs.internal;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import software.amazon.lambda.powertools.sqs.SqsBatch;
+import software.amazon.lambda.powertools.sqs.SqsBatchOptions;
+import software.amazon.lambda.powertools.sqs.SqsRateLimiter;
+import software.amazon.lambda.powertools.sqs.SqsRetryPolicy;
 
+import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.extractContext;
 import static software.amazon.lambda.powertools.core.internal.LambdaHandlerProcessor.isHandlerMethod;
 import static software.amazon.lambda.powertools.sqs.SqsUtils.batchProcessor;
 import static software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect.placedOnSqsEventRequestHandler;
 
 @Aspect
 public class SqsMessageBatchProcessorAspect {
+    // Token buckets must survive across invocations, so limiters are kept per annotation
+    private static final Map<SqsBatch, SqsRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
 
     @SuppressWarnings({"EmptyMethod"})
     @Pointcut("@annotation(sqsBatch)")
@@ -29,9 +38,39 @@ public class SqsMessageBatchProcessorAspect {
 
             SQSEvent sqsEvent = (SQSEvent) proceedArgs[0];
 
-            batchProcessor(sqsEvent, sqsBatch.suppressException(), sqsBatch.value());
+            batchProcessor(sqsEvent, SqsBatchOptions.builder()
+                    .suppressException(sqsBatch.suppressException())
+                    .context(extractContext(pjp).orElse(null))
+                    .remainingTimeMarginMillis(sqsBatch.remainingTimeMarginMillis())
+                    .retryPolicy(retryPolicy(sqsBatch))
+                    .visibilityTimeoutSeconds(sqsBatch.visibilityTimeoutSeconds())
+                    .rateLimiter(rateLimiter(sqsBatch))
+                    .build(), sqsBatch.value());
         }
 
         return pjp.proceed(proceedArgs);
     }
+
+    private static SqsRateLimiter rateLimiter(final SqsBatch sqsBatch) {
+        if (sqsBatch.maxMessagesPerSecond() <= 0) {
+            return SqsRateLimiter.NONE;
+        }
+
+        return RATE_LIMITERS.computeIfAbsent(sqsBatch, key -> SqsRateLimiter.builder()
+                .permitsPerSecond(sqsBatch.maxMessagesPerSecond())
+                .burst(sqsBatch.rateLimitBurst())
+                .keyAttribute(sqsBatch.rateLimitKeyAttribute())
+                .build());
+    }
+
+    private static SqsRetryPolicy retryPolicy(final SqsBatch sqsBatch) {
+        return SqsRetryPolicy.builder()
+                .maxAttempts(sqsBatch.maxAttempts())
+                .retryOn(sqsBatch.retryOn())
+                .baseDelayMillis(sqsBatch.retryBaseDelayMillis())
+                .maxDelayMillis(sqsBatch.retryMaxDelayMillis())
+                .deadLetterQueueUrl(sqsBatch.deadLetterQueueUrl())
+                .maxReceiveCount(sqsBatch.maxReceiveCount())
+                .build();
+    }
 }
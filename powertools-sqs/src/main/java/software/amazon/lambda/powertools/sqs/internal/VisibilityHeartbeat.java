@@ -0,0 +1,246 @@
+package software.amazon.lambda.powertools.sqs.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Extends visibility timeout of in flight messages of a batch from a background thread, so that messages taking
+ * longer than the visibility timeout of the queue are not delivered again while still being processed.
+ *
+ * <p>
+ * The first beat happens halfway through the visibility timeout, counted from the
+ * {@code ApproximateFirstReceiveTimestamp} of the oldest message of the batch, since messages can wait in the Lambda
+ * poller for the batching window before the invocation starts. It happens right away if that point has already
+ * passed, which is usually the case for messages delivered more than once. Each beat extends visibility by the larger
+ * of the configured visibility timeout and twice the longest processing time observed so far, and schedules the next
+ * beat halfway through that extension. Failed and skipped messages stop being extended right away. Those already
+ * extended by a beat are made visible again when the heartbeat is closed, via {@code ChangeMessageVisibility} with a
+ * timeout of 0, so they return to the queue once the batch is processed rather than when their last extension
+ * expires. Successful messages are extended until the heartbeat is closed, as they are only deleted once the whole
+ * batch is processed.
+ * </p>
+ */
+public final class VisibilityHeartbeat implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(VisibilityHeartbeat.class);
+    private static final int MAX_ENTRIES_PER_BATCH = 10;
+    private static final String APPROXIMATE_FIRST_RECEIVE_TIMESTAMP = "ApproximateFirstReceiveTimestamp";
+    private static final long MAX_VISIBILITY_TIMEOUT_SECONDS = TimeUnit.HOURS.toSeconds(12);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new DaemonThreadFactory("powertools-sqs-visibility-heartbeat-"));
+    private static final VisibilityHeartbeat DISABLED = new VisibilityHeartbeat(null, new ArrayList<>(), 0);
+
+    private final SqsClient client;
+    private final Map<String, SQSMessage> inFlight = new LinkedHashMap<>();
+    private final Set<String> extended = new HashSet<>();
+    private final List<SQSMessage> released = new ArrayList<>();
+    private final Object extending = new Object();
+    private final long visibilityTimeoutSeconds;
+    private String queueUrl;
+    private long longestProcessingMillis;
+    private long processingStartedAt;
+    private ScheduledFuture<?> nextBeat;
+    private boolean closed;
+
+    private VisibilityHeartbeat(final SqsClient client,
+                                final List<SQSMessage> messages,
+                                final long visibilityTimeoutSeconds) {
+        this.client = client;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        messages.forEach(message -> inFlight.put(message.getMessageId(), message));
+    }
+
+    /**
+     * @param visibilityTimeoutSeconds Visibility timeout of the queue. 0 or less disables the heartbeat.
+     */
+    public static VisibilityHeartbeat start(final SqsClient client,
+                                            final List<SQSMessage> messages,
+                                            final long visibilityTimeoutSeconds) {
+        if (visibilityTimeoutSeconds <= 0 || messages.isEmpty()) {
+            return DISABLED;
+        }
+
+        VisibilityHeartbeat heartbeat = new VisibilityHeartbeat(client, messages, visibilityTimeoutSeconds);
+        heartbeat.schedule(receivedAt(messages) + visibilityTimeoutSeconds * 1000 / 2 - System.currentTimeMillis());
+        return heartbeat;
+    }
+
+    /**
+     * @return first receive timestamp of the oldest message, or now if no message has one
+     */
+    private static long receivedAt(final List<SQSMessage> messages) {
+        long receivedAt = System.currentTimeMillis();
+
+        for (SQSMessage message : messages) {
+            Map<String, String> attributes = message.getAttributes();
+            String firstReceived = null != attributes ? attributes.get(APPROXIMATE_FIRST_RECEIVE_TIMESTAMP) : null;
+
+            if (null != firstReceived) {
+                try {
+                    receivedAt = Math.min(receivedAt, Long.parseLong(firstReceived));
+                } catch (NumberFormatException e) {
+                    // Attribute set by SQS, ignore message if it is not a timestamp
+                }
+            }
+        }
+
+        return receivedAt;
+    }
+
+    public synchronized void processing(final SQSMessage message) {
+        if (this == DISABLED) {
+            return;
+        }
+
+        processingStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @param extendUntilClosed true for messages deleted once the batch is processed, false for messages which must
+     *                          return to the queue
+     */
+    public synchronized void processed(final SQSMessage message, final boolean extendUntilClosed) {
+        if (this == DISABLED) {
+            return;
+        }
+
+        longestProcessingMillis = Math.max(longestProcessingMillis, System.currentTimeMillis() - processingStartedAt);
+        processingStartedAt = 0;
+
+        if (!extendUntilClosed) {
+            release(message);
+        }
+    }
+
+    /**
+     * Stops extending visibility of a message which was not processed, so it returns to the queue.
+     */
+    public synchronized void skipped(final SQSMessage message) {
+        release(message);
+    }
+
+    /**
+     * Stops extending visibility of a message whose visibility timeout is changed by the caller.
+     */
+    public synchronized void deferred(final SQSMessage message) {
+        inFlight.remove(message.getMessageId());
+    }
+
+    private void release(final SQSMessage message) {
+        if (null != inFlight.remove(message.getMessageId()) && extended.contains(message.getMessageId())) {
+            released.add(message);
+        }
+    }
+
+    /**
+     * Stops extending visibility of messages, once any beat in progress completes, and makes released messages
+     * visible again.
+     */
+    @Override
+    public void close() {
+        List<SQSMessage> messages;
+
+        synchronized (this) {
+            closed = true;
+
+            if (null != nextBeat) {
+                nextBeat.cancel(false);
+            }
+
+            messages = new ArrayList<>(released);
+            released.clear();
+        }
+
+        synchronized (extending) {
+            if (!messages.isEmpty()) {
+                changeVisibility(messages, 0);
+            }
+        }
+    }
+
+    private synchronized void schedule(final long delayMillis) {
+        if (!closed) {
+            nextBeat = SCHEDULER.schedule(this::beat, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void beat() {
+        // Held while extending, so that close() does not make released messages visible before a beat in progress
+        // extends them again
+        synchronized (extending) {
+            List<SQSMessage> messages;
+            long extensionSeconds;
+
+            synchronized (this) {
+                if (closed || inFlight.isEmpty()) {
+                    return;
+                }
+
+                long longest = longestProcessingMillis;
+                if (processingStartedAt > 0) {
+                    longest = Math.max(longest, System.currentTimeMillis() - processingStartedAt);
+                }
+
+                messages = new ArrayList<>(inFlight.values());
+                messages.forEach(message -> extended.add(message.getMessageId()));
+                extensionSeconds = Math.min(MAX_VISIBILITY_TIMEOUT_SECONDS,
+                        Math.max(visibilityTimeoutSeconds, TimeUnit.MILLISECONDS.toSeconds(longest * 2)));
+            }
+
+            try {
+                changeVisibility(messages, extensionSeconds);
+            } catch (RuntimeException e) {
+                LOG.error("Failed extending visibility timeout of in flight messages", e);
+            } finally {
+                schedule(extensionSeconds * 1000 / 2);
+            }
+        }
+    }
+
+    private void changeVisibility(final List<SQSMessage> messages, final long visibilityTimeoutSeconds) {
+        if (null == queueUrl) {
+            queueUrl = BatchContext.queueUrl(client, messages.get(0).getEventSourceArn());
+        }
+
+        for (int start = 0; start < messages.size(); start += MAX_ENTRIES_PER_BATCH) {
+            List<SQSMessage> chunk = messages.subList(start, Math.min(start + MAX_ENTRIES_PER_BATCH, messages.size()));
+
+            try {
+                ChangeMessageVisibilityBatchResponse response = client.changeMessageVisibilityBatch(
+                        ChangeMessageVisibilityBatchRequest.builder()
+                                .queueUrl(queueUrl)
+                                .entries(chunk.stream().map(message -> ChangeMessageVisibilityBatchRequestEntry.builder()
+                                        .id(message.getMessageId())
+                                        .receiptHandle(message.getReceiptHandle())
+                                        .visibilityTimeout((int) visibilityTimeoutSeconds)
+                                        .build()).collect(toList()))
+                                .build());
+
+                LOG.debug(format("Changed visibility timeout to %d seconds, response %s", visibilityTimeoutSeconds,
+                        response));
+            } catch (SdkException e) {
+                LOG.error(format("Failed changing visibility timeout of messages to %d seconds",
+                        visibilityTimeoutSeconds), e);
+            }
+        }
+    }
+}
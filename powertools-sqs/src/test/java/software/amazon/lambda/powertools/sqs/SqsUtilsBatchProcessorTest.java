@@ -1,24 +1,41 @@
 package software.amazon.lambda.powertools.sqs;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -26,6 +43,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static software.amazon.lambda.powertools.sqs.SqsUtils.batchProcessor;
+import static software.amazon.lambda.powertools.sqs.SqsUtils.captureStackTrace;
+import static software.amazon.lambda.powertools.sqs.SqsUtils.defaultObjectMapper;
 import static software.amazon.lambda.powertools.sqs.SqsUtils.overrideSqsClient;
 
 class SqsUtilsBatchProcessorTest {
@@ -33,6 +52,7 @@ class SqsUtilsBatchProcessorTest {
     private static final SqsClient sqsClient = mock(SqsClient.class);
     private static final SqsClient interactionClient = mock(SqsClient.class);
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final AtomicInteger handlerInstances = new AtomicInteger();
     private SQSEvent event;
 
     @BeforeEach
@@ -206,6 +226,600 @@ class SqsUtilsBatchProcessorTest {
         verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
     }
 
+    @Test
+    void shouldBatchProcessViaTypedHandlerWithDeserializedBodies() {
+        event.getRecords().get(0).setBody("{\"id\":\"first\",\"quantity\":1}");
+        event.getRecords().get(1).setBody("{\"id\":\"second\",\"quantity\":2}");
+
+        List<String> returnValues = batchProcessor(event, TypedSampleInnerSqsHandler.class);
+
+        assertThat(returnValues)
+                .containsExactly("first:1", "second:2");
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldDeserializeWithObjectMapperOverriddenAfterHandlerWasCreated() {
+        event.getRecords().get(0).setBody("{\"id\":\"first\",\"quantity\":1}");
+        event.getRecords().get(1).setBody("{\"id\":\"second\",\"quantity\":2,\"note\":\"gift\"}");
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, TypedSampleInnerSqsHandler.class));
+
+        try {
+            defaultObjectMapper(new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+
+            assertThat(batchProcessor(event, TypedSampleInnerSqsHandler.class))
+                    .containsExactly("first:1", "second:2");
+        } finally {
+            defaultObjectMapper(new ObjectMapper());
+        }
+    }
+
+    @Test
+    void shouldTreatUndeserializableBodyAsFailedMessage() {
+        event.getRecords().get(0).setBody("{\"id\":\"first\",\"quantity\":1}");
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, TypedSampleInnerSqsHandler.class))
+                .satisfies(e -> {
+
+                    assertThat(e.successMessageReturnValues())
+                            .containsExactly("first:1");
+
+                    assertThat(e.getFailures())
+                            .hasSize(1)
+                            .extracting("messageId")
+                            .contains("2e1424d4-f796-459a-8184-9c92662be6da");
+
+                    assertThat(e.getExceptions())
+                            .hasSize(1)
+                            .hasOnlyElementsOfType(UncheckedIOException.class);
+                });
+
+        verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldStopPickingUpMessagesOnceRemainingTimeFallsBelowMargin() {
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(500);
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .context(context)
+                .remainingTimeMarginMillis(1000)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    interactionClient.listQueues();
+                    return "Success";
+                }))
+                .satisfies(e -> {
+
+                    assertThat(e.successMessageReturnValues())
+                            .isEmpty();
+
+                    assertThat(e.getFailures())
+                            .hasSize(2);
+
+                    assertThat(e.getExceptions())
+                            .hasSize(2)
+                            .hasOnlyElementsOfType(TimeoutException.class);
+                });
+
+        verifyNoInteractions(interactionClient);
+        verify(context).getRemainingTimeInMillis();
+    }
+
+    @Test
+    void shouldProcessAllMessagesWhenRemainingTimeIsAboveMargin() {
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(5000);
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .context(context)
+                .remainingTimeMarginMillis(1000)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> "Success");
+
+        assertThat(returnValues)
+                .containsExactly("Success", "Success");
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldRetryTransientFailuresWithinInvocation() {
+        Map<String, Integer> attempts = new HashMap<>();
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .retryOn(IllegalStateException.class)
+                .maxAttempts(3)
+                .baseDelayMillis(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> {
+            if (attempts.merge(message.getMessageId(), 1, Integer::sum) < 3) {
+                throw new IllegalStateException("Transient failure");
+            }
+
+            return "Success";
+        });
+
+        assertThat(returnValues)
+                .containsExactly("Success", "Success");
+
+        assertThat(attempts)
+                .containsValues(3, 3);
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldNotRetryFailuresNotConsideredTransient() {
+        AtomicInteger attempts = new AtomicInteger();
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .retryOn(IllegalStateException.class)
+                .maxAttempts(3)
+                .baseDelayMillis(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalArgumentException("Permanent failure");
+                }))
+                .satisfies(e -> assertThat(e.getFailures()).hasSize(2));
+
+        assertThat(attempts)
+                .hasValue(2);
+    }
+
+    @Test
+    void shouldSendPoisonMessageToDeadLetterQueueAndNotReportFailure() {
+        String failedId = "2e1424d4-f796-459a-8184-9c92662be6da";
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(SendMessageBatchResponse.builder()
+                .build());
+
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> {
+            if (failedId.equals(message.getMessageId())) {
+                throw new RuntimeException("Poison message");
+            }
+
+            return "Success";
+        });
+
+        assertThat(returnValues)
+                .containsExactly("Success");
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(captor.capture());
+
+        assertThat(captor.getValue().queueUrl())
+                .isEqualTo("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq");
+
+        assertThat(captor.getValue().entries())
+                .extracting(SendMessageBatchRequestEntry::id)
+                .containsExactly(failedId);
+
+        verify(sqsClient, times(0)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldSplitDeadLetterQueueBatchesToStayWithinPayloadLimit() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(SendMessageBatchResponse.builder()
+                .build());
+
+        List<SQSMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SQSMessage message = new SQSMessage();
+            message.setMessageId("poison-" + i);
+            message.setBody(StringUtils.repeat('x', 100 * 1024));
+            message.setAttributes(Collections.singletonMap("ApproximateReceiveCount", "1"));
+            messages.add(message);
+        }
+        event.setRecords(messages);
+
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> {
+            throw new RuntimeException("Poison message");
+        });
+
+        assertThat(returnValues).isEmpty();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(captor.capture());
+
+        assertThat(captor.getAllValues())
+                .extracting(request -> request.entries().size())
+                .containsExactly(2, 2, 1);
+    }
+
+    @Test
+    void shouldReportFailureWhenReceiveCountIsBelowMaxReceiveCount() {
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(3)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    throw new RuntimeException("Failed processing");
+                }))
+                .satisfies(e -> assertThat(e.getFailures()).hasSize(2));
+
+        verify(sqsClient, times(0)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "unknown"})
+    void shouldReportFailureWhenReceiveCountIsUnknown(String receiveCount) {
+        event.getRecords().forEach(message -> message.setAttributes(receiveCount.isEmpty() ?
+                Collections.emptyMap() : Collections.singletonMap("ApproximateReceiveCount", receiveCount)));
+
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    throw new RuntimeException("Failed processing");
+                }))
+                .satisfies(e -> assertThat(e.getFailures()).hasSize(2));
+
+        verify(sqsClient, times(0)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldNotSendToDeadLetterQueueBeforeDefaultMaxReceiveCount() {
+        event.getRecords().forEach(message -> message.setAttributes(
+                Collections.singletonMap("ApproximateReceiveCount", "4")));
+
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    throw new RuntimeException("Failed processing");
+                }));
+
+        verify(sqsClient, times(0)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldReportFailureWhenSendingToDeadLetterQueueFails() {
+        String failedId = "2e1424d4-f796-459a-8184-9c92662be6da";
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(SendMessageBatchResponse.builder()
+                .failed(BatchResultErrorEntry.builder().id(failedId).build())
+                .build());
+
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> {
+                    if (failedId.equals(message.getMessageId())) {
+                        throw new RuntimeException("Poison message");
+                    }
+
+                    return "Success";
+                }))
+                .satisfies(e -> assertThat(e.getFailures())
+                        .extracting("messageId")
+                        .containsExactly(failedId));
+
+        verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldExtendVisibilityOfInFlightMessagesExceptFailedOnes() {
+        String failedId = "059f36b4-87a3-44ab-83d2-661975830a7d";
+        String slowId = "2e1424d4-f796-459a-8184-9c92662be6da";
+        receivedAt(System.currentTimeMillis());
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .suppressException(true)
+                .visibilityTimeoutSeconds(1)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> {
+            if (failedId.equals(message.getMessageId())) {
+                throw new IllegalStateException("Failed processing");
+            }
+
+            sleep(1200);
+            return "Success";
+        });
+
+        assertThat(returnValues)
+                .containsExactly("Success");
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient, atLeastOnce()).changeMessageVisibilityBatch(captor.capture());
+
+        assertThat(captor.getAllValues())
+                .allSatisfy(request -> assertThat(request.entries())
+                        .extracting(ChangeMessageVisibilityBatchRequestEntry::id)
+                        .containsExactly(slowId))
+                .allSatisfy(request -> assertThat(request.entries())
+                        .extracting(ChangeMessageVisibilityBatchRequestEntry::visibilityTimeout)
+                        .allMatch(timeout -> timeout >= 1));
+    }
+
+    @Test
+    void shouldNotExtendVisibilityWhenBatchCompletesWithinVisibilityTimeout() {
+        receivedAt(System.currentTimeMillis());
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .visibilityTimeoutSeconds(30)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options,
+                (message) -> "Success");
+
+        assertThat(returnValues)
+                .containsExactly("Success", "Success");
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldExtendVisibilityRightAwayWhenMessagesWaitedHalfOfVisibilityTimeoutBeforeInvocation() {
+        receivedAt(System.currentTimeMillis() - 20_000);
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .visibilityTimeoutSeconds(30)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> {
+            sleep(300);
+            return "Success";
+        });
+
+        assertThat(returnValues)
+                .containsExactly("Success", "Success");
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient).changeMessageVisibilityBatch(captor.capture());
+
+        assertThat(captor.getValue().entries())
+                .hasSize(2)
+                .extracting(ChangeMessageVisibilityBatchRequestEntry::visibilityTimeout)
+                .containsOnly(30);
+    }
+
+    @Test
+    void shouldMakeFailedMessagesAlreadyExtendedVisibleAgain() {
+        String failedId = "059f36b4-87a3-44ab-83d2-661975830a7d";
+        receivedAt(System.currentTimeMillis() - 20_000);
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .suppressException(true)
+                .visibilityTimeoutSeconds(30)
+                .build();
+
+        batchProcessor(event, options, (message) -> {
+            sleep(300);
+
+            if (failedId.equals(message.getMessageId())) {
+                throw new IllegalStateException("Failed processing");
+            }
+
+            return "Success";
+        });
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient, times(2)).changeMessageVisibilityBatch(captor.capture());
+
+        assertThat(captor.getAllValues().get(0).entries())
+                .hasSize(2)
+                .extracting(ChangeMessageVisibilityBatchRequestEntry::visibilityTimeout)
+                .containsOnly(30);
+
+        assertThat(captor.getAllValues().get(1).entries())
+                .singleElement()
+                .hasFieldOrPropertyWithValue("id", failedId)
+                .hasFieldOrPropertyWithValue("visibilityTimeout", 0);
+    }
+
+    @Test
+    void shouldExposeCompactFailureDetailsWithoutCapturingStackTrace() {
+        String failedId = "2e1424d4-f796-459a-8184-9c92662be6da";
+        captureStackTrace(false);
+
+        try {
+            assertThatExceptionOfType(SQSBatchProcessingException.class)
+                    .isThrownBy(() -> batchProcessor(event, (message) -> {
+                        if (failedId.equals(message.getMessageId())) {
+                            throw new IllegalStateException("Failed processing");
+                        }
+
+                        return "Success";
+                    }))
+                    .satisfies(e -> {
+                        assertThat(e.getStackTrace())
+                                .isEmpty();
+
+                        assertThat(e.getMessage())
+                                .isEqualTo("java.lang.IllegalStateException: Failed processing");
+
+                        assertThat(e.getFailureDetails())
+                                .singleElement()
+                                .satisfies(failure -> {
+                                    assertThat(failure.getMessageId()).isEqualTo(failedId);
+                                    assertThat(failure.getExceptionClass()).isEqualTo(IllegalStateException.class.getName());
+                                    assertThat(failure.getExceptionMessage()).isEqualTo("Failed processing");
+                                });
+                    });
+        } finally {
+            captureStackTrace(true);
+        }
+    }
+
+    @Test
+    void shouldShareTimeoutExceptionAcrossMessagesNotProcessed() {
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(500);
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .context(context)
+                .remainingTimeMarginMillis(1000)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> "Success"))
+                .satisfies(e -> assertThat(e.getExceptions().get(0))
+                        .isSameAs(e.getExceptions().get(1)));
+    }
+
+    @Test
+    void shouldDeferMessagesExceedingRateLimitWithVisibilityDelay() {
+        String deferredId = "2e1424d4-f796-459a-8184-9c92662be6da";
+        SqsRateLimiter rateLimiter = SqsRateLimiter.builder()
+                .permitsPerSecond(0.5)
+                .burst(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .rateLimiter(rateLimiter)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> batchProcessor(event, options, (message) -> "Success"))
+                .satisfies(e -> {
+                    assertThat(e.successMessageReturnValues())
+                            .containsExactly("Success");
+
+                    assertThat(e.getFailures())
+                            .extracting(SQSMessage::getMessageId)
+                            .containsExactly(deferredId);
+
+                    assertThat(e.getExceptions())
+                            .singleElement()
+                            .isInstanceOf(SqsRateLimitExceededException.class)
+                            .hasFieldOrPropertyWithValue("key", "default")
+                            .hasFieldOrPropertyWithValue("delaySeconds", 2);
+                });
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient).changeMessageVisibilityBatch(captor.capture());
+
+        assertThat(captor.getValue().entries())
+                .singleElement()
+                .hasFieldOrPropertyWithValue("id", deferredId)
+                .hasFieldOrPropertyWithValue("visibilityTimeout", 2);
+
+        verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldRateLimitEachDownstreamKeySeparately() {
+        SqsRateLimiter rateLimiter = SqsRateLimiter.builder()
+                .permitsPerSecond(1)
+                .keyAttribute("downstream")
+                .build();
+
+        for (int i = 0; i < event.getRecords().size(); i++) {
+            SQSEvent.MessageAttribute attribute = new SQSEvent.MessageAttribute();
+            attribute.setStringValue("downstream-" + i);
+            event.getRecords().get(i).setMessageAttributes(Collections.singletonMap("downstream", attribute));
+        }
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .rateLimiter(rateLimiter)
+                .build();
+
+        List<String> returnValues = batchProcessor(event, options, (message) -> "Success");
+
+        assertThat(returnValues)
+                .containsExactly("Success", "Success");
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldReuseHandlerInstanceAcrossInvocations() {
+        batchProcessor(event, InstanceCountingInnerSqsHandler.class);
+        batchProcessor(event, InstanceCountingInnerSqsHandler.class);
+
+        assertThat(handlerInstances)
+                .hasValue(1);
+    }
+
+    @Test
+    void shouldRejectNegativeBatchOptions() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> SqsBatchOptions.builder().remainingTimeMarginMillis(-1));
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> SqsBatchOptions.builder().visibilityTimeoutSeconds(-1));
+    }
+
+    private void receivedAt(final long timestamp) {
+        event.getRecords().forEach(message -> message.getAttributes()
+                .put("ApproximateFirstReceiveTimestamp", String.valueOf(timestamp)));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
     public class SampleInnerSqsHandler implements SqsMessageHandler<String> {
         private int counter;
 
@@ -227,4 +841,27 @@ class SqsUtilsBatchProcessorTest {
             return "Success";
         }
     }
-}
\ No newline at end of file
+
+    public class TypedSampleInnerSqsHandler extends SqsTypedMessageHandler<Order, String> {
+        @Override
+        public String process(Order order, SQSMessage message) {
+            return order.id + ":" + order.quantity;
+        }
+    }
+
+    public class InstanceCountingInnerSqsHandler implements SqsMessageHandler<String> {
+        public InstanceCountingInnerSqsHandler() {
+            handlerInstances.incrementAndGet();
+        }
+
+        @Override
+        public String process(SQSMessage message) {
+            return "Success";
+        }
+    }
+
+    public static class Order {
+        public String id;
+        public int quantity;
+    }
+}
@@ -0,0 +1,247 @@
+package software.amazon.lambda.powertools.sqs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static software.amazon.lambda.powertools.sqs.SqsUtils.bulkProcessor;
+import static software.amazon.lambda.powertools.sqs.SqsUtils.overrideSqsClient;
+
+class SqsUtilsBulkProcessorTest {
+
+    private static final SqsClient sqsClient = mock(SqsClient.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private SQSEvent event;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reset(sqsClient);
+        event = MAPPER.readValue(this.getClass().getResource("/sampleSqsBatchEvent.json"), SQSEvent.class);
+        event.setRecords(Arrays.asList(message("1"), message("2"), message("3"), message("4"), message("5")));
+
+        when(sqsClient.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(GetQueueUrlResponse.builder()
+                .queueUrl("test")
+                .build());
+
+        overrideSqsClient(sqsClient);
+    }
+
+    @Test
+    void shouldProcessMessagesInChunksAndNotDeleteMessagesWhenAllSuccess() {
+        List<List<String>> chunks = new ArrayList<>();
+
+        List<String> returnValues = bulkProcessor(event, 2, messages -> {
+            chunks.add(ids(messages));
+
+            SqsBulkResult.Builder<String> result = SqsBulkResult.builder();
+            messages.forEach(message -> result.success(message, "Success " + message.getMessageId()));
+            return result.build();
+        });
+
+        assertThat(chunks)
+                .containsExactly(Arrays.asList("1", "2"), Arrays.asList("3", "4"), Arrays.asList("5"));
+
+        assertThat(returnValues)
+                .containsExactly("Success 1", "Success 2", "Success 3", "Success 4", "Success 5");
+
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void shouldMapPartialBulkFailuresToFailedMessages() {
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> bulkProcessor(event, 3, messages -> {
+                    if (messages.get(0).getMessageId().equals("4")) {
+                        throw new IllegalStateException("Bulk call failed");
+                    }
+
+                    return SqsBulkResult.<String>builder()
+                            .success(messages.get(0), "Success")
+                            .failure(messages.get(1), new IllegalArgumentException("Item rejected"))
+                            .build();
+                }))
+                .satisfies(e -> {
+                    assertThat(e.successMessageReturnValues())
+                            .containsExactly("Success");
+
+                    assertThat(ids(e.getFailures()))
+                            .containsExactly("2", "3", "4", "5");
+
+                    assertThat(e.getExceptions())
+                            .extracting(Throwable::getMessage)
+                            .containsExactly("Item rejected", "No outcome reported for message 3",
+                                    "Bulk call failed", "Bulk call failed");
+                });
+
+        ArgumentCaptor<DeleteMessageBatchRequest> captor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqsClient).deleteMessageBatch(captor.capture());
+
+        assertThat(captor.getValue().entries())
+                .extracting(DeleteMessageBatchRequestEntry::id)
+                .containsExactly("1");
+    }
+
+    @Test
+    void shouldPassTransientFailuresOfChunkAgainTogether() {
+        List<List<String>> chunks = new ArrayList<>();
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .retryOn(IllegalStateException.class)
+                .maxAttempts(3)
+                .baseDelayMillis(1)
+                .build();
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(retryPolicy)
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> bulkProcessor(event, options, 5, messages -> {
+                    chunks.add(ids(messages));
+
+                    SqsBulkResult.Builder<String> result = SqsBulkResult.builder();
+                    for (SQSMessage message : messages) {
+                        if (message.getMessageId().equals("3")) {
+                            result.failure(message, new IllegalArgumentException("Item rejected"));
+                        } else if (chunks.size() == 1 && !message.getMessageId().equals("1")) {
+                            result.failure(message, new IllegalStateException("Throttled"));
+                        } else {
+                            result.success(message, "Success " + message.getMessageId());
+                        }
+                    }
+                    return result.build();
+                }))
+                .satisfies(e -> {
+                    assertThat(e.successMessageReturnValues())
+                            .containsExactly("Success 1", "Success 2", "Success 4", "Success 5");
+
+                    assertThat(ids(e.getFailures()))
+                            .containsExactly("3");
+                });
+
+        assertThat(chunks)
+                .containsExactly(Arrays.asList("1", "2", "3", "4", "5"), Arrays.asList("2", "4", "5"));
+    }
+
+    @Test
+    void shouldSendFailedMessagesOfChunkToDeadLetterQueue() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(SendMessageBatchResponse.builder()
+                .build());
+        event.getRecords().forEach(message ->
+                message.setAttributes(Collections.singletonMap("ApproximateReceiveCount", "1")));
+
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .retryPolicy(SqsRetryPolicy.builder()
+                        .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                        .maxReceiveCount(1)
+                        .build())
+                .build();
+
+        List<String> returnValues = bulkProcessor(event, options, 2, messages -> {
+            SqsBulkResult.Builder<String> result = SqsBulkResult.builder();
+            for (SQSMessage message : messages) {
+                if (message.getMessageId().equals("2")) {
+                    result.failure(message, new RuntimeException("Poison message"));
+                } else {
+                    result.success(message, "Success " + message.getMessageId());
+                }
+            }
+            return result.build();
+        });
+
+        assertThat(returnValues)
+                .containsExactly("Success 1", "Success 3", "Success 4", "Success 5");
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(captor.capture());
+
+        assertThat(captor.getValue().entries())
+                .extracting(SendMessageBatchRequestEntry::id)
+                .containsExactly("2");
+
+        verify(sqsClient, times(0)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    void shouldDeferMessagesExceedingRateLimitBeforePassingChunk() {
+        List<List<String>> chunks = new ArrayList<>();
+        SqsBatchOptions options = SqsBatchOptions.builder()
+                .rateLimiter(SqsRateLimiter.builder()
+                        .permitsPerSecond(0.5)
+                        .burst(2)
+                        .build())
+                .build();
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> bulkProcessor(event, options, 5, messages -> {
+                    chunks.add(ids(messages));
+
+                    SqsBulkResult.Builder<String> result = SqsBulkResult.builder();
+                    messages.forEach(message -> result.success(message, "Success " + message.getMessageId()));
+                    return result.build();
+                }))
+                .satisfies(e -> {
+                    assertThat(e.successMessageReturnValues())
+                            .containsExactly("Success 1", "Success 2");
+
+                    assertThat(ids(e.getFailures()))
+                            .containsExactly("3", "4", "5");
+
+                    assertThat(e.getExceptions())
+                            .allSatisfy(exception -> assertThat(exception)
+                                    .isInstanceOf(SqsRateLimitExceededException.class));
+                });
+
+        assertThat(chunks)
+                .containsExactly(Arrays.asList("1", "2"));
+
+        verify(sqsClient).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+    }
+
+    @Test
+    void shouldRejectChunkSizeBelowOne() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> bulkProcessor(event, 0, messages -> SqsBulkResult.<String>builder().build()));
+    }
+
+    private static List<String> ids(List<SQSMessage> messages) {
+        return messages.stream()
+                .map(SQSMessage::getMessageId)
+                .collect(Collectors.toList());
+    }
+
+    private SQSMessage message(String messageId) {
+        SQSMessage message = new SQSMessage();
+        message.setMessageId(messageId);
+        message.setReceiptHandle("handle-" + messageId);
+        message.setEventSourceArn(event.getRecords().get(0).getEventSourceArn());
+        return message;
+    }
+}
@@ -2,6 +2,10 @@ package software.amazon.lambda.powertools.sqs;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -12,6 +16,7 @@ import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
 import com.amazonaws.util.StringInputStream;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +30,7 @@ import software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect;
 
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.apache.commons.lang3.reflect.FieldUtils.writeStaticField;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -152,6 +158,126 @@ class SqsUtilsLargeMessageTest {
         verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
     }
 
+    @Test
+    public void shouldNotMutateOriginalEvent() {
+        S3Object s3Response = new S3Object();
+        s3Response.setObjectContent(new ByteArrayInputStream("A big message".getBytes()));
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenReturn(s3Response);
+        String pointer = "[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]";
+        SQSEvent sqsEvent = messageWithBody(pointer);
+        SQSMessage original = sqsEvent.getRecords().get(0);
+        original.setMessageId("059f36b4-87a3-44ab-83d2-661975830a7d");
+        original.setAttributes(new HashMap<>(singletonMap("ApproximateReceiveCount", "1")));
+        SQSEvent.MessageAttribute messageAttribute = new SQSEvent.MessageAttribute();
+        messageAttribute.setStringValue("value");
+        original.setMessageAttributes(new HashMap<>(singletonMap("key", messageAttribute)));
+
+        SQSMessage enriched = SqsUtils.enrichedMessageFromS3(sqsEvent, sqsMessages -> {
+            sqsMessages.get(0).getAttributes().put("Extra", "value");
+            sqsMessages.get(0).getMessageAttributes().get("key").setStringValue("changed");
+            return sqsMessages.get(0);
+        });
+
+        assertThat(enriched)
+                .isNotSameAs(original)
+                .hasFieldOrPropertyWithValue("body", "A big message")
+                .hasFieldOrPropertyWithValue("messageId", "059f36b4-87a3-44ab-83d2-661975830a7d");
+
+        assertThat(original.getBody()).isEqualTo(pointer);
+        assertThat(original.getAttributes()).containsOnlyKeys("ApproximateReceiveCount");
+        assertThat(original.getMessageAttributes().get("key").getStringValue()).isEqualTo("value");
+    }
+
+    @Test
+    public void shouldNotMutateBinaryAttributesOfOriginalEvent() {
+        S3Object s3Response = new S3Object();
+        s3Response.setObjectContent(new ByteArrayInputStream("A big message".getBytes()));
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenReturn(s3Response);
+        SQSEvent sqsEvent = messageWithBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]");
+        SQSMessage original = sqsEvent.getRecords().get(0);
+        SQSEvent.MessageAttribute messageAttribute = new SQSEvent.MessageAttribute();
+        messageAttribute.setBinaryValue(ByteBuffer.wrap("binary".getBytes()));
+        messageAttribute.setStringListValues(new ArrayList<>(singletonList("value")));
+        messageAttribute.setBinaryListValues(new ArrayList<>(singletonList(ByteBuffer.wrap("item".getBytes()))));
+        original.setMessageAttributes(new HashMap<>(singletonMap("key", messageAttribute)));
+
+        SqsUtils.enrichedMessageFromS3(sqsEvent, sqsMessages -> {
+            SQSEvent.MessageAttribute attribute = sqsMessages.get(0).getMessageAttributes().get("key");
+            attribute.getBinaryValue().get(new byte[6]);
+            attribute.getBinaryListValues().get(0).get();
+            attribute.getStringListValues().add("added");
+            return null;
+        });
+
+        assertThat(messageAttribute.getBinaryValue().remaining()).isEqualTo(6);
+        assertThat(messageAttribute.getBinaryListValues().get(0).remaining()).isEqualTo(4);
+        assertThat(messageAttribute.getStringListValues()).containsExactly("value");
+    }
+
+    @Test
+    public void shouldStreamLargeAndSmallMessageBodies() {
+        S3Object s3Response = new S3Object();
+        s3Response.setObjectContent(new ByteArrayInputStream("A big message".getBytes()));
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenReturn(s3Response);
+
+        SQSMessage largeMessage = new SQSMessage();
+        largeMessage.setBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]");
+        SQSMessage smallMessage = new SQSMessage();
+        smallMessage.setBody("This is small message");
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(Arrays.asList(largeMessage, smallMessage));
+
+        Map<String, String> bodies = SqsUtils.streamedMessagesFromS3(sqsEvent, payloads -> {
+            Map<String, String> someBusinessLogic = new HashMap<>();
+            for (SqsMessagePayload payload : payloads) {
+                try (InputStream stream = payload.openStream()) {
+                    someBusinessLogic.put(payload.isOffloaded() ? "Large" : "Small", IOUtils.toString(stream));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return someBusinessLogic;
+        });
+
+        assertThat(bodies)
+                .hasSize(2)
+                .containsEntry("Large", "A big message")
+                .containsEntry("Small", "This is small message");
+
+        assertThat(largeMessage.getBody())
+                .startsWith("[\"software.amazon.payloadoffloading.PayloadS3Pointer\"");
+
+        verify(amazonS3).deleteObject(BUCKET_NAME, BUCKET_KEY);
+    }
+
+    @Test
+    public void shouldNotRetrieveLargeMessageWhenStreamNotOpened() {
+        SQSEvent sqsEvent = messageWithBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]");
+
+        boolean offloaded = SqsUtils.streamedMessagesFromS3(sqsEvent, false, payloads -> payloads.get(0).isOffloaded());
+
+        assertThat(offloaded).isTrue();
+
+        verifyNoInteractions(amazonS3);
+    }
+
+    @ParameterizedTest
+    @MethodSource("exception")
+    public void shouldFailOpeningStreamIfFailedDownloadingFromS3(RuntimeException exception) {
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenThrow(exception);
+
+        SQSEvent sqsEvent = messageWithBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]");
+
+        assertThatExceptionOfType(SqsLargeMessageAspect.FailedProcessingLargePayloadException.class)
+                .isThrownBy(() -> SqsUtils.streamedMessagesFromS3(sqsEvent, payloads -> payloads.get(0).openChannel()))
+                .withCause(exception);
+
+        verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
+    }
+
     private static Stream<Arguments> exception() {
         return Stream.of(Arguments.of(new AmazonServiceException("Service Exception")),
                 Arguments.of(new SdkClientException("Client Exception")));
@@ -0,0 +1,28 @@
+package software.amazon.lambda.powertools.sqs.handlers;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import software.amazon.lambda.powertools.sqs.SqsBatchOptions;
+import software.amazon.lambda.powertools.sqs.SqsLargeMessage;
+import software.amazon.lambda.powertools.sqs.SqsRetryPolicy;
+
+import static software.amazon.lambda.powertools.sqs.SqsUtils.batchProcessor;
+
+public class SqsLargeMessageDeadLetterHandler implements RequestHandler<SQSEvent, String> {
+
+    @Override
+    @SqsLargeMessage
+    public String handleRequest(SQSEvent sqsEvent, Context context) {
+        SqsRetryPolicy retryPolicy = SqsRetryPolicy.builder()
+                .deadLetterQueueUrl("https://sqs.us-east-2.amazonaws.com/123456789012/my-dlq")
+                .maxReceiveCount(1)
+                .build();
+
+        batchProcessor(sqsEvent, SqsBatchOptions.builder().retryPolicy(retryPolicy).build(), message -> {
+            throw new RuntimeException("Poison message " + message.getBody());
+        });
+
+        return "Done";
+    }
+}
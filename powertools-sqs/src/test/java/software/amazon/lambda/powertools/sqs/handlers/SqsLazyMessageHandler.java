@@ -0,0 +1,20 @@
+package software.amazon.lambda.powertools.sqs.handlers;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import software.amazon.lambda.powertools.sqs.SqsLargeMessage;
+
+import static java.util.stream.Collectors.joining;
+
+public class SqsLazyMessageHandler implements RequestHandler<SQSEvent, String> {
+
+    @Override
+    @SqsLargeMessage(lazyPayloadRetrieval = true)
+    public String handleRequest(SQSEvent sqsEvent, Context context) {
+        return sqsEvent.getRecords().stream()
+                .filter(message -> message.getMessageAttributes().containsKey("process"))
+                .map(SQSEvent.SQSMessage::getBody)
+                .collect(joining(","));
+    }
+}
@@ -0,0 +1,102 @@
+package software.amazon.lambda.powertools.sqs.internal;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudwatchlogs.emf.logger.MetricsLogger;
+import software.amazon.cloudwatchlogs.emf.model.Unit;
+
+import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.DELETE_MESSAGE_BATCH_TIME;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.FAILED_MESSAGES;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.LARGE_PAYLOAD_FETCH_TIME;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.MAX_VALUES_PER_METRIC;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.MESSAGE_PROCESSING_TIME;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.MESSAGE_QUEUE_AGE;
+import static software.amazon.lambda.powertools.sqs.internal.BatchMetrics.PROCESSED_MESSAGES;
+
+class BatchMetricsTest {
+
+    private final MetricsLogger logger = mock(MetricsLogger.class);
+
+    @AfterEach
+    void tearDown() {
+        BatchMetrics.enable(false);
+    }
+
+    @Test
+    void shouldNotCollectMetricsWhenDisabled() {
+        BatchMetrics metrics = BatchMetrics.start();
+
+        metrics.processed(10, true);
+        metrics.emit(logger);
+
+        assertThat(metrics)
+                .isSameAs(BatchMetrics.disabled());
+
+        verifyNoInteractions(logger);
+    }
+
+    @Test
+    void shouldEmitCountsAndLatenciesOfBatch() {
+        BatchMetrics.enable(true);
+        BatchMetrics metrics = BatchMetrics.start();
+
+        metrics.received(message("1000"), 1500);
+        metrics.processed(20, true);
+        metrics.processed(30, false);
+        metrics.notProcessed();
+        metrics.payloadFetched(40);
+        metrics.deleted(50);
+        metrics.emit(logger);
+
+        verify(logger).putMetric(PROCESSED_MESSAGES, 1, Unit.COUNT);
+        verify(logger).putMetric(FAILED_MESSAGES, 2, Unit.COUNT);
+        verify(logger).putMetric(MESSAGE_PROCESSING_TIME, 20, Unit.MILLISECONDS);
+        verify(logger).putMetric(MESSAGE_PROCESSING_TIME, 30, Unit.MILLISECONDS);
+        verify(logger).putMetric(MESSAGE_QUEUE_AGE, 500, Unit.MILLISECONDS);
+        verify(logger).putMetric(LARGE_PAYLOAD_FETCH_TIME, 40, Unit.MILLISECONDS);
+        verify(logger).putMetric(DELETE_MESSAGE_BATCH_TIME, 50, Unit.MILLISECONDS);
+    }
+
+    @Test
+    void shouldSampleLatenciesOfLargeBatches() {
+        BatchMetrics.enable(true);
+        BatchMetrics metrics = BatchMetrics.start();
+
+        for (int i = 0; i < MAX_VALUES_PER_METRIC * 3; i++) {
+            metrics.processed(i, true);
+        }
+        metrics.emit(logger);
+
+        verify(logger).putMetric(PROCESSED_MESSAGES, MAX_VALUES_PER_METRIC * 3, Unit.COUNT);
+        verify(logger, times(MAX_VALUES_PER_METRIC))
+                .putMetric(eq(MESSAGE_PROCESSING_TIME), anyDouble(), eq(Unit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldIgnoreMessagesWithoutFirstReceiveTimestamp() {
+        BatchMetrics.enable(true);
+        BatchMetrics metrics = BatchMetrics.start();
+
+        metrics.received(new SQSMessage(), 1500);
+        metrics.received(message("not a timestamp"), 1500);
+        metrics.emit(logger);
+
+        verifyNoInteractions(logger);
+    }
+
+    private static SQSMessage message(String firstReceiveTimestamp) {
+        SQSMessage message = new SQSMessage();
+        message.setAttributes(Collections.singletonMap("ApproximateFirstReceiveTimestamp", firstReceiveTimestamp));
+        return message;
+    }
+}
@@ -2,6 +2,11 @@ package software.amazon.lambda.powertools.sqs.internal;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import com.amazonaws.AmazonServiceException;
@@ -11,6 +16,7 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.util.StringInputStream;
@@ -20,22 +26,41 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.lambda.powertools.sqs.handlers.LambdaHandlerApiGateway;
+import software.amazon.lambda.powertools.sqs.handlers.SqsAsyncDeleteMessageHandler;
+import software.amazon.lambda.powertools.sqs.handlers.SqsDownloadTimeoutMessageHandler;
+import software.amazon.lambda.powertools.sqs.handlers.SqsLargeMessageDeadLetterHandler;
+import software.amazon.lambda.powertools.sqs.handlers.SqsLazyMessageHandler;
 import software.amazon.lambda.powertools.sqs.handlers.SqsMessageHandler;
 import software.amazon.lambda.powertools.sqs.handlers.SqsNoDeleteMessageHandler;
+import software.amazon.payloadoffloading.PayloadS3Pointer;
 
 import static com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.commons.lang3.reflect.FieldUtils.writeStaticField;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
+import static software.amazon.lambda.powertools.sqs.SqsUtils.overrideSqsClient;
 import static software.amazon.lambda.powertools.sqs.internal.SqsLargeMessageAspect.FailedProcessingLargePayloadException;
 
 public class SqsLargeMessageAspectTest {
@@ -140,6 +165,220 @@ public class SqsLargeMessageAspectTest {
         verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
     }
 
+    @Test
+    public void shouldDownloadAllLargeMessagesInBatch() {
+        List<SQSMessage> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String key = BUCKET_KEY + i;
+            S3Object s3Response = new S3Object();
+            s3Response.setObjectContent(new ByteArrayInputStream(("A big message " + i).getBytes()));
+            when(amazonS3.getObject(BUCKET_NAME, key)).thenReturn(s3Response);
+
+            SQSMessage sqsMessage = new SQSMessage();
+            sqsMessage.setBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + key + "\"}]");
+            records.add(sqsMessage);
+        }
+
+        SQSMessage smallMessage = new SQSMessage();
+        smallMessage.setBody("This is small message");
+        records.add(2, smallMessage);
+
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(records);
+
+        requestHandler.handleRequest(sqsEvent, context);
+
+        assertThat(sqsEvent.getRecords())
+                .extracting("body")
+                .containsExactly("A big message 0", "A big message 1", "This is small message",
+                        "A big message 2", "A big message 3", "A big message 4");
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(amazonS3).deleteObjects(captor.capture());
+
+        assertThat(captor.getValue().getBucketName())
+                .isEqualTo(BUCKET_NAME);
+        assertThat(captor.getValue().getKeys())
+                .extracting("key")
+                .containsExactly(BUCKET_KEY + 0, BUCKET_KEY + 1, BUCKET_KEY + 2, BUCKET_KEY + 3, BUCKET_KEY + 4);
+        verify(amazonS3, never()).deleteObject(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldDeletePayloadsInChunksPerBucket() {
+        List<PayloadS3Pointer> pointers = new ArrayList<>();
+        for (int i = 0; i < 2001; i++) {
+            pointers.add(new PayloadS3Pointer(BUCKET_NAME, BUCKET_KEY + i));
+        }
+        pointers.add(new PayloadS3Pointer("otherbucket", BUCKET_KEY));
+
+        SqsLargeMessageAspect.deleteMessages(pointers);
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(amazonS3, times(2)).deleteObjects(captor.capture());
+
+        assertThat(captor.getAllValues())
+                .allSatisfy(request -> assertThat(request.getKeys()).hasSize(1000))
+                .extracting("bucketName")
+                .containsOnly(BUCKET_NAME);
+
+        verify(amazonS3).deleteObject(BUCKET_NAME, BUCKET_KEY + 2000);
+        verify(amazonS3).deleteObject("otherbucket", BUCKET_KEY);
+    }
+
+    @Test
+    public void shouldFailIfBatchDeletionFails() {
+        when(amazonS3.deleteObjects(any(DeleteObjectsRequest.class))).thenThrow(new AmazonServiceException("Service Exception"));
+
+        List<PayloadS3Pointer> pointers = Arrays.asList(new PayloadS3Pointer(BUCKET_NAME, BUCKET_KEY + 0),
+                new PayloadS3Pointer(BUCKET_NAME, BUCKET_KEY + 1));
+
+        assertThatExceptionOfType(FailedProcessingLargePayloadException.class)
+                .isThrownBy(() -> SqsLargeMessageAspect.deleteMessages(pointers))
+                .withCauseInstanceOf(AmazonServiceException.class);
+    }
+
+    @Test
+    public void testLargeMessageWithAsyncDeletion() {
+        requestHandler = new SqsAsyncDeleteMessageHandler();
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenReturn(s3ObjectWithLargeMessage());
+        SQSEvent sqsEvent = messageWithBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]");
+
+        String response = requestHandler.handleRequest(sqsEvent, context);
+
+        assertThat(response).isEqualTo("A big message");
+
+        verify(amazonS3, timeout(1000)).deleteObject(BUCKET_NAME, BUCKET_KEY);
+    }
+
+    @Test
+    public void shouldFailEntireBatchIfDownloadTimesOut() {
+        requestHandler = new SqsDownloadTimeoutMessageHandler();
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenAnswer(invocation -> {
+            SECONDS.sleep(5);
+            return s3ObjectWithLargeMessage();
+        });
+
+        String messageBody = "[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + "\"}]";
+        SQSEvent sqsEvent = messageWithBody(messageBody);
+
+        assertThatExceptionOfType(FailedProcessingLargePayloadException.class)
+                .isThrownBy(() -> requestHandler.handleRequest(sqsEvent, context))
+                .withMessageContaining("Timed out");
+
+        verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
+    }
+
+    @Test
+    public void shouldMeasureDownloadTimeoutFromStartOfEachDownload() {
+        List<SQSMessage> records = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            long downloadMillis = 300 * (i + 1);
+            when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY + i)).thenAnswer(invocation -> {
+                MILLISECONDS.sleep(downloadMillis);
+                return s3ObjectWithLargeMessage();
+            });
+
+            SQSMessage sqsMessage = new SQSMessage();
+            sqsMessage.setBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + BUCKET_KEY + i + "\"}]");
+            records.add(sqsMessage);
+        }
+
+        // Second download runs alongside the first one, so it exceeds its timeout before the first one completes
+        assertThatExceptionOfType(FailedProcessingLargePayloadException.class)
+                .isThrownBy(() -> SqsLargeMessageAspect.processMessages(records, 2, 450))
+                .withMessageContaining("Timed out")
+                .withMessageContaining(BUCKET_KEY + 1);
+    }
+
+    @Test
+    public void shouldOnlyRetrieveLargeMessagesWhoseBodyIsRead() {
+        requestHandler = new SqsLazyMessageHandler();
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY + 0)).thenReturn(s3ObjectWithLargeMessage());
+
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(Arrays.asList(largeMessageWithAttributes(BUCKET_KEY + 0, "process", "ExtendedPayloadSize"),
+                largeMessageWithAttributes(BUCKET_KEY + 1, "ExtendedPayloadSize")));
+
+        String response = requestHandler.handleRequest(sqsEvent, context);
+
+        assertThat(response).isEqualTo("A big message");
+
+        verify(amazonS3).getObject(BUCKET_NAME, BUCKET_KEY + 0);
+        verify(amazonS3, never()).getObject(BUCKET_NAME, BUCKET_KEY + 1);
+        verify(amazonS3).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @ParameterizedTest
+    @MethodSource("exception")
+    public void shouldFailReadingBodyIfLazyRetrievalFails(RuntimeException exception) {
+        requestHandler = new SqsLazyMessageHandler();
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenThrow(exception);
+
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(singletonList(largeMessageWithAttributes(BUCKET_KEY, "process")));
+
+        assertThatExceptionOfType(FailedProcessingLargePayloadException.class)
+                .isThrownBy(() -> requestHandler.handleRequest(sqsEvent, context))
+                .withCause(exception);
+
+        verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
+    }
+
+    @Test
+    public void shouldForwardPointerToPayloadToDeadLetterQueueAndKeepPayload() {
+        requestHandler = new SqsLargeMessageDeadLetterHandler();
+        SqsClient sqsClient = mock(SqsClient.class);
+        overrideSqsClient(sqsClient);
+
+        when(amazonS3.getObject(BUCKET_NAME, BUCKET_KEY)).thenReturn(s3ObjectWithLargeMessage());
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(SendMessageBatchResponse.builder()
+                .build());
+
+        SQSMessage sqsMessage = largeMessageWithAttributes(BUCKET_KEY, "ExtendedPayloadSize");
+        sqsMessage.setMessageId("poison");
+        sqsMessage.setAttributes(singletonMap("ApproximateReceiveCount", "1"));
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(singletonList(sqsMessage));
+        String pointerBody = sqsMessage.getBody();
+
+        String response = requestHandler.handleRequest(sqsEvent, context);
+
+        assertThat(response).isEqualTo("Done");
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(captor.capture());
+
+        assertThat(captor.getValue().entries())
+                .extracting(SendMessageBatchRequestEntry::messageBody)
+                .containsExactly(pointerBody);
+
+        verify(amazonS3).getObject(BUCKET_NAME, BUCKET_KEY);
+        verify(amazonS3, never()).deleteObject(BUCKET_NAME, BUCKET_KEY);
+        verify(amazonS3, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    public void shouldDetectLargeMessageFromReservedAttribute() {
+        SQSMessage sqsMessage = new SQSMessage();
+        sqsMessage.setBody("This is small message");
+        sqsMessage.setMessageAttributes(singletonMap("ExtendedPayloadSize", new SQSEvent.MessageAttribute()));
+
+        assertThat(SqsLargeMessageAspect.isLargeMessage(sqsMessage)).isTrue();
+
+        sqsMessage.setMessageAttributes(singletonMap("SQSLargePayloadSize", new SQSEvent.MessageAttribute()));
+
+        assertThat(SqsLargeMessageAspect.isLargeMessage(sqsMessage)).isTrue();
+
+        sqsMessage.setMessageAttributes(emptyMap());
+
+        assertThat(SqsLargeMessageAspect.isLargeMessage(sqsMessage)).isFalse();
+    }
+
     @Test
     public void shouldNotDoAnyProcessingWhenNotSqsEvent() {
         LambdaHandlerApiGateway handler = new LambdaHandlerApiGateway();
@@ -156,6 +395,18 @@ public class SqsLargeMessageAspectTest {
         verifyNoInteractions(amazonS3);
     }
 
+    private SQSMessage largeMessageWithAttributes(String key, String... attributeNames) {
+        SQSMessage sqsMessage = new SQSMessage();
+        sqsMessage.setBody("[\"software.amazon.payloadoffloading.PayloadS3Pointer\",{\"s3BucketName\":\"" + BUCKET_NAME + "\",\"s3Key\":\"" + key + "\"}]");
+
+        Map<String, SQSEvent.MessageAttribute> messageAttributes = new HashMap<>();
+        for (String attributeName : attributeNames) {
+            messageAttributes.put(attributeName, new SQSEvent.MessageAttribute());
+        }
+        sqsMessage.setMessageAttributes(messageAttributes);
+        return sqsMessage;
+    }
+
     private S3Object s3ObjectWithLargeMessage() {
         S3Object s3Response = new S3Object();
         s3Response.setObjectContent(new ByteArrayInputStream("A big message".getBytes()));
@@ -2,6 +2,7 @@ package software.amazon.lambda.powertools.sqs.internal;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.TimeoutException;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
@@ -19,6 +20,7 @@ import software.amazon.lambda.powertools.sqs.handlers.LambdaHandlerApiGateway;
 import software.amazon.lambda.powertools.sqs.handlers.PartialBatchFailureSuppressedHandler;
 import software.amazon.lambda.powertools.sqs.handlers.PartialBatchPartialFailureHandler;
 import software.amazon.lambda.powertools.sqs.handlers.PartialBatchSuccessHandler;
+import software.amazon.lambda.powertools.sqs.handlers.PartialBatchTimeBudgetHandler;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -100,6 +102,28 @@ public class SqsMessageBatchProcessorAspectTest {
         verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
     }
 
+    @Test
+    void shouldReportMessagesAsFailedOnceRemainingTimeFallsBelowMargin() {
+        requestHandler = new PartialBatchTimeBudgetHandler();
+        when(context.getRemainingTimeInMillis()).thenReturn(5000, 500);
+
+        assertThatExceptionOfType(SQSBatchProcessingException.class)
+                .isThrownBy(() -> requestHandler.handleRequest(event, context))
+                .satisfies(e -> {
+                    assertThat(e.getExceptions())
+                            .hasSize(1)
+                            .hasOnlyElementsOfType(TimeoutException.class);
+
+                    assertThat(e.getFailures())
+                            .hasSize(1)
+                            .extracting("messageId")
+                            .containsExactly("2e1424d4-f796-459a-8184-9c92662be6da");
+                });
+
+        verify(mockedRandom).nextInt();
+        verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
     @Test
     void shouldNotTakeEffectOnNonSqsEventHandler() {
         LambdaHandlerApiGateway handlerApiGateway = new LambdaHandlerApiGateway();